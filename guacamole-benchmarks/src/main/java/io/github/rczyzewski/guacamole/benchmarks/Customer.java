@@ -0,0 +1,19 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBDocument;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+@Value
+@Builder
+@With
+@DynamoDBDocument
+public class Customer {
+  String name;
+  String email;
+  Address address;
+  List<Order> orders;
+  List<String> tags;
+}
@@ -0,0 +1,61 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Decoding of a 30 attribute item: field description lambdas, generated codec with the wither
+ * chain and generated codec with the Lombok builder.
+ *
+ * <pre>
+ *   mvn -pl guacamole-benchmarks -am package -DskipTests
+ *   java -jar guacamole-benchmarks/target/benchmarks.jar DecodeBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DecodeBenchmark {
+
+  private LiveMappingDescription<WideWitherItem> lambdaMapper;
+  private Map<String, AttributeValue> witherItem;
+  private Map<String, AttributeValue> builderItem;
+
+  @Setup
+  public void setup() {
+    LiveMappingDescription<WideWitherItem> mapper = WideWitherItemRepository.WIDE_WITHER_ITEM;
+    lambdaMapper = new LiveMappingDescription<>(mapper.getSupplier(), mapper.getFields());
+    witherItem = mapper.export(Samples.wideWitherItem());
+    builderItem = WideBuilderItemRepository.WIDE_BUILDER_ITEM.export(Samples.wideBuilderItem());
+  }
+
+  @Benchmark
+  public WideWitherItem fieldDescriptions() {
+    return lambdaMapper.transform(witherItem);
+  }
+
+  @Benchmark
+  public WideWitherItem witherCodec() {
+    return WideWitherItemRepository.WIDE_WITHER_ITEM.transform(witherItem);
+  }
+
+  @Benchmark
+  public WideBuilderItem builderCodec() {
+    return WideBuilderItemRepository.WIDE_BUILDER_ITEM.transform(builderItem);
+  }
+}
@@ -0,0 +1,15 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBDocument;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+@Value
+@Builder
+@With
+@DynamoDBDocument
+public class Location {
+  Double latitude;
+  Double longitude;
+}
@@ -0,0 +1,116 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Conversion between beans and items with the generated mappers, for a small, a wide and a deeply
+ * nested entity.
+ *
+ * <pre>
+ *   mvn -pl guacamole-benchmarks -am package -DskipTests
+ *   java -jar guacamole-benchmarks/target/benchmarks.jar MappingBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MappingBenchmark {
+
+  private static final int BATCH_SIZE = 25;
+
+  private SmallItem small;
+  private WideWitherItem wide;
+  private NestedItem nested;
+
+  private Map<String, AttributeValue> smallItem;
+  private Map<String, AttributeValue> wideItem;
+  private Map<String, AttributeValue> nestedItem;
+
+  private SmallItem[] smallBatch;
+  private NestedItem[] nestedBatch;
+
+  @Setup
+  public void setup() {
+    small = Samples.smallItem();
+    wide = Samples.wideWitherItem();
+    nested = Samples.nestedItem();
+
+    smallItem = SmallItemRepository.SMALL_ITEM.export(small);
+    wideItem = WideWitherItemRepository.WIDE_WITHER_ITEM.export(wide);
+    nestedItem = NestedItemRepository.NESTED_ITEM.export(nested);
+
+    smallBatch = new SmallItem[BATCH_SIZE];
+    nestedBatch = new NestedItem[BATCH_SIZE];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      smallBatch[i] = small.withUserId("user-" + i);
+      nestedBatch[i] = nested.withId("order-" + i);
+    }
+  }
+
+  @Benchmark
+  public SmallItem transformSmall() {
+    return SmallItemRepository.SMALL_ITEM.transform(smallItem);
+  }
+
+  @Benchmark
+  public WideWitherItem transformWide() {
+    return WideWitherItemRepository.WIDE_WITHER_ITEM.transform(wideItem);
+  }
+
+  @Benchmark
+  public NestedItem transformNested() {
+    return NestedItemRepository.NESTED_ITEM.transform(nestedItem);
+  }
+
+  @Benchmark
+  public Map<String, AttributeValue> exportSmall() {
+    return SmallItemRepository.SMALL_ITEM.export(small);
+  }
+
+  @Benchmark
+  public Map<String, AttributeValue> exportWide() {
+    return WideWitherItemRepository.WIDE_WITHER_ITEM.export(wide);
+  }
+
+  @Benchmark
+  public Map<String, AttributeValue> exportNested() {
+    return NestedItemRepository.NESTED_ITEM.export(nested);
+  }
+
+  @Benchmark
+  public Map<String, AttributeValue> exportKeysSmall() {
+    return SmallItemRepository.SMALL_ITEM.exportKeys(small);
+  }
+
+  @Benchmark
+  public Map<String, AttributeValue> exportKeysWide() {
+    return WideWitherItemRepository.WIDE_WITHER_ITEM.exportKeys(wide);
+  }
+
+  @Benchmark
+  public Map<String, Collection<WriteRequest>> writeRequestSmall() {
+    return SmallItemRepository.SMALL_ITEM.writeRequest("small", smallBatch);
+  }
+
+  @Benchmark
+  public Map<String, Collection<WriteRequest>> writeRequestNested() {
+    return NestedItemRepository.NESTED_ITEM.writeRequest("nested", nestedBatch);
+  }
+}
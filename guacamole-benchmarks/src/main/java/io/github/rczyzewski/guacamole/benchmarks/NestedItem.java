@@ -0,0 +1,18 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBHashKey;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBTable;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+/** Documents four levels deep: item, customer, address and location, plus a list of orders. */
+@Value
+@Builder
+@With
+@DynamoDBTable
+public class NestedItem {
+  @DynamoDBHashKey String id;
+  String status;
+  Customer customer;
+}
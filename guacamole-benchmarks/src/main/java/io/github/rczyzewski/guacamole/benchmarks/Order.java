@@ -0,0 +1,16 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBDocument;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+@Value
+@Builder
+@With
+@DynamoDBDocument
+public class Order {
+  String id;
+  Integer quantity;
+  Double price;
+}
@@ -0,0 +1,122 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import io.github.rczyzewski.guacamole.ddb.CompiledUpdateExpression;
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression.ComparisonOperator;
+import io.github.rczyzewski.guacamole.ddb.path.TypedPath;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Building update, query and scan requests, including their conditions, for a small, a wide and
+ * a deeply nested entity. The whole expression is built inside the benchmark, as it is in the
+ * application code.
+ *
+ * <pre>
+ *   mvn -pl guacamole-benchmarks -am package -DskipTests
+ *   java -jar guacamole-benchmarks/target/benchmarks.jar RequestBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RequestBenchmark {
+
+  private final SmallItemRepository smallRepository = new SmallItemRepository("small");
+  private final WideWitherItemRepository wideRepository = new WideWitherItemRepository("wide");
+  private final NestedItemRepository nestedRepository = new NestedItemRepository("nested");
+
+  private final TypedPath<NestedItem, String> city =
+      new NestedItemRepository.Paths.Root().selectCustomer().selectAddress().selectCity();
+
+  private SmallItem small;
+  private WideWitherItem wide;
+  private NestedItem nested;
+  private CompiledUpdateExpression<SmallItem> compiledSmallUpdate;
+
+  @Setup
+  public void setup() {
+    small = Samples.smallItem();
+    wide = Samples.wideWitherItem();
+    nested = Samples.nestedItem();
+    compiledSmallUpdate =
+        smallRepository.update(small).condition(it -> it.winsLess(small.getWins())).compile();
+  }
+
+  @Benchmark
+  public UpdateItemRequest updateSmall() {
+    return smallRepository.update(small).asUpdateItemRequest();
+  }
+
+  @Benchmark
+  public UpdateItemRequest updateSmallWithCondition() {
+    return smallRepository
+        .update(small)
+        .condition(it -> it.winsLess(small.getWins()))
+        .asUpdateItemRequest();
+  }
+
+  @Benchmark
+  public UpdateItemRequest updateSmallCompiled() {
+    return compiledSmallUpdate.asUpdateItemRequest(
+        smallRepository.update(small).condition(it -> it.winsLess(small.getWins())));
+  }
+
+  @Benchmark
+  public UpdateItemRequest updateWide() {
+    return wideRepository.update(wide).asUpdateItemRequest();
+  }
+
+  @Benchmark
+  public UpdateItemRequest updateNested() {
+    return nestedRepository.update(nested).asUpdateItemRequest();
+  }
+
+  @Benchmark
+  public QueryRequest queryByKey() {
+    return smallRepository.getIndexSelector().primary(small.getUserId()).asQueryRequest();
+  }
+
+  @Benchmark
+  public QueryRequest queryWithKeyConditionAndFilter() {
+    return smallRepository
+        .getIndexSelector()
+        .primary(small.getUserId(), it -> it.gameTitleEqual(small.getGameTitle()))
+        .condition(it -> it.winsBetween(2, 222))
+        .asQueryRequest();
+  }
+
+  @Benchmark
+  public ScanRequest scanWithCompoundCondition() {
+    return smallRepository
+        .scan()
+        .condition(
+            it ->
+                it.or(
+                    it.and(it.topScoreExists(), it.winsGreater(10)),
+                    it.and(it.lossesNotExists(), it.gameTitleBeginsWith("Galaxy"))))
+        .asScanItemRequest();
+  }
+
+  @Benchmark
+  public ScanRequest scanWithNestedCondition() {
+    return nestedRepository
+        .scan()
+        .condition(it -> it.compare(city, ComparisonOperator.EQUAL, "Springfield"))
+        .asScanItemRequest();
+  }
+}
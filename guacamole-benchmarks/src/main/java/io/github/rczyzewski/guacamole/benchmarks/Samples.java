@@ -0,0 +1,114 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import java.util.Arrays;
+import lombok.experimental.UtilityClass;
+
+/** Fully populated entities shared by the benchmarks. */
+@UtilityClass
+public class Samples {
+
+  public static SmallItem smallItem() {
+    return SmallItem.builder()
+        .userId("101")
+        .gameTitle("Galaxy Invaders")
+        .topScore(5842)
+        .wins(21)
+        .losses(72)
+        .build();
+  }
+
+  public static NestedItem nestedItem() {
+    return NestedItem.builder()
+        .id("order-101")
+        .status("SHIPPED")
+        .customer(
+            Customer.builder()
+                .name("Jane Doe")
+                .email("jane.doe@example.com")
+                .address(
+                    Address.builder()
+                        .street("1 Main Street")
+                        .city("Springfield")
+                        .zipCode("12345")
+                        .location(Location.builder().latitude(39.78).longitude(-89.65).build())
+                        .build())
+                .orders(
+                    Arrays.asList(
+                        Order.builder().id("A-1").quantity(1).price(9.99).build(),
+                        Order.builder().id("A-2").quantity(3).price(19.5).build(),
+                        Order.builder().id("A-3").quantity(2).price(4.25).build()))
+                .tags(Arrays.asList("vip", "newsletter"))
+                .build())
+        .build();
+  }
+
+  public static WideWitherItem wideWitherItem() {
+    return WideWitherItem.builder()
+        .id("benchmark-item")
+        .attribute01(1)
+        .attribute02(2L)
+        .attribute03(3.5)
+        .attribute04("value-4")
+        .attribute05(5)
+        .attribute06(6L)
+        .attribute07(7.5)
+        .attribute08("value-8")
+        .attribute09(9)
+        .attribute10(10L)
+        .attribute11(11.5)
+        .attribute12("value-12")
+        .attribute13(13)
+        .attribute14(14L)
+        .attribute15(15.5)
+        .attribute16("value-16")
+        .attribute17(17)
+        .attribute18(18L)
+        .attribute19(19.5)
+        .attribute20("value-20")
+        .attribute21(21)
+        .attribute22(22L)
+        .attribute23(23.5)
+        .attribute24("value-24")
+        .attribute25(25)
+        .attribute26(26L)
+        .attribute27(27.5)
+        .attribute28("value-28")
+        .attribute29(29)
+        .build();
+  }
+
+  public static WideBuilderItem wideBuilderItem() {
+    return WideBuilderItem.builder()
+        .id("benchmark-item")
+        .attribute01(1)
+        .attribute02(2L)
+        .attribute03(3.5)
+        .attribute04("value-4")
+        .attribute05(5)
+        .attribute06(6L)
+        .attribute07(7.5)
+        .attribute08("value-8")
+        .attribute09(9)
+        .attribute10(10L)
+        .attribute11(11.5)
+        .attribute12("value-12")
+        .attribute13(13)
+        .attribute14(14L)
+        .attribute15(15.5)
+        .attribute16("value-16")
+        .attribute17(17)
+        .attribute18(18L)
+        .attribute19(19.5)
+        .attribute20("value-20")
+        .attribute21(21)
+        .attribute22(22L)
+        .attribute23(23.5)
+        .attribute24("value-24")
+        .attribute25(25)
+        .attribute26(26L)
+        .attribute27(27.5)
+        .attribute28("value-28")
+        .attribute29(29)
+        .build();
+  }
+}
@@ -0,0 +1,21 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBHashKey;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBRangeKey;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBTable;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+/** A handful of attributes with a composite key, the typical counter or ranking row. */
+@Value
+@Builder
+@With
+@DynamoDBTable
+public class SmallItem {
+  @DynamoDBHashKey String userId;
+  @DynamoDBRangeKey String gameTitle;
+  Integer topScore;
+  Integer wins;
+  Integer losses;
+}
@@ -0,0 +1,46 @@
+package io.github.rczyzewski.guacamole.benchmarks;
+
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DecodeStrategy;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBHashKey;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBTable;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+/** Same shape as {@link WideWitherItem}, decoded with the Lombok builder. */
+@Value
+@Builder
+@With
+@DynamoDBTable(decode = DecodeStrategy.BUILDER)
+public class WideBuilderItem {
+  @DynamoDBHashKey String id;
+  Integer attribute01;
+  Long attribute02;
+  Double attribute03;
+  String attribute04;
+  Integer attribute05;
+  Long attribute06;
+  Double attribute07;
+  String attribute08;
+  Integer attribute09;
+  Long attribute10;
+  Double attribute11;
+  String attribute12;
+  Integer attribute13;
+  Long attribute14;
+  Double attribute15;
+  String attribute16;
+  Integer attribute17;
+  Long attribute18;
+  Double attribute19;
+  String attribute20;
+  Integer attribute21;
+  Long attribute22;
+  Double attribute23;
+  String attribute24;
+  Integer attribute25;
+  Long attribute26;
+  Double attribute27;
+  String attribute28;
+  Integer attribute29;
+}
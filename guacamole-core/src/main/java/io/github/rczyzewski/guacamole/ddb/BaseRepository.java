@@ -1,8 +1,13 @@
 package io.github.rczyzewski.guacamole.ddb;
 
+import io.github.rczyzewski.guacamole.ddb.batch.BatchLoader;
 import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
 import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
+import java.util.Collection;
+import java.util.List;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 
 public interface BaseRepository<T, G extends ExpressionGenerator<T>> {
@@ -10,6 +15,8 @@ public interface BaseRepository<T, G extends ExpressionGenerator<T>> {
 
   LiveMappingDescription<T> getMapper();
 
+  String getTableName();
+
   MappedDeleteExpression<T, G> delete(T item);
 
   MappedUpdateExpression<T, G> update(T data);
@@ -17,4 +24,21 @@ public interface BaseRepository<T, G extends ExpressionGenerator<T>> {
   MappedScanExpression<T, G> scan();
 
   CreateTableRequest createTable();
+
+  /** Reads the item with the same keys as the given one; other attributes are ignored. */
+  default GetItemRequest get(T key) {
+    return GetItemRequest.builder()
+        .tableName(getTableName())
+        .key(getMapper().exportKeys(key))
+        .build();
+  }
+
+  /**
+   * Reads the items with the same keys as the given ones using {@code BatchGetItem}, one request
+   * per 100 keys. Keys without a stored item are skipped. Use {@link BatchLoader} for concurrent
+   * requests or results in the order of the keys.
+   */
+  default List<T> loadAll(DynamoDbClient client, Collection<T> keys) {
+    return BatchLoader.<T>builder().client(client).repository(this).build().load(keys);
+  }
 }
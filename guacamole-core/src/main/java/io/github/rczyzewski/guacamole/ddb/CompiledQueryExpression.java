@@ -0,0 +1,57 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+/**
+ * Query with resolved placeholders, created by {@link MappedQueryExpression#compile()}. It is
+ * immutable and can be shared between threads.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class CompiledQueryExpression<T> {
+
+  private final String index;
+  private final String keyConditionExpression;
+  private final String filterExpression;
+  private final String projectionExpression;
+  private final ExpressionTemplate template;
+  private final String shape;
+
+  /**
+   * Creates a request for the given query, using only its table name and values.
+   *
+   * @throws IllegalArgumentException when the query has a different shape than the compiled one
+   */
+  public QueryRequest asQueryRequest(MappedQueryExpression<T, ?> expression) {
+
+    String queryShape = expression.shape();
+    if (!shape.equals(queryShape)) {
+      throw new IllegalArgumentException(
+          "The query has a different shape than the compiled one: " + queryShape);
+    }
+
+    List<AttributeValue> values = new ArrayList<>(template.getValueCodes().size());
+    if (expression.getCondition() != null) {
+      expression.getCondition().collectValues((code, value) -> values.add(value));
+    }
+    expression.getKeyCondition().collectValues((code, value) -> values.add(value));
+
+    return QueryRequest.builder()
+        .expressionAttributeValues(template.bind(values))
+        .indexName(index)
+        .keyConditionExpression(keyConditionExpression)
+        .expressionAttributeNames(template.getNames())
+        .select(projectionExpression != null ? Select.SPECIFIC_ATTRIBUTES : Select.ALL_ATTRIBUTES)
+        .projectionExpression(projectionExpression)
+        .filterExpression(filterExpression)
+        .tableName(expression.getTableName())
+        .build();
+  }
+}
@@ -0,0 +1,56 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+/**
+ * Scan with resolved placeholders, created by {@link MappedScanExpression#compile()}. It is
+ * immutable and can be shared between threads.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class CompiledScanExpression<T> {
+
+  private final String filterExpression;
+  private final String projectionExpression;
+  private final ExpressionTemplate template;
+  private final String shape;
+
+  /**
+   * Creates a request for the given scan, using only its table name, segment and values.
+   *
+   * @throws IllegalArgumentException when the scan has a different shape than the compiled one
+   */
+  public ScanRequest asScanItemRequest(MappedScanExpression<T, ?> expression) {
+
+    String scanShape = expression.shape();
+    if (!shape.equals(scanShape)) {
+      throw new IllegalArgumentException(
+          "The scan has a different shape than the compiled one: " + scanShape);
+    }
+
+    List<AttributeValue> values = new ArrayList<>(template.getValueCodes().size());
+    if (expression.getCondition() != null) {
+      expression.getCondition().collectValues((code, value) -> values.add(value));
+    }
+    Map<String, AttributeValue> boundValues = template.bind(values);
+
+    return ScanRequest.builder()
+        .expressionAttributeValues(boundValues.isEmpty() ? null : boundValues)
+        .expressionAttributeNames(template.getNames().isEmpty() ? null : template.getNames())
+        .select(projectionExpression != null ? Select.SPECIFIC_ATTRIBUTES : Select.ALL_ATTRIBUTES)
+        .projectionExpression(projectionExpression)
+        .filterExpression(filterExpression)
+        .tableName(expression.getTableName())
+        .segment(expression.getSegment())
+        .totalSegments(expression.getTotalSegments())
+        .build();
+  }
+}
@@ -0,0 +1,82 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.Getter;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Update expression with resolved placeholders, created by {@link MappedUpdateExpression#compile()}.
+ * It is immutable and can be shared between threads.
+ */
+@Getter
+public final class CompiledUpdateExpression<T> {
+
+  private final String updateExpression;
+  private final String conditionExpression;
+  private final ExpressionTemplate template;
+  private final List<String> shape;
+  private final String conditionShape;
+  private final List<Integer> usedStatements;
+
+  CompiledUpdateExpression(
+      String updateExpression,
+      String conditionExpression,
+      ExpressionTemplate template,
+      List<String> shape,
+      String conditionShape,
+      List<Integer> usedStatements) {
+    this.updateExpression = updateExpression;
+    this.conditionExpression = conditionExpression;
+    this.template = template;
+    this.shape = Collections.unmodifiableList(new ArrayList<>(shape));
+    this.conditionShape = conditionShape;
+    this.usedStatements = Collections.unmodifiableList(new ArrayList<>(usedStatements));
+  }
+
+  /**
+   * Creates a request for the given update, using only its keys and values.
+   *
+   * @throws IllegalArgumentException when the update has a different shape than the compiled one
+   */
+  public <G extends ExpressionGenerator<T>> UpdateItemRequest asUpdateItemRequest(
+      MappedUpdateExpression<T, G> expression) {
+
+    List<MappedUpdateExpression.Statement<T>> statements =
+        expression.getExtraSetAddRemoveExpressions();
+
+    List<String> updateShape = MappedUpdateExpression.shapeOf(statements);
+    String updateConditionShape = LogicalExpression.shapeOf(expression.getCondition());
+    if (!shape.equals(updateShape) || !Objects.equals(conditionShape, updateConditionShape)) {
+      throw new IllegalArgumentException(
+          "The update has a different shape than the compiled one: "
+              + updateShape
+              + ", condition: "
+              + updateConditionShape);
+    }
+
+    List<AttributeValue> values = new ArrayList<>(template.getValueCodes().size());
+    for (Integer index : usedStatements) {
+      statements.get(index).collectValues((code, value) -> values.add(value));
+    }
+    if (expression.getCondition() != null) {
+      expression.getCondition().collectValues((code, value) -> values.add(value));
+    }
+    Map<String, AttributeValue> boundValues = template.bind(values);
+
+    return UpdateItemRequest.builder()
+        .key(expression.getKeys())
+        .expressionAttributeValues(boundValues.isEmpty() ? null : boundValues)
+        .updateExpression(updateExpression)
+        .expressionAttributeNames(template.getNames())
+        .conditionExpression(conditionExpression)
+        .tableName(expression.getTableName())
+        .build();
+  }
+}
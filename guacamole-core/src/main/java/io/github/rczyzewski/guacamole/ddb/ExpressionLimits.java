@@ -0,0 +1,253 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator.utf8Length;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Value;
+import lombok.experimental.StandardException;
+import lombok.experimental.UtilityClass;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Limits DynamoDB puts on the expressions of a request, checked before the request is sent. A
+ * request over a limit fails when it is built, with every exceeded limit in the message, instead of
+ * with a {@code ValidationException} from the service.
+ */
+@UtilityClass
+public class ExpressionLimits {
+
+  /** Longest expression of any kind, in UTF-8 bytes. */
+  public static final int MAX_EXPRESSION_BYTES = 4 * 1024;
+
+  /** Longest placeholder of an attribute name or value, e.g. {@code #A}, in UTF-8 bytes. */
+  public static final int MAX_PLACEHOLDER_BYTES = 255;
+
+  /** Largest sum of all expression attribute names and values of a request. */
+  public static final int MAX_SUBSTITUTION_BYTES = 2 * 1024 * 1024;
+
+  /** Most arithmetic operators and functions in an update expression. */
+  public static final int MAX_UPDATE_OPERATORS = 300;
+
+  public static Analysis analyze(UpdateItemRequest request) {
+    Map<String, String> expressions = new LinkedHashMap<>();
+    expressions.put("UpdateExpression", request.updateExpression());
+    expressions.put("ConditionExpression", request.conditionExpression());
+    return analyze(
+        "UpdateItem",
+        request.tableName(),
+        expressions,
+        request.expressionAttributeNames(),
+        request.expressionAttributeValues(),
+        operatorsOf(request.updateExpression()),
+        ItemSizeCalculator.sizeOf(request.key())
+            + valuesSize(request.expressionAttributeValues()));
+  }
+
+  public static Analysis analyze(QueryRequest request) {
+    Map<String, String> expressions = new LinkedHashMap<>();
+    expressions.put("KeyConditionExpression", request.keyConditionExpression());
+    expressions.put("FilterExpression", request.filterExpression());
+    expressions.put("ProjectionExpression", request.projectionExpression());
+    return analyze(
+        "Query",
+        request.tableName(),
+        expressions,
+        request.expressionAttributeNames(),
+        request.expressionAttributeValues(),
+        0,
+        0);
+  }
+
+  public static Analysis analyze(ScanRequest request) {
+    Map<String, String> expressions = new LinkedHashMap<>();
+    expressions.put("FilterExpression", request.filterExpression());
+    expressions.put("ProjectionExpression", request.projectionExpression());
+    return analyze(
+        "Scan",
+        request.tableName(),
+        expressions,
+        request.expressionAttributeNames(),
+        request.expressionAttributeValues(),
+        0,
+        0);
+  }
+
+  public static Analysis analyze(DeleteItemRequest request) {
+    return analyze(
+        "DeleteItem",
+        request.tableName(),
+        Collections.singletonMap("ConditionExpression", request.conditionExpression()),
+        request.expressionAttributeNames(),
+        request.expressionAttributeValues(),
+        0,
+        ItemSizeCalculator.sizeOf(request.key()));
+  }
+
+  static UpdateItemRequest checked(UpdateItemRequest request) {
+    analyze(request).check();
+    return request;
+  }
+
+  static QueryRequest checked(QueryRequest request) {
+    analyze(request).check();
+    return request;
+  }
+
+  static ScanRequest checked(ScanRequest request) {
+    analyze(request).check();
+    return request;
+  }
+
+  static DeleteItemRequest checked(DeleteItemRequest request) {
+    analyze(request).check();
+    return request;
+  }
+
+  private static Analysis analyze(
+      String operation,
+      String tableName,
+      Map<String, String> expressions,
+      Map<String, String> names,
+      Map<String, AttributeValue> values,
+      int operators,
+      long itemBytes) {
+    Map<String, Integer> expressionBytes = new LinkedHashMap<>();
+    expressions.forEach(
+        (name, expression) -> {
+          if (expression != null) expressionBytes.put(name, utf8Length(expression));
+        });
+
+    String longestPlaceholder = "";
+    long substitutionBytes = 0;
+    for (Map.Entry<String, String> name : names.entrySet()) {
+      longestPlaceholder = longer(longestPlaceholder, name.getKey());
+      substitutionBytes += utf8Length(name.getKey()) + utf8Length(name.getValue());
+    }
+    for (Map.Entry<String, AttributeValue> value : values.entrySet()) {
+      longestPlaceholder = longer(longestPlaceholder, value.getKey());
+      substitutionBytes += utf8Length(value.getKey()) + ItemSizeCalculator.sizeOf(value.getValue());
+    }
+
+    return new Analysis(
+        operation,
+        tableName,
+        Collections.unmodifiableMap(expressionBytes),
+        names.size(),
+        values.size(),
+        utf8Length(longestPlaceholder),
+        substitutionBytes,
+        operators,
+        itemBytes);
+  }
+
+  private static String longer(String a, String b) {
+    return b.length() > a.length() ? b : a;
+  }
+
+  private static long valuesSize(Map<String, AttributeValue> values) {
+    long size = 0;
+    for (AttributeValue value : values.values()) {
+      size += ItemSizeCalculator.sizeOf(value);
+    }
+    return size;
+  }
+
+  /** Arithmetic operators and function calls; placeholders never contain {@code +} or {@code -}. */
+  static int operatorsOf(String expression) {
+    if (expression == null) return 0;
+    int operators = 0;
+    for (int i = 0; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (c == '+' || c == '-' || (c == '(' && isFunctionCall(expression, i))) operators++;
+    }
+    return operators;
+  }
+
+  /** A parenthesis after a function name, as in {@code if_not_exists(}, rather than grouping. */
+  private static boolean isFunctionCall(String expression, int parenthesis) {
+    int i = parenthesis - 1;
+    while (i >= 0 && expression.charAt(i) == ' ') i--;
+    return i >= 0 && (Character.isLetter(expression.charAt(i)) || expression.charAt(i) == '_');
+  }
+
+  /**
+   * Sizes of the expressions and substitutions of a request. For writes the item size is a lower
+   * bound of the written item: its key and the values of the expressions, without attribute names.
+   */
+  @Value
+  public static class Analysis {
+    String operation;
+    String tableName;
+    Map<String, Integer> expressionBytes;
+    int names;
+    int values;
+    int longestPlaceholderBytes;
+    long substitutionBytes;
+    int operators;
+    long itemBytes;
+
+    /** Every exceeded limit, with the measured and the allowed value. */
+    public List<String> violations() {
+      List<String> violations = new ArrayList<>();
+      expressionBytes.forEach(
+          (name, bytes) -> {
+            if (bytes > MAX_EXPRESSION_BYTES) {
+              violations.add(
+                  String.format(
+                      "%s has %d bytes, at most %d are allowed",
+                      name, bytes, MAX_EXPRESSION_BYTES));
+            }
+          });
+      if (longestPlaceholderBytes > MAX_PLACEHOLDER_BYTES) {
+        violations.add(
+            String.format(
+                "a placeholder has %d bytes, at most %d are allowed",
+                longestPlaceholderBytes, MAX_PLACEHOLDER_BYTES));
+      }
+      if (substitutionBytes > MAX_SUBSTITUTION_BYTES) {
+        violations.add(
+            String.format(
+                "%d names and %d values take %d bytes, at most %d are allowed",
+                names, values, substitutionBytes, MAX_SUBSTITUTION_BYTES));
+      }
+      if (operators > MAX_UPDATE_OPERATORS) {
+        violations.add(
+            String.format(
+                "UpdateExpression has %d operators and functions, at most %d are allowed",
+                operators, MAX_UPDATE_OPERATORS));
+      }
+      if (itemBytes > ItemSizeCalculator.MAX_ITEM_SIZE) {
+        violations.add(
+            String.format(
+                "the item has at least %d bytes, at most %d are allowed",
+                itemBytes, ItemSizeCalculator.MAX_ITEM_SIZE));
+      }
+      return violations;
+    }
+
+    /**
+     * @throws LimitExceededException when the request exceeds any of the limits
+     */
+    public void check() {
+      List<String> violations = violations();
+      if (!violations.isEmpty()) {
+        throw new LimitExceededException(
+            String.format(
+                "%s on %s (%d names, %d values) exceeds the limits of DynamoDB: %s",
+                operation, tableName, names, values, String.join("; ", violations)));
+      }
+    }
+  }
+
+  @StandardException
+  public static class LimitExceededException extends RuntimeException {}
+}
@@ -0,0 +1,40 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Attribute names and value placeholders of a compiled expression. The placeholders are kept in
+ * the order in which {@code collectValues} visits the values, so binding is a plain zip.
+ */
+@Getter
+public final class ExpressionTemplate {
+
+  private final Map<String, String> names;
+  private final List<String> valueCodes;
+
+  ExpressionTemplate(Map<String, String> names, List<String> valueCodes) {
+    this.names = Collections.unmodifiableMap(new HashMap<>(names));
+    this.valueCodes = Collections.unmodifiableList(new ArrayList<>(valueCodes));
+  }
+
+  public Map<String, AttributeValue> bind(List<AttributeValue> values) {
+    if (values.size() != valueCodes.size()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Expected %d values, but the expression provides %d: it has a different shape than"
+                  + " the compiled one",
+              valueCodes.size(), values.size()));
+    }
+    Map<String, AttributeValue> bound = new HashMap<>(valueCodes.size() * 2);
+    for (int i = 0; i < values.size(); i++) {
+      bound.put(valueCodes.get(i), values.get(i));
+    }
+    return bound;
+  }
+}
@@ -0,0 +1,275 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import io.github.rczyzewski.guacamole.ddb.metrics.LatencyHistogram;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+/**
+ * Reads of a repository with hedging: when a request did not answer within the usual latency of
+ * its operation, the same request is sent again, the first response wins and the other request is
+ * cancelled. The delay is a percentile of the latencies recorded for the operation during the last
+ * window. Hedged requests are paid for by a budget that grows by {@code hedgeRatio} with every
+ * request, so at most that fraction of requests is duplicated.
+ *
+ * <p>Only reads are hedged; they have no side effects, so sending them twice is safe. The latency
+ * of the first attempt is recorded even when it is cancelled, as the time it had been running, so
+ * that losing to a hedge does not hide slow requests from the percentile.
+ *
+ * <p>{@link #close()} stops the scheduler thread owned by the reader; requests that are running
+ * are not cancelled.
+ */
+public class HedgedReader<T> implements AutoCloseable {
+
+  private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final double MAX_SAVED_HEDGES = 10;
+
+  private final DynamoDbAsyncClient client;
+  private final BaseRepository<T, ?> repository;
+  private final ScheduledExecutorService scheduler;
+  private final boolean ownScheduler;
+  private final double percentile;
+  private final double hedgeRatio;
+  private final long minSamples;
+  private final long windowNanos;
+
+  private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+  private double savedHedges;
+  private volatile boolean closed;
+
+  /**
+   * @param percentile latency after which a request is hedged, {@code 0.95} by default
+   * @param hedgeRatio largest fraction of requests that may be hedged, {@code 0.05} by default; at
+   *     most {@code 1}, so the read cost is never more than doubled
+   * @param minSamples latencies recorded for an operation before it is hedged, 100 by default
+   * @param window how long latencies are collected before the percentile is updated
+   * @param scheduler triggers the hedged requests; by default a single daemon thread owned by the
+   *     reader
+   */
+  @Builder
+  private HedgedReader(
+      @NonNull DynamoDbAsyncClient client,
+      @NonNull BaseRepository<T, ?> repository,
+      Double percentile,
+      Double hedgeRatio,
+      Long minSamples,
+      Duration window,
+      ScheduledExecutorService scheduler) {
+    this.client = client;
+    this.repository = repository;
+    this.percentile = Optional.ofNullable(percentile).orElse(0.95);
+    this.hedgeRatio = Optional.ofNullable(hedgeRatio).orElse(0.05);
+    this.minSamples = Optional.ofNullable(minSamples).orElse(100L);
+    this.windowNanos = Optional.ofNullable(window).orElse(Duration.ofMinutes(1)).toNanos();
+    if (this.percentile <= 0 || this.percentile >= 1) {
+      throw new IllegalArgumentException("Percentile must be in (0, 1), got " + percentile);
+    }
+    if (this.hedgeRatio <= 0 || this.hedgeRatio > 1) {
+      throw new IllegalArgumentException("Hedge ratio must be in (0, 1], got " + hedgeRatio);
+    }
+    this.ownScheduler = scheduler == null;
+    this.scheduler =
+        ownScheduler
+            ? Executors.newSingleThreadScheduledExecutor(
+                it -> {
+                  Thread thread = new Thread(it, "guacamole-hedged-reader");
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : scheduler;
+  }
+
+  /** The stored item with the keys of the given one, or empty when there is none. */
+  public CompletableFuture<Optional<T>> get(T key) {
+    return hedged(operation("GetItem"), () -> client.getItem(repository.get(key)))
+        .thenApply(
+            it ->
+                it.hasItem()
+                    ? Optional.of(repository.getMapper().transform(it.item()))
+                    : Optional.empty());
+  }
+
+  /** All items of the query; every page is hedged on its own. */
+  public CompletableFuture<List<T>> query(MappedQueryExpression<T, ?> query) {
+    QueryRequest request = query.asQueryRequest();
+    Operation operation =
+        operation(request.indexName() == null ? "Query" : "Query " + request.indexName());
+    return queryPages(operation, request, query.pageDecoder(), new ArrayList<>());
+  }
+
+  /** Requests, hedges and hedges that answered first, since the reader was created. */
+  public HedgeStats stats() {
+    return new HedgeStats(requests.sum(), hedges.sum(), hedgeWins.sum());
+  }
+
+  /**
+   * Stops the scheduler owned by the reader. Further reads fail; calling it again has no effect.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (ownScheduler) scheduler.shutdown();
+  }
+
+  /** Current hedging delay of the operation, or empty while too few latencies are recorded. */
+  public Optional<Duration> hedgeDelay(String operation) {
+    Operation recorded = operations.get(operation);
+    long delay = recorded == null ? -1 : recorded.hedgeDelay();
+    return delay < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(delay));
+  }
+
+  private CompletableFuture<List<T>> queryPages(
+      Operation operation,
+      QueryRequest request,
+      Function<List<Map<String, AttributeValue>>, List<T>> decoder,
+      List<T> items) {
+    return hedged(operation, () -> client.query(request))
+        .thenCompose(
+            (QueryResponse page) -> {
+              items.addAll(decoder.apply(page.items()));
+              if (!page.hasLastEvaluatedKey() || page.lastEvaluatedKey().isEmpty()) {
+                return CompletableFuture.completedFuture(items);
+              }
+              return queryPages(
+                  operation,
+                  request.toBuilder().exclusiveStartKey(page.lastEvaluatedKey()).build(),
+                  decoder,
+                  items);
+            });
+  }
+
+  private Operation operation(String name) {
+    return operations.computeIfAbsent(name, it -> new Operation());
+  }
+
+  private <R> CompletableFuture<R> hedged(
+      Operation operation, Supplier<CompletableFuture<R>> call) {
+    if (closed) throw new IllegalStateException("Hedged reader is closed");
+    CompletableFuture<R> result = new CompletableFuture<>();
+    List<CompletableFuture<R>> attempts = new CopyOnWriteArrayList<>();
+    AtomicInteger running = new AtomicInteger(1);
+
+    requests.increment();
+    depositHedge();
+    launch(operation, call, result, attempts, running, false);
+
+    long delay = operation.hedgeDelay();
+    if (delay >= 0) {
+      ScheduledFuture<?> timer =
+          scheduler.schedule(
+              () -> {
+                if (result.isDone() || !withdrawHedge()) return;
+                running.incrementAndGet();
+                hedges.increment();
+                launch(operation, call, result, attempts, running, true);
+              },
+              Math.max(delay, MIN_DELAY_NANOS),
+              TimeUnit.NANOSECONDS);
+      result.whenComplete((ignored, error) -> timer.cancel(false));
+    }
+    result.whenComplete((ignored, error) -> attempts.forEach(it -> it.cancel(true)));
+    return result;
+  }
+
+  private <R> void launch(
+      Operation operation,
+      Supplier<CompletableFuture<R>> call,
+      CompletableFuture<R> result,
+      List<CompletableFuture<R>> attempts,
+      AtomicInteger running,
+      boolean hedge) {
+    long started = System.nanoTime();
+    CompletableFuture<R> called;
+    try {
+      called = call.get();
+    } catch (RuntimeException e) {
+      called = new CompletableFuture<>();
+      called.completeExceptionally(e);
+    }
+    CompletableFuture<R> attempt = called;
+    attempts.add(attempt);
+    if (result.isDone()) attempt.cancel(true);
+
+    attempt.whenComplete(
+        (value, error) -> {
+          if (!hedge && (error == null || attempt.isCancelled())) {
+            operation.record(System.nanoTime() - started);
+          }
+          if (error == null) {
+            if (result.complete(value) && hedge) hedgeWins.increment();
+          } else if (running.decrementAndGet() == 0) {
+            result.completeExceptionally(
+                error instanceof CompletionException ? error.getCause() : error);
+          }
+        });
+  }
+
+  private synchronized void depositHedge() {
+    savedHedges = Math.min(MAX_SAVED_HEDGES, savedHedges + hedgeRatio);
+  }
+
+  private synchronized boolean withdrawHedge() {
+    if (savedHedges < 1) return false;
+    savedHedges -= 1;
+    return true;
+  }
+
+  /** Latencies of the current window, and the hedging delay learned from the previous one. */
+  private class Operation {
+    private LatencyHistogram current = new LatencyHistogram();
+    private long windowStart = System.nanoTime();
+    private volatile long delay = -1;
+
+    void record(long nanos) {
+      LatencyHistogram histogram;
+      synchronized (this) {
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos && current.count() >= minSamples) {
+          delay = current.valueAtPercentile(percentile);
+          current = new LatencyHistogram();
+          windowStart = now;
+        }
+        histogram = current;
+      }
+      histogram.record(nanos);
+      if (delay < 0 && histogram.count() >= minSamples) {
+        delay = histogram.valueAtPercentile(percentile);
+      }
+    }
+
+    long hedgeDelay() {
+      return delay;
+    }
+  }
+
+  @Value
+  public static class HedgeStats {
+    long requests;
+    long hedges;
+    long hedgeWins;
+  }
+}
@@ -4,8 +4,12 @@ import static io.github.rczyzewski.guacamole.ddb.MappedExpressionUtils.prepare;
 
 import io.github.rczyzewski.guacamole.ddb.mapper.ConsecutiveIdGenerator;
 import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
 import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
 import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.Metrics;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,6 +18,8 @@ import java.util.function.Function;
 import lombok.AllArgsConstructor;
 import lombok.With;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 
 @AllArgsConstructor
@@ -29,7 +35,17 @@ public class MappedDeleteExpression<T, G extends ExpressionGenerator<T>> {
   }
 
   public DeleteItemRequest asDeleteItemRequest() {
+    return Metrics.time(
+        RepositoryMetrics.Stage.PREPARATION,
+        MetricTags.of(tableName, null, "DeleteItem"),
+        () -> ExpressionLimits.checked(prepareDeleteItemRequest()),
+        it -> 1,
+        it ->
+            ItemSizeCalculator.sizeOf(it.key())
+                + ItemSizeCalculator.sizeOf(it.expressionAttributeValues()));
+  }
 
+  private DeleteItemRequest prepareDeleteItemRequest() {
     ConsecutiveIdGenerator cid = ConsecutiveIdGenerator.builder().build();
     Map<String, String> accumulator = new HashMap<>();
     Optional<MappedExpressionUtils.ResolvedExpression<T>> preparedConditionExpression =
@@ -57,4 +73,35 @@ public class MappedDeleteExpression<T, G extends ExpressionGenerator<T>> {
         .tableName(tableName)
         .build();
   }
+
+  public Delete asTransactionDelete() {
+    DeleteItemRequest delete = asDeleteItemRequest();
+    return Delete.builder()
+        .key(delete.key())
+        .tableName(tableName)
+        .conditionExpression(delete.conditionExpression())
+        .expressionAttributeValues(delete.expressionAttributeValues())
+        .expressionAttributeNames(
+            delete.expressionAttributeNames().isEmpty() ? null : delete.expressionAttributeNames())
+        .build();
+  }
+
+  /**
+   * Checks the condition of this expression in a transaction, without deleting the item.
+   *
+   * @throws IllegalStateException when no condition was given
+   */
+  public ConditionCheck asTransactionConditionCheck() {
+    if (condition == null) {
+      throw new IllegalStateException("A condition check requires a condition");
+    }
+    DeleteItemRequest delete = asDeleteItemRequest();
+    return ConditionCheck.builder()
+        .key(delete.key())
+        .tableName(tableName)
+        .conditionExpression(delete.conditionExpression())
+        .expressionAttributeValues(delete.expressionAttributeValues())
+        .expressionAttributeNames(delete.expressionAttributeNames())
+        .build();
+  }
 }
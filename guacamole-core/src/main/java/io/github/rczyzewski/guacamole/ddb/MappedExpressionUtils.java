@@ -3,7 +3,11 @@ package io.github.rczyzewski.guacamole.ddb;
 import io.github.rczyzewski.guacamole.ddb.mapper.ConsecutiveIdGenerator;
 import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
 import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import io.github.rczyzewski.guacamole.ddb.path.Path;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.Builder;
 import lombok.Value;
 import lombok.experimental.UtilityClass;
@@ -18,10 +22,6 @@ public class MappedExpressionUtils {
       ConsecutiveIdGenerator idGenerator,
       Map<String, String> shortCodeAccumulator) {
 
-    liveMappingDescription
-        .getDict()
-        .forEach((k, v) -> shortCodeAccumulator.put(k, "#" + v.getShortCode()));
-
     return Optional.ofNullable(condition)
         .map(it -> it.prepare(idGenerator, liveMappingDescription, shortCodeAccumulator))
         .map(
@@ -34,6 +34,60 @@ public class MappedExpressionUtils {
                     .build());
   }
 
+  /** Assigns placeholders to all parts of the projected paths. */
+  public static <T> Optional<ResolvedProjection> prepareProjection(
+      LiveMappingDescription<T> liveMappingDescription,
+      List<Path<T>> projection,
+      ConsecutiveIdGenerator idGenerator,
+      Map<String, String> shortCodeAccumulator) {
+
+    if (projection == null || projection.isEmpty()) return Optional.empty();
+
+    Set<String> parts =
+        projection.stream()
+            .map(Path::getPartsName)
+            .flatMap(Collection::stream)
+            .collect(Collectors.toSet());
+
+    projection.forEach(
+        it -> liveMappingDescription.resolvePlaceholders(it, idGenerator, shortCodeAccumulator));
+
+    String expression =
+        projection.stream()
+            .map(it -> it.serializeAsPartExpression(shortCodeAccumulator))
+            .distinct()
+            .collect(Collectors.joining(", "));
+
+    Map<String, String> attributes =
+        shortCodeAccumulator.entrySet().stream()
+            .filter(it -> parts.contains(it.getKey()))
+            .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
+
+    return Optional.of(
+        ResolvedProjection.builder()
+            .expression(expression)
+            .attributes(attributes)
+            .build());
+  }
+
+  /**
+   * Items of all pages, decoded a page at a time while the stream is consumed. A page is requested
+   * only when the stream reaches it, so none is fetched after {@code maxItems} items.
+   */
+  public static <T> Stream<T> lazyItems(
+      Stream<List<Map<String, AttributeValue>>> pages,
+      Function<List<Map<String, AttributeValue>>, List<T>> decoder,
+      long maxItems) {
+    return pages.flatMap(page -> decoder.apply(page).stream()).limit(maxItems);
+  }
+
+  @Value
+  @Builder
+  public static class ResolvedProjection {
+    String expression;
+    Map<String, String> attributes;
+  }
+
   @Value
   @Builder
   public static class ResolvedExpression<T> {
@@ -1,30 +1,81 @@
 package io.github.rczyzewski.guacamole.ddb;
 
+import static io.github.rczyzewski.guacamole.ddb.MappedExpressionUtils.lazyItems;
 import static io.github.rczyzewski.guacamole.ddb.MappedExpressionUtils.prepare;
+import static io.github.rczyzewski.guacamole.ddb.MappedExpressionUtils.prepareProjection;
 
 import io.github.rczyzewski.guacamole.ddb.mapper.ConsecutiveIdGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
 import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
 import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.Metrics;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
+import io.github.rczyzewski.guacamole.ddb.path.Path;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.With;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
-import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryIterable;
 
 @AllArgsConstructor
 public class MappedQueryExpression<T, G> {
   private final G generator;
-  private final String index;
+  @Getter(AccessLevel.PACKAGE) private final String index;
 
-  @With private final String tableName;
-  @With private final LogicalExpression<T> condition;
+  @Getter(AccessLevel.PACKAGE) @With private final String tableName;
+  @Getter(AccessLevel.PACKAGE) @With private final LogicalExpression<T> condition;
 
   @With private final LiveMappingDescription<T> liveMappingDescription;
-  private final LogicalExpression<T> keyCondition;
+  @Getter(AccessLevel.PACKAGE) private final LogicalExpression<T> keyCondition;
+  @With private final List<Path<T>> projection;
+
+  public MappedQueryExpression(
+      G generator,
+      String index,
+      String tableName,
+      LogicalExpression<T> condition,
+      LiveMappingDescription<T> liveMappingDescription,
+      LogicalExpression<T> keyCondition) {
+    this(
+        generator,
+        index,
+        tableName,
+        condition,
+        liveMappingDescription,
+        keyCondition,
+        Collections.emptyList());
+  }
+
+  /** Fetch only the given attributes, the rest of the entity stays unset. */
+  @SafeVarargs
+  public final MappedQueryExpression<T, G> project(Path<T>... paths) {
+    return this.withProjection(Arrays.asList(paths));
+  }
+
+  /** Decoder matching the projection of this query. */
+  public Function<Map<String, AttributeValue>, T> decoder() {
+    return projection.isEmpty()
+        ? liveMappingDescription::transform
+        : liveMappingDescription.projectedDecoder(
+            projection.stream()
+                .map(Path::getRootAttribute)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+  }
+
+  /** Decoder of a whole page of this query, measured as one decoding batch. */
+  public Function<List<Map<String, AttributeValue>>, List<T>> pageDecoder() {
+    return Metrics.decoding(metricTags(), decoder());
+  }
 
   public MappedQueryExpression<T, G> condition(Function<G, LogicalExpression<T>> condition) {
     LogicalExpression<T> a = condition.apply(this.generator);
@@ -32,6 +83,58 @@ public class MappedQueryExpression<T, G> {
   }
 
   public QueryRequest asQueryRequest() {
+    return Metrics.time(
+        RepositoryMetrics.Stage.PREPARATION,
+        metricTags(),
+        () -> ExpressionLimits.checked(compile().asQueryRequest(this)),
+        it -> 0,
+        it -> ItemSizeCalculator.sizeOf(it.expressionAttributeValues()));
+  }
+
+  private MetricTags metricTags() {
+    return MetricTags.of(tableName, index, "Query");
+  }
+
+  /**
+   * Runs the query, fetching the next page only when the stream reaches it. Items are decoded a
+   * page at a time as they are consumed, so the whole result is never held in memory.
+   */
+  public Stream<T> stream(DynamoDbClient client) {
+    return stream(client, Long.MAX_VALUE);
+  }
+
+  /** As {@link #stream(DynamoDbClient)}, but paging stops after {@code maxItems} items. */
+  public Stream<T> stream(DynamoDbClient client, long maxItems) {
+    return lazyItems(
+        new QueryIterable(client, asQueryRequest()).stream().map(QueryResponse::items),
+        pageDecoder(),
+        maxItems);
+  }
+
+  public Iterator<T> iterator(DynamoDbClient client) {
+    return stream(client).iterator();
+  }
+
+  public Iterator<T> iterator(DynamoDbClient client, long maxItems) {
+    return stream(client, maxItems).iterator();
+  }
+
+  /** Index, key condition, filter and projection, without values. */
+  String shape() {
+    return String.join(
+        " | ",
+        String.valueOf(index),
+        LogicalExpression.shapeOf(keyCondition),
+        String.valueOf(LogicalExpression.shapeOf(condition)),
+        projection.stream().map(Path::serialize).collect(Collectors.joining(", ")));
+  }
+
+  /**
+   * Resolves placeholders and serializes the expression once. The result can build requests for
+   * any query of the same shape (index, key condition, filter and projection), binding only their
+   * values.
+   */
+  public CompiledQueryExpression<T> compile() {
 
     ConsecutiveIdGenerator cid = ConsecutiveIdGenerator.builder().build();
 
@@ -42,40 +145,40 @@ public class MappedQueryExpression<T, G> {
     LogicalExpression<T> preparedKeyCondition =
         keyCondition.prepare(cid, liveMappingDescription, shortCodeAccumulator);
 
+    Optional<MappedExpressionUtils.ResolvedProjection> preparedProjection =
+        prepareProjection(liveMappingDescription, projection, cid, shortCodeAccumulator);
+
     Map<String, String> attributesFromFilteringCondition =
         preparedConditionExpression
             .map(MappedExpressionUtils.ResolvedExpression::getAttributes)
             .orElse(Collections.emptyMap());
 
     Map<String, String> allAttributesNames =
-        Stream.of(attributesFromFilteringCondition, preparedKeyCondition.getAttributesMap())
+        Stream.of(
+                attributesFromFilteringCondition,
+                preparedKeyCondition.getAttributesMap(),
+                preparedProjection
+                    .map(MappedExpressionUtils.ResolvedProjection::getAttributes)
+                    .orElse(Collections.emptyMap()))
             .map(Map::entrySet)
             .flatMap(Collection::stream)
             .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a));
 
-    Map<String, AttributeValue> valuesFilterCondition =
-        preparedConditionExpression
-            .map(MappedExpressionUtils.ResolvedExpression::getValues)
-            .orElse(Collections.emptyMap());
+    List<String> valueCodes = new ArrayList<>();
+    preparedConditionExpression
+        .map(MappedExpressionUtils.ResolvedExpression::getExpression)
+        .ifPresent(it -> it.collectValues((code, value) -> valueCodes.add(code)));
+    preparedKeyCondition.collectValues((code, value) -> valueCodes.add(code));
 
-    Map<String, AttributeValue> allAttributesValues =
-        Stream.of(valuesFilterCondition, preparedKeyCondition.getValuesMap())
-            .map(Map::entrySet)
-            .flatMap(Collection::stream)
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a));
-
-    return QueryRequest.builder()
-        .expressionAttributeValues(allAttributesValues)
-        .indexName(index)
-        .keyConditionExpression(preparedKeyCondition.serialize())
-        .expressionAttributeNames(allAttributesNames)
-        .select(Select.ALL_ATTRIBUTES)
-        .filterExpression(
-            preparedConditionExpression
-                .map(MappedExpressionUtils.ResolvedExpression::getExpression)
-                .map(LogicalExpression::serialize)
-                .orElse(null))
-        .tableName(tableName)
-        .build();
+    return new CompiledQueryExpression<>(
+        index,
+        preparedKeyCondition.serialize(),
+        preparedConditionExpression
+            .map(MappedExpressionUtils.ResolvedExpression::getExpression)
+            .map(LogicalExpression::serialize)
+            .orElse(null),
+        preparedProjection.map(MappedExpressionUtils.ResolvedProjection::getExpression).orElse(null),
+        new ExpressionTemplate(allAttributesNames, valueCodes),
+        shape());
   }
 }
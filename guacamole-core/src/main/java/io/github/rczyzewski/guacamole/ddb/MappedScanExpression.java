@@ -1,27 +1,115 @@
 package io.github.rczyzewski.guacamole.ddb;
 
+import static io.github.rczyzewski.guacamole.ddb.MappedExpressionUtils.lazyItems;
 import static io.github.rczyzewski.guacamole.ddb.MappedExpressionUtils.prepare;
+import static io.github.rczyzewski.guacamole.ddb.MappedExpressionUtils.prepareProjection;
 
 import io.github.rczyzewski.guacamole.ddb.mapper.ConsecutiveIdGenerator;
 import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
 import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
 import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.Metrics;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
+import io.github.rczyzewski.guacamole.ddb.path.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.With;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanIterable;
 
 @AllArgsConstructor
 public class MappedScanExpression<T, G extends ExpressionGenerator<T>> {
   private final G generator;
-  private final String tableName;
-  @With private final LogicalExpression<T> condition;
+  @Getter(AccessLevel.PACKAGE) private final String tableName;
+  @Getter(AccessLevel.PACKAGE) @With private final LogicalExpression<T> condition;
   private final LiveMappingDescription<T> liveMappingDescription;
+  @With private final List<Path<T>> projection;
+  @Getter(AccessLevel.PACKAGE) private final Integer segment;
+  @Getter(AccessLevel.PACKAGE) private final Integer totalSegments;
+
+  public MappedScanExpression(
+      G generator,
+      String tableName,
+      LogicalExpression<T> condition,
+      LiveMappingDescription<T> liveMappingDescription) {
+    this(generator, tableName, condition, liveMappingDescription, Collections.emptyList());
+  }
+
+  public MappedScanExpression(
+      G generator,
+      String tableName,
+      LogicalExpression<T> condition,
+      LiveMappingDescription<T> liveMappingDescription,
+      List<Path<T>> projection) {
+    this(generator, tableName, condition, liveMappingDescription, projection, null, null);
+  }
+
+  /** Reads only one of {@code totalSegments} parts of the table. */
+  public MappedScanExpression<T, G> segment(int segment, int totalSegments) {
+    ParallelScan.checkSegments(totalSegments);
+    if (segment < 0 || segment >= totalSegments) {
+      throw new IllegalArgumentException(
+          String.format("Segment %d is not in [0, %d)", segment, totalSegments));
+    }
+    return new MappedScanExpression<>(
+        generator,
+        tableName,
+        condition,
+        liveMappingDescription,
+        projection,
+        segment,
+        totalSegments);
+  }
+
+  /**
+   * Splits the scan into {@code totalSegments} segments, read concurrently on the executor. The
+   * number of segments read at the same time is bounded by the threads of the executor.
+   */
+  public ParallelScan<T> parallel(DynamoDbClient client, int totalSegments, Executor executor) {
+    ParallelScan.checkSegments(totalSegments);
+    return new ParallelScan<>(this, client, totalSegments, executor);
+  }
+
+  /** Fetch only the given attributes, the rest of the entity stays unset. */
+  @SafeVarargs
+  public final MappedScanExpression<T, G> project(Path<T>... paths) {
+    return this.withProjection(Arrays.asList(paths));
+  }
+
+  /** Decoder matching the projection of this scan. */
+  public Function<Map<String, AttributeValue>, T> decoder() {
+    return projection.isEmpty()
+        ? liveMappingDescription::transform
+        : liveMappingDescription.projectedDecoder(
+            projection.stream()
+                .map(Path::getRootAttribute)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+  }
+
+  /** Decoder of a whole page of this scan, measured as one decoding batch. */
+  public Function<List<Map<String, AttributeValue>>, List<T>> pageDecoder() {
+    return Metrics.decoding(metricTags(), decoder());
+  }
 
   public MappedScanExpression<T, G> condition(Function<G, LogicalExpression<T>> condition) {
     LogicalExpression<T> a = condition.apply(this.generator);
@@ -29,6 +117,55 @@ public class MappedScanExpression<T, G extends ExpressionGenerator<T>> {
   }
 
   public ScanRequest asScanItemRequest() {
+    return Metrics.time(
+        RepositoryMetrics.Stage.PREPARATION,
+        metricTags(),
+        () -> ExpressionLimits.checked(compile().asScanItemRequest(this)),
+        it -> 0,
+        it -> ItemSizeCalculator.sizeOf(it.expressionAttributeValues()));
+  }
+
+  private MetricTags metricTags() {
+    return MetricTags.of(tableName, null, "Scan");
+  }
+
+  /**
+   * Runs the scan, fetching the next page only when the stream reaches it. Items are decoded a
+   * page at a time as they are consumed, so the whole result is never held in memory.
+   */
+  public Stream<T> stream(DynamoDbClient client) {
+    return stream(client, Long.MAX_VALUE);
+  }
+
+  /** As {@link #stream(DynamoDbClient)}, but paging stops after {@code maxItems} items. */
+  public Stream<T> stream(DynamoDbClient client, long maxItems) {
+    return lazyItems(
+        new ScanIterable(client, asScanItemRequest()).stream().map(ScanResponse::items),
+        pageDecoder(),
+        maxItems);
+  }
+
+  public Iterator<T> iterator(DynamoDbClient client) {
+    return stream(client).iterator();
+  }
+
+  public Iterator<T> iterator(DynamoDbClient client, long maxItems) {
+    return stream(client, maxItems).iterator();
+  }
+
+  /** Filter and projection, without values. */
+  String shape() {
+    return String.join(
+        " | ",
+        String.valueOf(LogicalExpression.shapeOf(condition)),
+        projection.stream().map(Path::serialize).collect(Collectors.joining(", ")));
+  }
+
+  /**
+   * Resolves placeholders and serializes the expression once. The result can build requests for
+   * any scan of the same shape (filter and projection), binding only their values.
+   */
+  public CompiledScanExpression<T> compile() {
 
     ConsecutiveIdGenerator cid = ConsecutiveIdGenerator.builder().build();
 
@@ -36,25 +173,29 @@ public class MappedScanExpression<T, G extends ExpressionGenerator<T>> {
     Optional<MappedExpressionUtils.ResolvedExpression<T>> preparedConditionExpression =
         prepare(liveMappingDescription, condition, cid, shortCodeAccumulator);
 
-    Map<String, String> allAttributeNames =
+    Optional<MappedExpressionUtils.ResolvedProjection> preparedProjection =
+        prepareProjection(liveMappingDescription, projection, cid, shortCodeAccumulator);
+
+    Map<String, String> allAttributeNames = new HashMap<>();
+    preparedConditionExpression
+        .map(MappedExpressionUtils.ResolvedExpression::getAttributes)
+        .ifPresent(allAttributeNames::putAll);
+    preparedProjection
+        .map(MappedExpressionUtils.ResolvedProjection::getAttributes)
+        .ifPresent(allAttributeNames::putAll);
+
+    List<String> valueCodes = new ArrayList<>();
+    preparedConditionExpression
+        .map(MappedExpressionUtils.ResolvedExpression::getExpression)
+        .ifPresent(it -> it.collectValues((code, value) -> valueCodes.add(code)));
+
+    return new CompiledScanExpression<>(
         preparedConditionExpression
-            .map(MappedExpressionUtils.ResolvedExpression::getAttributes)
-            .orElse(Collections.emptyMap());
-
-    return ScanRequest.builder()
-        .expressionAttributeValues(
-            preparedConditionExpression
-                .map(MappedExpressionUtils.ResolvedExpression::getValues)
-                .orElse(null))
-        .expressionAttributeNames(
-            preparedConditionExpression.map(it -> allAttributeNames).orElse(null))
-        .select(Select.ALL_ATTRIBUTES)
-        .filterExpression(
-            preparedConditionExpression
-                .map(MappedExpressionUtils.ResolvedExpression::getExpression)
-                .map(LogicalExpression::serialize)
-                .orElse(null))
-        .tableName(tableName)
-        .build();
+            .map(MappedExpressionUtils.ResolvedExpression::getExpression)
+            .map(LogicalExpression::serialize)
+            .orElse(null),
+        preparedProjection.map(MappedExpressionUtils.ResolvedProjection::getExpression).orElse(null),
+        new ExpressionTemplate(allAttributeNames, valueCodes),
+        shape());
   }
 }
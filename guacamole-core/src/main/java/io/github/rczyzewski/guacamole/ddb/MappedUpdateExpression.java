@@ -3,9 +3,14 @@ package io.github.rczyzewski.guacamole.ddb;
 import static io.github.rczyzewski.guacamole.ddb.MappedExpressionUtils.prepare;
 
 import io.github.rczyzewski.guacamole.ddb.mapper.*;
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.Metrics;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
 import io.github.rczyzewski.guacamole.ddb.path.Path;
 import io.github.rczyzewski.guacamole.ddb.path.TypedPath;
+import java.math.BigDecimal;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -19,11 +24,12 @@ import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
 
   private final G generator;
-  private final String tableName;
-  private final Map<String, AttributeValue> keys;
+  @Getter(AccessLevel.PACKAGE) private final String tableName;
+  @Getter(AccessLevel.PACKAGE) private final Map<String, AttributeValue> keys;
 
-  @With private final LogicalExpression<T> condition;
+  @Getter(AccessLevel.PACKAGE) @With private final LogicalExpression<T> condition;
 
+  @Getter(AccessLevel.PACKAGE)
   @Builder.Default
   private final List<Statement<T>> extraSetAddRemoveExpressions = new ArrayList<>();
 
@@ -81,6 +87,8 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
     Map<String, String> getAttributes();
 
     Map<String, AttributeValue> getValues();
+
+    void collectValues(BiConsumer<String, AttributeValue> sink);
   }
 
   @Builder
@@ -110,6 +118,10 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
       return Collections.emptyMap();
     }
 
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      // REMOVE has no values
+    }
+
     public String serialize() {
       return path.serialize();
     }
@@ -149,6 +161,10 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
       return value.getValues();
     }
 
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      value.collectValues(sink);
+    }
+
     public String serialize() {
       return path.serialize() + " " + value.serialize();
     }
@@ -206,11 +222,99 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
     public Map<String, AttributeValue> getValues() {
       return value.getValues();
     }
+
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      value.collectValues(sink);
+    }
   }
 
   private final LiveMappingDescription<T> liveMappingDescription;
 
   public UpdateItemRequest asUpdateItemRequest() {
+    return Metrics.time(
+        RepositoryMetrics.Stage.PREPARATION,
+        MetricTags.of(tableName, null, "UpdateItem"),
+        () -> ExpressionLimits.checked(compile().asUpdateItemRequest(this)),
+        it -> 1,
+        it ->
+            ItemSizeCalculator.sizeOf(it.key())
+                + ItemSizeCalculator.sizeOf(it.expressionAttributeValues()));
+  }
+
+  /**
+   * Requests with the effect of this update when sent one after another. There is just one when
+   * the update is within the {@link ExpressionLimits}, otherwise the statements are split between
+   * as many as needed; see {@link #split()}.
+   */
+  public List<UpdateItemRequest> asUpdateItemRequests() {
+    return split().stream()
+        .map(MappedUpdateExpression::asUpdateItemRequest)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Splits an update over the {@link ExpressionLimits}, e.g. one setting every attribute of a wide
+   * entity, into updates within them, to be executed in order. Only the first update has the
+   * condition, and they are not atomic: a reader may see the item updated in part.
+   *
+   * @throws ExpressionLimits.LimitExceededException when a single statement is over the limits, or
+   *     the updated item would be larger than DynamoDB allows
+   * @throws IllegalArgumentException when a statement reads an attribute written by an update
+   *     executed before it, which would change its result
+   */
+  public List<MappedUpdateExpression<T, G>> split() {
+    ExpressionLimits.Analysis whole = ExpressionLimits.analyze(compile().asUpdateItemRequest(this));
+    if (whole.violations().isEmpty()) return Collections.singletonList(this);
+    // splitting makes the expressions shorter, not the item smaller
+    if (whole.getItemBytes() > ItemSizeCalculator.MAX_ITEM_SIZE) whole.check();
+
+    // within a single update the last statement on a path wins
+    Map<String, Statement<T>> statements = new LinkedHashMap<>();
+    extraSetAddRemoveExpressions.forEach(it -> statements.put(pathOf(it), it));
+    List<MappedUpdateExpression<T, G>> parts =
+        splitFitting(new ArrayList<>(statements.values()), condition);
+
+    Set<String> written = new HashSet<>();
+    for (MappedUpdateExpression<T, G> part : parts) {
+      for (Statement<T> statement : part.extraSetAddRemoveExpressions) {
+        Optional<String> read = readPaths(statement).filter(written::contains).findAny();
+        if (read.isPresent()) {
+          throw new IllegalArgumentException(
+              "The update cannot be split, " + read.get() + " is read after it is written");
+        }
+      }
+      part.extraSetAddRemoveExpressions.forEach(it -> written.add(pathOf(it)));
+    }
+    return parts;
+  }
+
+  /** Halves the statements until every part is within the limits. */
+  private List<MappedUpdateExpression<T, G>> splitFitting(
+      List<Statement<T>> statements, LogicalExpression<T> partCondition) {
+    MappedUpdateExpression<T, G> part =
+        this.toBuilder()
+            .extraSetAddRemoveExpressions(new ArrayList<>(statements))
+            .condition(partCondition)
+            .build();
+    ExpressionLimits.Analysis analysis =
+        ExpressionLimits.analyze(part.compile().asUpdateItemRequest(part));
+    if (statements.size() <= 1 || analysis.violations().isEmpty()) {
+      analysis.check();
+      return Collections.singletonList(part);
+    }
+    int half = statements.size() / 2;
+    List<MappedUpdateExpression<T, G>> parts =
+        new ArrayList<>(splitFitting(statements.subList(0, half), partCondition));
+    parts.addAll(splitFitting(statements.subList(half, statements.size()), null));
+    return parts;
+  }
+
+  /**
+   * Resolves placeholders and serializes the expression once. The result can build requests for
+   * any update of the same shape (same statements and condition), binding only their values.
+   */
+  public CompiledUpdateExpression<T> compile() {
     ConsecutiveIdGenerator idGenerator = ConsecutiveIdGenerator.builder().base("ABCDEFGH").build();
 
     Map<String, String> shortCodeAccumulator = new HashMap<>();
@@ -230,11 +334,16 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
                         shortCodeValueAccumulator))
             .collect(Collectors.toList());
 
-    TreeMap<String, Statement<T>> deduplicatedStatements = new TreeMap<>();
-    temporaryStatements.forEach(it -> deduplicatedStatements.put(it.getPath().serialize(), it));
+    TreeMap<String, Integer> deduplicatedStatements = new TreeMap<>();
+    for (int i = 0; i < temporaryStatements.size(); i++) {
+      deduplicatedStatements.put(temporaryStatements.get(i).getPath().serialize(), i);
+    }
+    List<Integer> usedStatements = new ArrayList<>(deduplicatedStatements.values());
+    List<Statement<T>> statements =
+        usedStatements.stream().map(temporaryStatements::get).collect(Collectors.toList());
 
     Map<String, String> attributes =
-        deduplicatedStatements.values().stream()
+        statements.stream()
             .map(Statement::getAttributes)
             .map(Map::entrySet)
             .flatMap(Collection::stream)
@@ -251,59 +360,174 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
             .flatMap(Collection::stream)
             .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a));
 
-    Map<String, AttributeValue> valuesFromStatements =
-        deduplicatedStatements.values().stream()
-            .map(Statement::getValues)
-            .map(Map::entrySet)
-            .flatMap(Collection::stream)
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a));
-
-    Map<String, AttributeValue> allValuesFromCondition =
-        preparedConditionExpression
-            .map(MappedExpressionUtils.ResolvedExpression::getValues)
-            .orElse(Collections.emptyMap());
-
-    Map<String, AttributeValue> allValues =
-        Stream.of(valuesFromStatements, allValuesFromCondition)
-            .map(Map::entrySet)
-            .flatMap(Collection::stream)
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    List<String> valueCodes = new ArrayList<>();
+    statements.forEach(it -> it.collectValues((code, value) -> valueCodes.add(code)));
+    preparedConditionExpression
+        .map(MappedExpressionUtils.ResolvedExpression::getExpression)
+        .ifPresent(it -> it.collectValues((code, value) -> valueCodes.add(code)));
 
     String setExpr =
-        deduplicatedStatements.values().stream()
+        statements.stream()
             .filter(UpdateStatement.class::isInstance)
             .map(Statement::serialize)
             .collect(Collectors.joining(" , "));
 
     String addExpr =
-        deduplicatedStatements.values().stream()
+        statements.stream()
             .filter(AddStatement.class::isInstance)
             .map(Statement::serialize)
             .collect(Collectors.joining(" , "));
 
     String removeExpr =
-        deduplicatedStatements.values().stream()
+        statements.stream()
             .filter(RemoveStatement.class::isInstance)
             .map(Statement::serialize)
             .collect(Collectors.joining(" , "));
 
-    return UpdateItemRequest.builder()
-        .key(keys)
-        .expressionAttributeValues(allValues.isEmpty() ? null : allValues)
-        .updateExpression(
-            serializeEpr("SET", setExpr)
-                + " "
-                + serializeEpr("ADD", addExpr)
-                + " "
-                + serializeEpr("REMOVE", removeExpr))
-        .expressionAttributeNames(totalAttributesAll)
-        .conditionExpression(
-            preparedConditionExpression
-                .map(MappedExpressionUtils.ResolvedExpression::getExpression)
-                .map(LogicalExpression::serialize)
-                .orElse(null))
-        .tableName(tableName)
-        .build();
+    return new CompiledUpdateExpression<>(
+        serializeEpr("SET", setExpr)
+            + " "
+            + serializeEpr("ADD", addExpr)
+            + " "
+            + serializeEpr("REMOVE", removeExpr),
+        preparedConditionExpression
+            .map(MappedExpressionUtils.ResolvedExpression::getExpression)
+            .map(LogicalExpression::serialize)
+            .orElse(null),
+        new ExpressionTemplate(totalAttributesAll, valueCodes),
+        shapeOf(extraSetAddRemoveExpressions),
+        LogicalExpression.shapeOf(condition),
+        usedStatements);
+  }
+
+  /** Kind, path and right hand side of every statement, with {@code ?} in place of values. */
+  static <T> List<String> shapeOf(List<Statement<T>> statements) {
+    return statements.stream()
+        .map(it -> it.getClass().getSimpleName() + " " + pathOf(it) + valueShapeOf(it))
+        .collect(Collectors.toList());
+  }
+
+  private static String valueShapeOf(Statement<?> statement) {
+    if (statement instanceof AddStatement) return " ?";
+    if (!(statement instanceof UpdateStatement)) return "";
+    UpdateStatement<?> update = (UpdateStatement<?>) statement;
+    String operator = update.isOverride() ? " = " : " = if_not_exists ";
+    RczSetExpression<?> value = update.getValue();
+    if (value instanceof RczPathExpression) {
+      return operator + ((RczPathExpression<?>) value).getPath().serialize();
+    }
+    if (value instanceof RczMathExpression) {
+      RczMathExpression<?> math = (RczMathExpression<?>) value;
+      return String.format(
+          "%s%s %s %s",
+          operator, math.a.getPath().serialize(), math.operation, math.b.getPath().serialize());
+    }
+    return operator + "?";
+  }
+
+  /**
+   * Combines this update with one that is executed right after it into a single update with the
+   * same effect. Statements of the later update replace earlier ones on the same path, and ADDs
+   * are summed up or folded into an earlier SET of a number.
+   *
+   * <p>The result is empty when the updates cannot be expressed as one: when they have conditions,
+   * when an ADD follows a SET that is not a plain number, when the later update reads an attribute
+   * written by this one, or when the merged statements would touch overlapping paths.
+   *
+   * @throws IllegalArgumentException when the updates target different items
+   */
+  public Optional<MappedUpdateExpression<T, G>> merge(MappedUpdateExpression<T, ?> later) {
+    if (!Objects.equals(tableName, later.tableName) || !Objects.equals(keys, later.keys)) {
+      throw new IllegalArgumentException("Only updates of the same item can be merged");
+    }
+    if (condition != null || later.condition != null) return Optional.empty();
+
+    Map<String, Statement<T>> merged = new LinkedHashMap<>();
+    extraSetAddRemoveExpressions.forEach(it -> merged.put(pathOf(it), it));
+    Set<String> written = new HashSet<>(merged.keySet());
+
+    // within a single update the last statement on a path wins
+    Map<String, Statement<T>> laterStatements = new LinkedHashMap<>();
+    later.extraSetAddRemoveExpressions.forEach(it -> laterStatements.put(pathOf(it), it));
+
+    for (Statement<T> statement : laterStatements.values()) {
+      if (readPaths(statement).anyMatch(written::contains)) return Optional.empty();
+      String path = pathOf(statement);
+      Statement<T> combined = combine(merged.get(path), statement);
+      if (combined == null) return Optional.empty();
+      merged.put(path, combined);
+    }
+
+    List<String> paths = new ArrayList<>(merged.keySet());
+    for (String a : paths) {
+      for (String b : paths) {
+        if (b.length() > a.length()
+            && b.startsWith(a)
+            && (b.charAt(a.length()) == '.' || b.charAt(a.length()) == '[')) {
+          return Optional.empty();
+        }
+      }
+    }
+
+    return Optional.of(
+        this.toBuilder().extraSetAddRemoveExpressions(new ArrayList<>(merged.values())).build());
+  }
+
+  /** The statement with the effect of executing {@code earlier} and then {@code later}. */
+  private static <T> Statement<T> combine(Statement<T> earlier, Statement<T> later) {
+    if (earlier == null || later instanceof RemoveStatement) return later;
+
+    if (later instanceof UpdateStatement) {
+      UpdateStatement<T> set = (UpdateStatement<T>) later;
+      if (set.isOverride()) return later;
+      // if_not_exists: the attribute exists after anything but REMOVE
+      return earlier instanceof RemoveStatement ? set.withOverride(true) : earlier;
+    }
+
+    AddStatement<T> add = (AddStatement<T>) later;
+    if (!isNumber(add.getValue())) return null;
+    if (earlier instanceof RemoveStatement) {
+      return UpdateStatement.<T>builder().path(add.getPath()).value(add.getValue()).build();
+    }
+    if (earlier instanceof AddStatement && isNumber(((AddStatement<T>) earlier).getValue())) {
+      return add.withValue(sum(((AddStatement<T>) earlier).getValue(), add.getValue()));
+    }
+    if (earlier instanceof UpdateStatement) {
+      UpdateStatement<T> set = (UpdateStatement<T>) earlier;
+      if (set.isOverride() && isNumber(set.getValue())) {
+        return set.withValue(sum((RczValueExpression<T>) set.getValue(), add.getValue()));
+      }
+    }
+    return null;
+  }
+
+  private static boolean isNumber(RczSetExpression<?> expression) {
+    return expression instanceof RczValueExpression
+        && ((RczValueExpression<?>) expression).attributeValue.n() != null;
+  }
+
+  private static <T> RczValueExpression<T> sum(RczValueExpression<T> a, RczValueExpression<T> b) {
+    BigDecimal result =
+        new BigDecimal(a.attributeValue.n()).add(new BigDecimal(b.attributeValue.n()));
+    return new RczValueExpression<>(AttributeValue.fromN(result.toPlainString()));
+  }
+
+  private static String pathOf(Statement<?> statement) {
+    return statement.getPath().getPath().serialize();
+  }
+
+  /** Attributes read by the right hand side of the statement. */
+  private static Stream<String> readPaths(Statement<?> statement) {
+    if (!(statement instanceof UpdateStatement)) return Stream.empty();
+    RczSetExpression<?> value = ((UpdateStatement<?>) statement).getValue();
+    if (value instanceof RczPathExpression) {
+      return Stream.of(((RczPathExpression<?>) value).getPath().serialize());
+    }
+    if (value instanceof RczMathExpression) {
+      RczMathExpression<?> math = (RczMathExpression<?>) value;
+      return Stream.of(math.a.getPath().serialize(), math.b.getPath().serialize());
+    }
+    return Stream.empty();
   }
 
   public Update asTransactionUpdate() {
@@ -359,6 +583,8 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
 
     Map<String, String> getAttributes();
 
+    void collectValues(BiConsumer<String, AttributeValue> sink);
+
     RczSetExpression<T> prepare(
         ConsecutiveIdGenerator idGenerator,
         LiveMappingDescription<T> liveMappingDescription,
@@ -383,6 +609,11 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
       return Collections.emptyMap();
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      sink.accept(shortCodeValue, attributeValue);
+    }
+
     @Override
     public String serialize() {
       return shortCodeValue;
@@ -422,6 +653,11 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
       return Collections.emptyMap();
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      // a path has no values
+    }
+
     @Override
     public RczPathExpression<T> prepare(
         ConsecutiveIdGenerator idGenerator,
@@ -429,8 +665,7 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
         Map<String, String> shortCodeAccumulator,
         Map<String, AttributeValue> shortCodeValueAccumulator) {
 
-      path.getPartsName()
-          .forEach(it -> shortCodeAccumulator.computeIfAbsent(it, ignored -> idGenerator.get()));
+      liveMappingDescription.resolvePlaceholders(path, idGenerator, shortCodeAccumulator);
 
       return this.withShortCodeAccumulator(shortCodeAccumulator);
     }
@@ -487,6 +722,12 @@ public class MappedUpdateExpression<T, G extends ExpressionGenerator<T>> {
           .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (tmp1, tmp2) -> tmp1));
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      a.collectValues(sink);
+      b.collectValues(sink);
+    }
+
     @Override
     public Map<String, AttributeValue> getValues() {
       return Stream.of(a, b)
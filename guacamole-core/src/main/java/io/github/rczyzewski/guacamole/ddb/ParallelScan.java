@@ -0,0 +1,232 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.Getter;
+import lombok.Value;
+import lombok.experimental.StandardException;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanIterable;
+
+/**
+ * Scan split into segments that are read at the same time, created by {@link
+ * MappedScanExpression#parallel}. Every segment pages through its part of the table on a thread of
+ * the executor and decodes its items there. The results are merged into one sink or stream, in no
+ * particular order.
+ *
+ * <p>An instance runs once; {@link #progress()} can be polled from any thread while it runs.
+ */
+@Slf4j
+public class ParallelScan<T> {
+
+  /** Upper bound of {@code TotalSegments} accepted by DynamoDB. */
+  static final int MAX_SEGMENTS = 1_000_000;
+
+  private static final int QUEUE_CAPACITY = 1024;
+  private static final long QUEUE_TIMEOUT_MS = 100;
+  private static final Object END_OF_SEGMENT = new Object();
+
+  private final MappedScanExpression<T, ?> scan;
+  private final DynamoDbClient client;
+  @Getter private final int totalSegments;
+  private final Executor executor;
+
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private final AtomicLongArray pages;
+  private final AtomicLongArray items;
+  private final AtomicIntegerArray finished;
+
+  ParallelScan(
+      MappedScanExpression<T, ?> scan, DynamoDbClient client, int totalSegments, Executor executor) {
+    this.scan = scan;
+    this.client = client;
+    this.totalSegments = totalSegments;
+    this.executor = executor;
+    this.pages = new AtomicLongArray(totalSegments);
+    this.items = new AtomicLongArray(totalSegments);
+    this.finished = new AtomicIntegerArray(totalSegments);
+  }
+
+  static void checkSegments(int totalSegments) {
+    if (totalSegments < 1 || totalSegments > MAX_SEGMENTS) {
+      throw new IllegalArgumentException(
+          String.format("Total segments must be in [1, %d], got %d", MAX_SEGMENTS, totalSegments));
+    }
+  }
+
+  /**
+   * Passes every item to the sink and returns when all segments are read. The sink is called
+   * from several threads at the same time.
+   *
+   * @throws ScanFailedException when reading any of the segments failed; the remaining segments
+   *     stop at their next page
+   */
+  public void forEach(Consumer<? super T> sink) {
+    CompletableFuture<?>[] segments =
+        start().mapToObj(segment -> runSegment(segment, sink)).toArray(CompletableFuture[]::new);
+    try {
+      CompletableFuture.allOf(segments).join();
+    } catch (CompletionException e) {
+      throw new ScanFailedException("Parallel scan failed", e.getCause());
+    }
+  }
+
+  /**
+   * Items of all segments as a single stream. Segments wait while the consumer lags more than a
+   * bounded number of items behind them. A stream that is not read to the end must be closed, so
+   * the segments stop reading.
+   */
+  public Stream<T> stream() {
+    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    start()
+        .forEach(
+            segment ->
+                runSegment(segment, item -> offer(queue, item))
+                    .thenRun(() -> offer(queue, END_OF_SEGMENT)));
+
+    Iterator<T> iterator = new MergingIterator(queue);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+        .onClose(() -> cancelled.set(true));
+  }
+
+  /** Snapshot of pages and items read so far, one entry per segment. */
+  public List<SegmentProgress> progress() {
+    return IntStream.range(0, totalSegments)
+        .mapToObj(
+            it -> new SegmentProgress(it, pages.get(it), items.get(it), finished.get(it) == 1))
+        .collect(Collectors.toList());
+  }
+
+  private IntStream start() {
+    if (!started.compareAndSet(false, true)) {
+      throw new IllegalStateException("Parallel scan can be executed only once");
+    }
+    return IntStream.range(0, totalSegments);
+  }
+
+  private CompletableFuture<Void> runSegment(int segment, Consumer<? super T> sink) {
+    return CompletableFuture.runAsync(() -> readSegment(segment, sink), executor)
+        .whenComplete(
+            (ignored, error) -> {
+              if (error != null) {
+                failure.compareAndSet(
+                    null, error instanceof CompletionException ? error.getCause() : error);
+                cancelled.set(true);
+              }
+            });
+  }
+
+  private void readSegment(int segment, Consumer<? super T> sink) {
+    ScanRequest request = scan.segment(segment, totalSegments).asScanItemRequest();
+    Function<List<Map<String, AttributeValue>>, List<T>> decoder = scan.pageDecoder();
+
+    for (ScanResponse page : new ScanIterable(client, request)) {
+      for (T item : decoder.apply(page.items())) {
+        if (cancelled.get()) return;
+        sink.accept(item);
+      }
+      pages.incrementAndGet(segment);
+      items.addAndGet(segment, page.items().size());
+      if (cancelled.get()) return;
+    }
+    finished.set(segment, 1);
+    log.debug("segment {}/{} finished after {} items", segment, totalSegments, items.get(segment));
+  }
+
+  private void offer(BlockingQueue<Object> queue, Object element) {
+    try {
+      while (!cancelled.get()) {
+        if (queue.offer(element, QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancelled.set(true);
+    }
+  }
+
+  private class MergingIterator implements Iterator<T> {
+    private final BlockingQueue<Object> queue;
+    private int finishedSegments;
+    private T next;
+
+    MergingIterator(BlockingQueue<Object> queue) {
+      this.queue = queue;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && finishedSegments < totalSegments) {
+        if (failure.get() != null) {
+          throw new ScanFailedException("Parallel scan failed", failure.get());
+        }
+        Object element = poll();
+        if (element == null) continue;
+        if (element == END_OF_SEGMENT) {
+          finishedSegments++;
+        } else {
+          @SuppressWarnings("unchecked")
+          T item = (T) element;
+          next = item;
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      T result = next;
+      next = null;
+      return result;
+    }
+
+    private Object poll() {
+      try {
+        return queue.poll(QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancelled.set(true);
+        throw new ScanFailedException("Interrupted while waiting for the scanned items", e);
+      }
+    }
+  }
+
+  @Value
+  public static class SegmentProgress {
+    int segment;
+    long pages;
+    long items;
+    boolean finished;
+  }
+
+  @StandardException
+  public static class ScanFailedException extends RuntimeException {}
+}
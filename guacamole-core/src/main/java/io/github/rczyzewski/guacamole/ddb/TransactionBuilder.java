@@ -0,0 +1,229 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.Value;
+import lombok.experimental.StandardException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+
+/**
+ * Collects puts, updates, deletes and condition checks of any repositories into {@code
+ * TransactWriteItems} requests. Every action is validated when it is added, so a transaction that
+ * DynamoDB would reject fails before it is sent: an item may appear only once, items must fit the
+ * item size limit and updates must have statements.
+ *
+ * <pre>{@code
+ * new TransactionBuilder()
+ *     .put(orders, order)
+ *     .update(customers.update(customer).add(path.selectOrders(), 1))
+ *     .conditionCheck(stock.delete(item).condition(it -> it.availableGreater(0)))
+ *     .clientRequestToken(orderId)
+ *     .execute(client);
+ * }</pre>
+ */
+public class TransactionBuilder {
+
+  /** Actions accepted by DynamoDB in a single transaction. */
+  public static final int MAX_ACTIONS = 100;
+
+  /** Aggregate size of the items accepted by DynamoDB in a single transaction. */
+  public static final long MAX_TRANSACTION_SIZE = 4L * 1024 * 1024;
+
+  static final int MAX_TOKEN_LENGTH = 36;
+
+  private final List<Action> actions = new ArrayList<>();
+  private final Set<ItemKey> keys = new HashSet<>();
+  private String clientRequestToken;
+
+  public <T> TransactionBuilder put(BaseRepository<T, ?> repository, T item) {
+    PutItemRequest put = repository.create(item);
+    Map<String, AttributeValue> key = repository.getMapper().exportKeys(item);
+    return add(
+        put.tableName(),
+        key,
+        ItemSizeCalculator.sizeOf(put.item()),
+        TransactWriteItem.builder()
+            .put(
+                Put.builder()
+                    .tableName(put.tableName())
+                    .item(put.item())
+                    .conditionExpression(put.conditionExpression())
+                    .expressionAttributeNames(put.expressionAttributeNames())
+                    .expressionAttributeValues(put.expressionAttributeValues())
+                    .build())
+            .build());
+  }
+
+  public TransactionBuilder update(MappedUpdateExpression<?, ?> update) {
+    Update transactionUpdate = update.asTransactionUpdate();
+    if (transactionUpdate.updateExpression().trim().isEmpty()) {
+      throw new IllegalArgumentException(
+          "Update of " + transactionUpdate.key() + " has no statements");
+    }
+    return add(
+        transactionUpdate.tableName(),
+        transactionUpdate.key(),
+        ItemSizeCalculator.sizeOf(transactionUpdate.key())
+            + valuesSize(transactionUpdate.expressionAttributeValues()),
+        TransactWriteItem.builder().update(transactionUpdate).build());
+  }
+
+  public TransactionBuilder delete(MappedDeleteExpression<?, ?> delete) {
+    Delete transactionDelete = delete.asTransactionDelete();
+    return add(
+        transactionDelete.tableName(),
+        transactionDelete.key(),
+        ItemSizeCalculator.sizeOf(transactionDelete.key()),
+        TransactWriteItem.builder().delete(transactionDelete).build());
+  }
+
+  /** Requires the condition of the given delete to hold, without deleting the item. */
+  public TransactionBuilder conditionCheck(MappedDeleteExpression<?, ?> check) {
+    ConditionCheck conditionCheck = check.asTransactionConditionCheck();
+    return add(
+        conditionCheck.tableName(),
+        conditionCheck.key(),
+        ItemSizeCalculator.sizeOf(conditionCheck.key()),
+        TransactWriteItem.builder().conditionCheck(conditionCheck).build());
+  }
+
+  /**
+   * Makes the transaction idempotent: DynamoDB executes requests with the same token only once
+   * within ten minutes, so a retried request is not applied twice.
+   */
+  public TransactionBuilder clientRequestToken(String token) {
+    if (token != null && (token.isEmpty() || token.length() > MAX_TOKEN_LENGTH)) {
+      throw new IllegalArgumentException(
+          String.format("Client request token must have 1 to %d characters", MAX_TOKEN_LENGTH));
+    }
+    this.clientRequestToken = token;
+    return this;
+  }
+
+  public int size() {
+    return actions.size();
+  }
+
+  /**
+   * All actions as a single, atomic transaction.
+   *
+   * @throws TransactionTooLargeException when the actions exceed the limits of one transaction
+   */
+  public TransactWriteItemsRequest asTransactWriteItemsRequest() {
+    if (actions.isEmpty()) {
+      throw new IllegalStateException("Transaction has no actions");
+    }
+    long size = actions.stream().mapToLong(Action::getSize).sum();
+    if (actions.size() > MAX_ACTIONS || size > MAX_TRANSACTION_SIZE) {
+      throw new TransactionTooLargeException(
+          String.format(
+              "Transaction of %d actions and %d bytes exceeds the limit of %d actions and %d bytes",
+              actions.size(), size, MAX_ACTIONS, MAX_TRANSACTION_SIZE));
+    }
+    return request(actions, clientRequestToken);
+  }
+
+  /**
+   * The actions split into transactions of at most 100 actions and 4 MB, for work that does not
+   * need to be atomic as a whole. With a client request token, every transaction gets its own
+   * token derived from it, so each of them can be retried idempotently.
+   */
+  public List<TransactWriteItemsRequest> asIndependentTransactions() {
+    List<List<Action>> chunks = new ArrayList<>();
+    List<Action> current = new ArrayList<>();
+    long currentSize = 0;
+    for (Action action : actions) {
+      if (current.size() == MAX_ACTIONS || currentSize + action.getSize() > MAX_TRANSACTION_SIZE) {
+        chunks.add(current);
+        current = new ArrayList<>();
+        currentSize = 0;
+      }
+      current.add(action);
+      currentSize += action.getSize();
+    }
+    if (!current.isEmpty()) chunks.add(current);
+
+    List<TransactWriteItemsRequest> requests = new ArrayList<>(chunks.size());
+    for (int i = 0; i < chunks.size(); i++) {
+      requests.add(request(chunks.get(i), chunkToken(i, chunks.size())));
+    }
+    return Collections.unmodifiableList(requests);
+  }
+
+  public TransactWriteItemsResponse execute(DynamoDbClient client) {
+    return client.transactWriteItems(asTransactWriteItemsRequest());
+  }
+
+  public List<TransactWriteItemsResponse> executeIndependently(DynamoDbClient client) {
+    return asIndependentTransactions().stream()
+        .map(client::transactWriteItems)
+        .collect(Collectors.toList());
+  }
+
+  private TransactionBuilder add(
+      String tableName, Map<String, AttributeValue> key, long size, TransactWriteItem item) {
+    if (!keys.add(new ItemKey(tableName, key))) {
+      throw new IllegalArgumentException(
+          String.format("Item %s of table %s appears twice in the transaction", key, tableName));
+    }
+    if (size > ItemSizeCalculator.MAX_ITEM_SIZE) {
+      keys.remove(new ItemKey(tableName, key));
+      throw new IllegalArgumentException(
+          String.format(
+              "Item of table %s has %d bytes, above the limit of %d bytes",
+              tableName, size, ItemSizeCalculator.MAX_ITEM_SIZE));
+    }
+    actions.add(new Action(item, size));
+    return this;
+  }
+
+  private String chunkToken(int chunk, int chunks) {
+    if (clientRequestToken == null || chunks == 1) return clientRequestToken;
+    return UUID.nameUUIDFromBytes(
+            (clientRequestToken + "/" + chunk).getBytes(StandardCharsets.UTF_8))
+        .toString();
+  }
+
+  private static TransactWriteItemsRequest request(List<Action> actions, String token) {
+    return TransactWriteItemsRequest.builder()
+        .transactItems(actions.stream().map(Action::getItem).collect(Collectors.toList()))
+        .clientRequestToken(token)
+        .build();
+  }
+
+  private static long valuesSize(Map<String, AttributeValue> values) {
+    return values == null ? 0 : ItemSizeCalculator.sizeOf(values);
+  }
+
+  @Value
+  private static class ItemKey {
+    String tableName;
+    Map<String, AttributeValue> key;
+  }
+
+  @Value
+  private static class Action {
+    TransactWriteItem item;
+    long size;
+  }
+
+  @StandardException
+  public static class TransactionTooLargeException extends RuntimeException {}
+}
@@ -0,0 +1,240 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Collects updates and writes them later, so that a burst of updates of the same item costs a
+ * single {@code UpdateItem}. Updates of an item are merged with {@link
+ * MappedUpdateExpression#merge} while they wait; when they cannot be merged, the waiting update is
+ * sent first. Pending updates are sent every {@code flushInterval}, or as soon as {@code
+ * maxPendingItems} different items are waiting. Updates of the same item are sent one after
+ * another, in the order they were submitted.
+ *
+ * <p>Updates are sent on a pool of daemon threads owned by the buffer, unless an executor is given,
+ * so neither {@link #submit} nor {@link #flush()} waits for DynamoDB. {@link #close()} sends
+ * everything that is pending, waits for it and shuts down the threads owned by the buffer, so it is
+ * safe to call from a shutdown hook.
+ */
+@Slf4j
+public class WriteBehindBuffer<T> implements AutoCloseable {
+
+  private final DynamoDbClient client;
+  private final int maxPendingItems;
+  private final Executor executor;
+  private final ExecutorService ownExecutor;
+  private final ScheduledExecutorService scheduler;
+  private final boolean ownScheduler;
+  private final ScheduledFuture<?> periodicFlush;
+
+  private final Map<ItemKey, Pending<T>> pending = new LinkedHashMap<>();
+  private final Map<ItemKey, CompletableFuture<Void>> inFlight = new HashMap<>();
+  private boolean closed;
+
+  /**
+   * @param executor sends the updates; by default a cached pool of daemon threads owned by the
+   *     buffer
+   * @param scheduler triggers the periodic flush; by default a single daemon thread owned by the
+   *     buffer
+   */
+  @Builder
+  private WriteBehindBuffer(
+      @NonNull DynamoDbClient client,
+      Duration flushInterval,
+      Integer maxPendingItems,
+      Executor executor,
+      ScheduledExecutorService scheduler) {
+    long interval = Optional.ofNullable(flushInterval).orElse(Duration.ofMillis(100)).toMillis();
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Flush interval must be positive, got " + flushInterval);
+    }
+    this.client = client;
+    this.maxPendingItems = Optional.ofNullable(maxPendingItems).orElse(1000);
+    if (this.maxPendingItems < 1) {
+      throw new IllegalArgumentException(
+          "Max pending items must be positive, got " + maxPendingItems);
+    }
+    this.ownExecutor =
+        executor == null
+            ? Executors.newCachedThreadPool(daemon("guacamole-write-behind-sender"))
+            : null;
+    this.executor = executor == null ? ownExecutor : executor;
+    this.ownScheduler = scheduler == null;
+    this.scheduler =
+        ownScheduler
+            ? Executors.newSingleThreadScheduledExecutor(daemon("guacamole-write-behind"))
+            : scheduler;
+    this.periodicFlush =
+        this.scheduler.scheduleWithFixedDelay(
+            this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queues the update. The returned future completes when the update, possibly merged with others,
+   * was written, and fails with the error of the request.
+   *
+   * @throws IllegalArgumentException for conditional updates, which have to be checked one by one
+   * @throws IllegalStateException after the buffer was closed
+   */
+  public CompletableFuture<Void> submit(MappedUpdateExpression<T, ?> update) {
+    if (update.getCondition() != null) {
+      throw new IllegalArgumentException("Conditional updates cannot be written behind");
+    }
+    ItemKey key = new ItemKey(update.getTableName(), update.getKeys());
+    CompletableFuture<Void> written = new CompletableFuture<>();
+    CompletableFuture<Void> trigger = new CompletableFuture<>();
+
+    synchronized (this) {
+      if (closed) throw new IllegalStateException("Write behind buffer is closed");
+
+      Pending<T> waiting = pending.get(key);
+      Optional<? extends MappedUpdateExpression<T, ?>> merged =
+          waiting == null ? Optional.empty() : waiting.getUpdate().merge(update);
+
+      if (merged.isPresent()) {
+        waiting.getWritten().add(written);
+        pending.put(key, new Pending<>(key, merged.get(), waiting.getWritten()));
+      } else {
+        if (waiting != null) schedule(waiting, trigger);
+        pending.put(key, new Pending<>(key, update, new ArrayList<>(Arrays.asList(written))));
+      }
+      if (pending.size() >= maxPendingItems) {
+        drain(trigger);
+      }
+    }
+    trigger.complete(null);
+    return written;
+  }
+
+  /** Sends everything that is pending. The future completes when all of it was written. */
+  public CompletableFuture<Void> flush() {
+    CompletableFuture<Void> trigger = new CompletableFuture<>();
+    CompletableFuture<Void> sent;
+    synchronized (this) {
+      sent = drain(trigger);
+    }
+    trigger.complete(null);
+    return sent;
+  }
+
+  public synchronized int pendingItems() {
+    return pending.size();
+  }
+
+  /**
+   * Stops the periodic flush, sends everything that is pending and waits until all updates sent by
+   * the buffer are finished, then shuts down the threads owned by the buffer. Calling it again has
+   * no effect.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) return;
+      closed = true;
+    }
+    periodicFlush.cancel(false);
+    if (ownScheduler) scheduler.shutdown();
+
+    flush();
+    CompletableFuture<?>[] unfinished;
+    synchronized (this) {
+      unfinished = inFlight.values().toArray(new CompletableFuture<?>[0]);
+    }
+    try {
+      CompletableFuture.allOf(unfinished).join();
+    } finally {
+      if (ownExecutor != null) ownExecutor.shutdown();
+    }
+  }
+
+  private static ThreadFactory daemon(String name) {
+    return it -> {
+      Thread thread = new Thread(it, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /** Schedules all pending updates; they are sent once the trigger completes. */
+  private CompletableFuture<Void> drain(CompletableFuture<Void> trigger) {
+    CompletableFuture<?>[] sent =
+        pending.values().stream()
+            .map(it -> schedule(it, trigger))
+            .toArray(CompletableFuture[]::new);
+    pending.clear();
+    return CompletableFuture.allOf(sent);
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("periodic flush failed", e);
+    }
+  }
+
+  /**
+   * Sends the update once the trigger completes and the previous update of the same item is
+   * finished. Called while holding the lock, so updates of an item are sent in submission order.
+   */
+  private CompletableFuture<Void> schedule(Pending<T> update, CompletableFuture<Void> trigger) {
+    CompletableFuture<Void> finished = new CompletableFuture<>();
+    CompletableFuture<Void> previous = inFlight.put(update.getKey(), finished);
+
+    CompletableFuture<Void> sent =
+        CompletableFuture.allOf(
+                trigger, previous == null ? CompletableFuture.completedFuture(null) : previous)
+            .thenRunAsync(
+                () -> client.updateItem(update.getUpdate().asUpdateItemRequest()), executor);
+
+    return sent.whenComplete(
+        (ignored, error) -> {
+          Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+          for (CompletableFuture<Void> written : update.getWritten()) {
+            if (cause == null) {
+              written.complete(null);
+            } else {
+              written.completeExceptionally(cause);
+            }
+          }
+          synchronized (this) {
+            inFlight.remove(update.getKey(), finished);
+          }
+          finished.complete(null);
+        });
+  }
+
+  @Value
+  private static class ItemKey {
+    String tableName;
+    Map<String, AttributeValue> keys;
+  }
+
+  @Value
+  private static class Pending<T> {
+    ItemKey key;
+    MappedUpdateExpression<T, ?> update;
+    List<CompletableFuture<Void>> written;
+  }
+}
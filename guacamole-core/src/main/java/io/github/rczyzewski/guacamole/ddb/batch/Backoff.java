@@ -0,0 +1,32 @@
+package io.github.rczyzewski.guacamole.ddb.batch;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.RequiredArgsConstructor;
+
+/** Exponential backoff with full jitter: a random delay between zero and the growing cap. */
+@RequiredArgsConstructor
+class Backoff {
+
+  private final Duration baseDelay;
+  private final Duration maxDelay;
+
+  long delay(int attempt) {
+    long cap = baseDelay.toMillis() << Math.min(attempt, 30);
+    long bounded = Math.min(maxDelay.toMillis(), cap < 0 ? Long.MAX_VALUE : cap);
+    return bounded <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bounded + 1);
+  }
+
+  /** Waits before the given retry; returns false when the thread was interrupted. */
+  boolean await(int attempt) {
+    long millis = delay(attempt);
+    if (millis == 0) return true;
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
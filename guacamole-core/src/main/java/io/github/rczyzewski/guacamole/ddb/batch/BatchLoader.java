@@ -0,0 +1,160 @@
+package io.github.rczyzewski.guacamole.ddb.batch;
+
+import io.github.rczyzewski.guacamole.ddb.BaseRepository;
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.Metrics;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.experimental.StandardException;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+/**
+ * Reads items by their keys with {@code BatchGetItem}. Only the key attributes of the given
+ * objects are used. Keys are deduplicated and split into requests of at most 100 keys. Up to
+ * {@code maxConcurrency} requests are sent at the same time on the executor. {@code
+ * UnprocessedKeys} are requested again after an exponential backoff with full jitter.
+ */
+@Slf4j
+@Builder
+public class BatchLoader<T> {
+
+  static final int MAX_BATCH_KEYS = 100;
+
+  @NonNull private final DynamoDbClient client;
+  @NonNull private final BaseRepository<T, ?> repository;
+  @Builder.Default private final Executor executor = Runnable::run;
+  @Builder.Default private final int maxConcurrency = 1;
+  @Builder.Default private final int maxRetries = 8;
+  @Builder.Default private final Duration baseDelay = Duration.ofMillis(50);
+  @Builder.Default private final Duration maxDelay = Duration.ofSeconds(5);
+  @Builder.Default private final boolean consistentRead = false;
+
+  /**
+   * Stored items with the given keys, in no particular order. Keys without an item are skipped.
+   *
+   * @throws UnprocessedKeysException when some keys stayed unprocessed after all retries
+   */
+  public List<T> load(Collection<T> keys) {
+    return new ArrayList<>(fetch(keys).values());
+  }
+
+  /**
+   * Result for every given key at the position of the key: the stored item, or empty when there is
+   * none. Repeated keys are read once and repeated in the result.
+   *
+   * @throws UnprocessedKeysException when some keys stayed unprocessed after all retries
+   */
+  public List<Optional<T>> loadInOrder(Collection<T> keys) {
+    Map<Map<String, AttributeValue>, T> found = fetch(keys);
+    return keys.stream()
+        .map(it -> Optional.ofNullable(found.get(repository.getMapper().exportKeys(it))))
+        .collect(Collectors.toList());
+  }
+
+  private Map<Map<String, AttributeValue>, T> fetch(Collection<T> keys) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be positive, got " + maxConcurrency);
+    }
+    Set<Map<String, AttributeValue>> unique = new LinkedHashSet<>();
+    keys.forEach(it -> unique.add(repository.getMapper().exportKeys(it)));
+
+    Map<Map<String, AttributeValue>, T> found = new ConcurrentHashMap<>();
+    Semaphore permits = new Semaphore(maxConcurrency);
+    List<CompletableFuture<Void>> requests = new ArrayList<>();
+    List<Map<String, AttributeValue>> chunk = new ArrayList<>(MAX_BATCH_KEYS);
+    for (Map<String, AttributeValue> key : unique) {
+      chunk.add(key);
+      if (chunk.size() == MAX_BATCH_KEYS) {
+        requests.add(submit(chunk, found, permits));
+        chunk = new ArrayList<>(MAX_BATCH_KEYS);
+      }
+    }
+    if (!chunk.isEmpty()) requests.add(submit(chunk, found, permits));
+
+    try {
+      CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw e;
+    }
+    return found;
+  }
+
+  private CompletableFuture<Void> submit(
+      List<Map<String, AttributeValue>> chunk,
+      Map<Map<String, AttributeValue>, T> found,
+      Semaphore permits) {
+    permits.acquireUninterruptibly();
+    return CompletableFuture.runAsync(() -> read(chunk, found), executor)
+        .whenComplete((ignored, error) -> permits.release());
+  }
+
+  private void read(
+      List<Map<String, AttributeValue>> chunk, Map<Map<String, AttributeValue>, T> found) {
+    Set<String> keyNames = chunk.get(0).keySet();
+    KeysAndAttributes request =
+        KeysAndAttributes.builder().keys(chunk).consistentRead(consistentRead).build();
+
+    for (int attempt = 0; ; attempt++) {
+      KeysAndAttributes requested = request;
+      BatchGetItemResponse response =
+          client.batchGetItem(
+              it ->
+                  it.requestItems(
+                      Collections.singletonMap(repository.getTableName(), requested)));
+
+      for (Map<String, AttributeValue> item :
+          response.responses().getOrDefault(repository.getTableName(), Collections.emptyList())) {
+        found.put(keyOf(item, keyNames), repository.getMapper().transform(item));
+      }
+
+      request = response.unprocessedKeys().get(repository.getTableName());
+      if (request == null || !request.hasKeys() || request.keys().isEmpty()) return;
+
+      if (attempt >= maxRetries) {
+        throw new UnprocessedKeysException(
+            String.format(
+                "%d keys still unprocessed after %d retries", request.keys().size(), maxRetries));
+      }
+      log.debug("{} unprocessed keys, retry {}/{}", request.keys().size(), attempt + 1, maxRetries);
+      Metrics.increment(
+          RepositoryMetrics.Counter.RETRIES,
+          MetricTags.of(repository.getTableName(), null, "BatchGetItem"),
+          1);
+      if (!new Backoff(baseDelay, maxDelay).await(attempt)) {
+        throw new UnprocessedKeysException("Interrupted while backing off");
+      }
+    }
+  }
+
+  private static Map<String, AttributeValue> keyOf(
+      Map<String, AttributeValue> item, Set<String> keyNames) {
+    Map<String, AttributeValue> key = new LinkedHashMap<>();
+    keyNames.forEach(name -> key.put(name, item.get(name)));
+    return key;
+  }
+
+  @StandardException
+  public static class UnprocessedKeysException extends RuntimeException {}
+}
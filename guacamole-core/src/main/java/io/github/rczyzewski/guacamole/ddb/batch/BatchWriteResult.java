@@ -0,0 +1,22 @@
+package io.github.rczyzewski.guacamole.ddb.batch;
+
+import java.util.List;
+import lombok.Value;
+
+/** Outcome of {@link BatchWriter#write}, split per item. */
+@Value
+public class BatchWriteResult<T> {
+
+  List<T> written;
+  List<Failure<T>> failed;
+
+  public boolean isSuccessful() {
+    return failed.isEmpty();
+  }
+
+  @Value
+  public static class Failure<T> {
+    T item;
+    Throwable cause;
+  }
+}
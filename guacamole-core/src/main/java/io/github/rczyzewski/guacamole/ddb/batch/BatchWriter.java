@@ -0,0 +1,237 @@
+package io.github.rczyzewski.guacamole.ddb.batch;
+
+import io.github.rczyzewski.guacamole.ddb.BaseRepository;
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.Metrics;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.StandardException;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Writes any number of items with {@code BatchWriteItem}. Items are split into requests of at most
+ * 25 items and 16 MB, and up to {@code maxConcurrency} requests are sent at the same time on the
+ * executor. Items returned as {@code UnprocessedItems} are sent again after an exponential backoff
+ * with full jitter, until {@code maxRetries} is exhausted.
+ *
+ * <p>DynamoDB rejects a request that contains the same key twice, so items sharing a key are
+ * written once, with the last of them, and all of them are reported with the outcome of that
+ * write.
+ *
+ * <pre>{@code
+ * BatchWriter<Customer> writer =
+ *     BatchWriter.<Customer>builder().client(client).repository(repo).maxConcurrency(4)
+ *         .executor(executor).build();
+ * BatchWriteResult<Customer> result = writer.write(customers);
+ * }</pre>
+ */
+@Slf4j
+@Builder
+public class BatchWriter<T> {
+
+  static final int MAX_BATCH_ITEMS = 25;
+  static final long MAX_BATCH_SIZE = 16L * 1024 * 1024;
+
+  @NonNull private final DynamoDbClient client;
+  @NonNull private final BaseRepository<T, ?> repository;
+  @Builder.Default private final Executor executor = Runnable::run;
+  @Builder.Default private final int maxConcurrency = 1;
+  @Builder.Default private final int maxRetries = 8;
+  @Builder.Default private final Duration baseDelay = Duration.ofMillis(50);
+  @Builder.Default private final Duration maxDelay = Duration.ofSeconds(5);
+
+  /**
+   * Stores all items and returns once each of them was either written or given up on. Items larger
+   * than the DynamoDB limit fail without being sent.
+   */
+  public BatchWriteResult<T> write(Collection<T> items) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be positive, got " + maxConcurrency);
+    }
+    Collection<T> written = new ConcurrentLinkedQueue<>();
+    Collection<BatchWriteResult.Failure<T>> failed = new ConcurrentLinkedQueue<>();
+
+    Semaphore permits = new Semaphore(maxConcurrency);
+    List<CompletableFuture<Void>> requests = new ArrayList<>();
+    for (List<Pending<T>> chunk : chunk(items, failed)) {
+      permits.acquireUninterruptibly();
+      requests.add(
+          CompletableFuture.runAsync(() -> send(chunk, written, failed), executor)
+              .whenComplete((ignored, error) -> permits.release()));
+    }
+    CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+
+    return new BatchWriteResult<>(
+        Collections.unmodifiableList(new ArrayList<>(written)),
+        Collections.unmodifiableList(new ArrayList<>(failed)));
+  }
+
+  private List<List<Pending<T>>> chunk(
+      Collection<T> items, Collection<BatchWriteResult.Failure<T>> failed) {
+    Map<Map<String, AttributeValue>, Pending<T>> byKey = new LinkedHashMap<>();
+    for (T item : items) {
+      Map<String, AttributeValue> encoded = repository.getMapper().export(item);
+      long size = ItemSizeCalculator.sizeOf(encoded);
+      if (size > ItemSizeCalculator.MAX_ITEM_SIZE) {
+        failed.add(
+            new BatchWriteResult.Failure<>(
+                item,
+                new ItemTooLargeException(
+                    String.format(
+                        "Item of %d bytes exceeds the limit of %d bytes",
+                        size, ItemSizeCalculator.MAX_ITEM_SIZE))));
+        continue;
+      }
+      Map<String, AttributeValue> key = repository.getMapper().exportKeys(item);
+      Pending<T> previous = byKey.get(key);
+      byKey.put(
+          key,
+          previous == null
+              ? new Pending<>(Collections.singletonList(item), key, encoded, size)
+              : previous.supersededBy(item, encoded, size));
+    }
+
+    List<List<Pending<T>>> chunks = new ArrayList<>();
+    List<Pending<T>> current = new ArrayList<>();
+    long currentSize = 0;
+    for (Pending<T> pending : byKey.values()) {
+      if (current.size() == MAX_BATCH_ITEMS || currentSize + pending.getSize() > MAX_BATCH_SIZE) {
+        chunks.add(current);
+        current = new ArrayList<>();
+        currentSize = 0;
+      }
+      current.add(pending);
+      currentSize += pending.getSize();
+    }
+    if (!current.isEmpty()) chunks.add(current);
+    return chunks;
+  }
+
+  private void send(
+      List<Pending<T>> chunk,
+      Collection<T> written,
+      Collection<BatchWriteResult.Failure<T>> failed) {
+
+    Set<String> keyNames = chunk.get(0).getKey().keySet();
+    List<Pending<T>> pending = chunk;
+    for (int attempt = 0; ; attempt++) {
+      List<WriteRequest> requests = new ArrayList<>(pending.size());
+      pending.forEach(
+          it ->
+              requests.add(
+                  WriteRequest.builder()
+                      .putRequest(PutRequest.builder().item(it.getEncoded()).build())
+                      .build()));
+
+      BatchWriteItemResponse response;
+      try {
+        response =
+            client.batchWriteItem(
+                it ->
+                    it.requestItems(
+                        Collections.singletonMap(repository.getTableName(), requests)));
+      } catch (RuntimeException e) {
+        fail(pending, e, failed);
+        return;
+      }
+
+      Set<Map<String, AttributeValue>> unprocessedKeys = new HashSet<>();
+      response
+          .unprocessedItems()
+          .getOrDefault(repository.getTableName(), Collections.emptyList())
+          .stream()
+          .map(WriteRequest::putRequest)
+          .filter(Objects::nonNull)
+          .forEach(it -> unprocessedKeys.add(keyOf(it.item(), keyNames)));
+
+      List<Pending<T>> unprocessed = new ArrayList<>(unprocessedKeys.size());
+      for (Pending<T> it : pending) {
+        if (unprocessedKeys.contains(it.getKey())) {
+          unprocessed.add(it);
+        } else {
+          written.addAll(it.getItems());
+        }
+      }
+      if (unprocessed.isEmpty()) return;
+
+      if (attempt >= maxRetries) {
+        fail(
+            unprocessed,
+            new UnprocessedItemsException(
+                String.format("Item still unprocessed after %d retries", maxRetries)),
+            failed);
+        return;
+      }
+
+      log.debug("{} unprocessed items, retry {}/{}", unprocessed.size(), attempt + 1, maxRetries);
+      Metrics.increment(
+          RepositoryMetrics.Counter.RETRIES,
+          MetricTags.of(repository.getTableName(), null, "BatchWriteItem"),
+          1);
+      if (!new Backoff(baseDelay, maxDelay).await(attempt)) {
+        fail(unprocessed, new InterruptedException("Interrupted while backing off"), failed);
+        return;
+      }
+      pending = unprocessed;
+    }
+  }
+
+  private static Map<String, AttributeValue> keyOf(
+      Map<String, AttributeValue> item, Set<String> keyNames) {
+    Map<String, AttributeValue> key = new HashMap<>();
+    keyNames.forEach(it -> key.put(it, item.get(it)));
+    return key;
+  }
+
+  private static <T> void fail(
+      List<Pending<T>> pending, Throwable cause, Collection<BatchWriteResult.Failure<T>> failed) {
+    for (Pending<T> it : pending) {
+      it.getItems().forEach(item -> failed.add(new BatchWriteResult.Failure<>(item, cause)));
+    }
+  }
+
+  /** Items sharing a key; only the last one is sent, and all of them share its outcome. */
+  @Value
+  private static class Pending<T> {
+    List<T> items;
+    Map<String, AttributeValue> key;
+    Map<String, AttributeValue> encoded;
+    long size;
+
+    Pending<T> supersededBy(T item, Map<String, AttributeValue> encoded, long size) {
+      List<T> all = new ArrayList<>(items.size() + 1);
+      all.addAll(items);
+      all.add(item);
+      return new Pending<>(all, key, encoded, size);
+    }
+  }
+
+  @StandardException
+  public static class ItemTooLargeException extends RuntimeException {}
+
+  @StandardException
+  public static class UnprocessedItemsException extends RuntimeException {}
+}
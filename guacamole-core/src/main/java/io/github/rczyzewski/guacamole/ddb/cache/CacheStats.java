@@ -0,0 +1,19 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import lombok.Value;
+
+/** Counters of a cache since it was created. */
+@Value
+public class CacheStats {
+  long hits;
+  long misses;
+  /** Entries removed to stay within the size limit. */
+  long evictions;
+  /** Entries found after their time to live. */
+  long expirations;
+
+  public double hitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+}
@@ -0,0 +1,157 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import io.github.rczyzewski.guacamole.ddb.BaseRepository;
+import io.github.rczyzewski.guacamole.ddb.MappedDeleteExpression;
+import io.github.rczyzewski.guacamole.ddb.MappedUpdateExpression;
+import io.github.rczyzewski.guacamole.ddb.batch.BatchLoader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Getter;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+/**
+ * Read-through cache in front of the gets of a repository. Items are cached by their keys, as
+ * exported by the mapper. Writes executed through this class refresh or invalidate the cached
+ * item; writes done elsewhere become visible once the entry expires.
+ *
+ * <pre>{@code
+ * CachingRepository<Product> products =
+ *     new CachingRepository<>(repo, client, 10_000, Duration.ofSeconds(30));
+ * Optional<Product> product = products.get(Product.builder().id("42").build());
+ * }</pre>
+ */
+public class CachingRepository<T> {
+
+  @Getter private final BaseRepository<T, ?> repository;
+  private final DynamoDbClient client;
+  private final LruCache<Map<String, AttributeValue>, T> cache;
+
+  public CachingRepository(
+      BaseRepository<T, ?> repository, DynamoDbClient client, long maxSize, Duration ttl) {
+    this(repository, client, new LruCache<>(maxSize, ttl));
+  }
+
+  CachingRepository(
+      BaseRepository<T, ?> repository,
+      DynamoDbClient client,
+      LruCache<Map<String, AttributeValue>, T> cache) {
+    this.repository = repository;
+    this.client = client;
+    this.cache = cache;
+  }
+
+  /** The item with the keys of the given one, from the cache or read from the table. */
+  public Optional<T> get(T key) {
+    Map<String, AttributeValue> keys = repository.getMapper().exportKeys(key);
+    T cached = cache.get(keys);
+    if (cached != null) return Optional.of(cached);
+
+    long version = cache.version();
+    GetItemResponse response = client.getItem(repository.get(key));
+    if (!response.hasItem() || response.item().isEmpty()) return Optional.empty();
+
+    T item = repository.getMapper().transform(response.item());
+    cache.putIfNotInvalidated(keys, item, version);
+    return Optional.of(item);
+  }
+
+  /**
+   * Items with the keys of the given ones, in no particular order. Only the keys missing in the
+   * cache are read, with {@code BatchGetItem}.
+   */
+  public List<T> getAll(Collection<T> keys) {
+    List<T> items = new ArrayList<>(keys.size());
+    Map<Map<String, AttributeValue>, T> missing = new LinkedHashMap<>();
+    for (T key : keys) {
+      Map<String, AttributeValue> exported = repository.getMapper().exportKeys(key);
+      T cached = cache.get(exported);
+      if (cached != null) {
+        items.add(cached);
+      } else {
+        missing.putIfAbsent(exported, key);
+      }
+    }
+    if (missing.isEmpty()) return items;
+
+    long version = cache.version();
+    List<T> loaded =
+        BatchLoader.<T>builder()
+            .client(client)
+            .repository(repository)
+            .build()
+            .load(missing.values());
+    for (T item : loaded) {
+      cache.putIfNotInvalidated(repository.getMapper().exportKeys(item), item, version);
+      items.add(item);
+    }
+    return items;
+  }
+
+  /** Stores the item and caches it. */
+  public void put(T item) {
+    Map<String, AttributeValue> keys = repository.getMapper().exportKeys(item);
+    try {
+      client.putItem(repository.create(item));
+    } catch (RuntimeException e) {
+      cache.invalidate(keys);
+      throw e;
+    }
+    cache.put(keys, item);
+  }
+
+  /** Executes the update and caches the item as it is afterwards. */
+  public T update(MappedUpdateExpression<T, ?> update) {
+    UpdateItemRequest request =
+        update.asUpdateItemRequest().toBuilder().returnValues(ReturnValue.ALL_NEW).build();
+    UpdateItemResponse response;
+    try {
+      response = client.updateItem(request);
+    } catch (RuntimeException e) {
+      cache.invalidate(request.key());
+      throw e;
+    }
+    T item = repository.getMapper().transform(response.attributes());
+    cache.put(request.key(), item);
+    return item;
+  }
+
+  public T update(T item) {
+    return update(repository.update(item));
+  }
+
+  public void delete(MappedDeleteExpression<T, ?> delete) {
+    DeleteItemRequest request = delete.asDeleteItemRequest();
+    try {
+      client.deleteItem(request);
+    } finally {
+      cache.invalidate(request.key());
+    }
+  }
+
+  public void delete(T item) {
+    delete(repository.delete(item));
+  }
+
+  public void invalidate(T key) {
+    cache.invalidate(repository.getMapper().exportKeys(key));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
@@ -0,0 +1,331 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import lombok.experimental.UtilityClass;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Binary form of an item, used to keep items outside of the heap. Every value is a one byte tag
+ * followed by its payload; lengths and counts are unsigned varints. Strings are UTF-8, numbers are
+ * packed two characters per byte, as they only use digits, sign, dot and exponent.
+ *
+ * <p>The size of an item is computed before it is written, so it is encoded straight into its
+ * place in a buffer.
+ */
+@UtilityClass
+class CompactItemFormat {
+
+  private static final byte NUL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte S = 3;
+  private static final byte N = 4;
+  private static final byte B = 5;
+  private static final byte SS = 6;
+  private static final byte NS = 7;
+  private static final byte BS = 8;
+  private static final byte L = 9;
+  private static final byte M = 10;
+
+  /** Characters of a number, indexed by their nibble. */
+  private static final String NUMBER_CHARACTERS = "0123456789.-+Ee";
+
+  /** Bytes taken by the item, without any tag of its own. */
+  static int sizeOf(Map<String, AttributeValue> item) {
+    int size = varintSize(item.size());
+    for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+      size += stringSize(attribute.getKey()) + sizeOf(attribute.getValue());
+    }
+    return size;
+  }
+
+  static void write(Map<String, AttributeValue> item, ByteBuffer out) {
+    writeVarint(item.size(), out);
+    for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+      writeString(attribute.getKey(), out);
+      write(attribute.getValue(), out);
+    }
+  }
+
+  static Map<String, AttributeValue> read(ByteBuffer in) {
+    int count = readVarint(in);
+    Map<String, AttributeValue> item = new LinkedHashMap<>(count * 4 / 3 + 1);
+    for (int i = 0; i < count; i++) {
+      String name = readString(in);
+      item.put(name, readValue(in));
+    }
+    return item;
+  }
+
+  private static int sizeOf(AttributeValue value) {
+    switch (value.type()) {
+      case NUL:
+      case BOOL:
+        return 1;
+      case S:
+        return 1 + stringSize(value.s());
+      case N:
+        return 1 + numberSize(value.n());
+      case B:
+        return 1 + bytesSize(value.b());
+      case SS:
+        return 1 + varintSize(value.ss().size()) + sum(value.ss(), CompactItemFormat::stringSize);
+      case NS:
+        return 1 + varintSize(value.ns().size()) + sum(value.ns(), CompactItemFormat::numberSize);
+      case BS:
+        return 1 + varintSize(value.bs().size()) + sum(value.bs(), CompactItemFormat::bytesSize);
+      case L:
+        return 1 + varintSize(value.l().size()) + sum(value.l(), CompactItemFormat::sizeOf);
+      case M:
+        return 1 + sizeOf(value.m());
+      default:
+        throw new IllegalArgumentException("Unsupported attribute value: " + value);
+    }
+  }
+
+  private static void write(AttributeValue value, ByteBuffer out) {
+    switch (value.type()) {
+      case NUL:
+        out.put(NUL);
+        break;
+      case BOOL:
+        out.put(value.bool() ? TRUE : FALSE);
+        break;
+      case S:
+        out.put(S);
+        writeString(value.s(), out);
+        break;
+      case N:
+        out.put(N);
+        writeNumber(value.n(), out);
+        break;
+      case B:
+        out.put(B);
+        writeBytes(value.b(), out);
+        break;
+      case SS:
+        out.put(SS);
+        writeVarint(value.ss().size(), out);
+        value.ss().forEach(it -> writeString(it, out));
+        break;
+      case NS:
+        out.put(NS);
+        writeVarint(value.ns().size(), out);
+        value.ns().forEach(it -> writeNumber(it, out));
+        break;
+      case BS:
+        out.put(BS);
+        writeVarint(value.bs().size(), out);
+        value.bs().forEach(it -> writeBytes(it, out));
+        break;
+      case L:
+        out.put(L);
+        writeVarint(value.l().size(), out);
+        value.l().forEach(it -> write(it, out));
+        break;
+      case M:
+        out.put(M);
+        write(value.m(), out);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported attribute value: " + value);
+    }
+  }
+
+  private static AttributeValue readValue(ByteBuffer in) {
+    byte tag = in.get();
+    switch (tag) {
+      case NUL:
+        return AttributeValue.fromNul(true);
+      case TRUE:
+        return AttributeValue.fromBool(true);
+      case FALSE:
+        return AttributeValue.fromBool(false);
+      case S:
+        return AttributeValue.fromS(readString(in));
+      case N:
+        return AttributeValue.fromN(readNumber(in));
+      case B:
+        return AttributeValue.fromB(readBytes(in));
+      case SS:
+        {
+          int count = readVarint(in);
+          List<String> strings = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) strings.add(readString(in));
+          return AttributeValue.fromSs(strings);
+        }
+      case NS:
+        {
+          int count = readVarint(in);
+          List<String> numbers = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) numbers.add(readNumber(in));
+          return AttributeValue.fromNs(numbers);
+        }
+      case BS:
+        {
+          int count = readVarint(in);
+          List<SdkBytes> bytes = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) bytes.add(readBytes(in));
+          return AttributeValue.fromBs(bytes);
+        }
+      case L:
+        {
+          int count = readVarint(in);
+          List<AttributeValue> elements = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) elements.add(readValue(in));
+          return AttributeValue.fromL(elements);
+        }
+      case M:
+        return AttributeValue.fromM(read(in));
+      default:
+        throw new IllegalStateException("Corrupted item, unknown tag " + tag);
+    }
+  }
+
+  private static <E> int sum(Collection<E> elements, ToIntFunction<E> size) {
+    int sum = 0;
+    for (E element : elements) sum += size.applyAsInt(element);
+    return sum;
+  }
+
+  private static int stringSize(String value) {
+    int length = utf8Length(value);
+    return varintSize(length) + length;
+  }
+
+  private static void writeString(String value, ByteBuffer out) {
+    writeVarint(utf8Length(value), out);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        out.put((byte) c);
+      } else if (c < 0x800) {
+        out.put((byte) (0xC0 | c >> 6));
+        out.put((byte) (0x80 | c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        out.put((byte) (0xF0 | codePoint >> 18));
+        out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+        out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+        out.put((byte) (0x80 | codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        out.put((byte) '?');
+      } else {
+        out.put((byte) (0xE0 | c >> 12));
+        out.put((byte) (0x80 | c >> 6 & 0x3F));
+        out.put((byte) (0x80 | c & 0x3F));
+      }
+    }
+  }
+
+  private static String readString(ByteBuffer in) {
+    byte[] bytes = new byte[readVarint(in)];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Bytes of the UTF-8 form; an unpaired surrogate is replaced by one byte, as by the JDK. */
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length += 1;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static int numberSize(String number) {
+    return varintSize(number.length()) + (number.length() + 1) / 2;
+  }
+
+  private static void writeNumber(String number, ByteBuffer out) {
+    writeVarint(number.length(), out);
+    for (int i = 0; i < number.length(); i += 2) {
+      int high = nibbleOf(number.charAt(i));
+      int low = i + 1 < number.length() ? nibbleOf(number.charAt(i + 1)) : 0;
+      out.put((byte) (high << 4 | low));
+    }
+  }
+
+  private static String readNumber(ByteBuffer in) {
+    int length = readVarint(in);
+    char[] characters = new char[length];
+    for (int i = 0; i < length; i += 2) {
+      int packed = in.get() & 0xFF;
+      characters[i] = NUMBER_CHARACTERS.charAt(packed >> 4);
+      if (i + 1 < length) characters[i + 1] = NUMBER_CHARACTERS.charAt(packed & 0x0F);
+    }
+    return new String(characters);
+  }
+
+  private static int nibbleOf(char c) {
+    int nibble = NUMBER_CHARACTERS.indexOf(c);
+    if (nibble < 0) {
+      throw new IllegalArgumentException("Unexpected character '" + c + "' in a number");
+    }
+    return nibble;
+  }
+
+  private static int bytesSize(SdkBytes bytes) {
+    int length = bytes.asByteArrayUnsafe().length;
+    return varintSize(length) + length;
+  }
+
+  private static void writeBytes(SdkBytes bytes, ByteBuffer out) {
+    byte[] array = bytes.asByteArrayUnsafe();
+    writeVarint(array.length, out);
+    out.put(array);
+  }
+
+  private static SdkBytes readBytes(ByteBuffer in) {
+    byte[] bytes = new byte[readVarint(in)];
+    in.get(bytes);
+    return SdkBytes.fromByteArrayUnsafe(bytes);
+  }
+
+  private static int varintSize(int value) {
+    int size = 1;
+    while ((value >>>= 7) != 0) size++;
+    return size;
+  }
+
+  private static void writeVarint(int value, ByteBuffer out) {
+    while ((value & ~0x7F) != 0) {
+      out.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  private static int readVarint(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) return value;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import lombok.Value;
+
+/**
+ * Size bounded cache with a time to live. The entries are spread over segments, each a
+ * least-recently-used map behind its own lock, so readers of different keys rarely wait for each
+ * other.
+ *
+ * <p>Values loaded from the database are stored with {@link #putIfNotInvalidated}: a value read
+ * before a concurrent write of any key is dropped instead of replacing the newer state.
+ */
+public class LruCache<K, V> {
+
+  private static final int SEGMENTS = 16;
+
+  private final Segment<K, V>[] segments;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+  private final AtomicLong invalidations = new AtomicLong();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+
+  public LruCache(long maxSize, Duration ttl) {
+    this(maxSize, ttl, System::nanoTime);
+  }
+
+  @SuppressWarnings("unchecked")
+  LruCache(long maxSize, Duration ttl, LongSupplier clock) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Max size must be positive, got " + maxSize);
+    }
+    if (ttl.isNegative() || ttl.isZero()) {
+      throw new IllegalArgumentException("Time to live must be positive, got " + ttl);
+    }
+    int segmentCount = (int) Math.min(SEGMENTS, maxSize);
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      long capacity = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+      segments[i] = new Segment<>(capacity, evictions);
+    }
+    this.ttlNanos = ttl.toNanos();
+    this.clock = clock;
+  }
+
+  /** The cached value, or null when it is missing or expired. */
+  public V get(K key) {
+    Segment<K, V> segment = segmentOf(key);
+    Entry<V> entry;
+    synchronized (segment) {
+      entry = segment.get(key);
+      if (entry != null && clock.getAsLong() - entry.getStoredAt() >= ttlNanos) {
+        segment.remove(key);
+        expirations.increment();
+        entry = null;
+      }
+    }
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.getValue();
+  }
+
+  /** Stores a value written by the caller itself, replacing what is cached. */
+  public void put(K key, V value) {
+    Segment<K, V> segment = segmentOf(key);
+    synchronized (segment) {
+      invalidations.incrementAndGet();
+      segment.put(key, new Entry<>(value, clock.getAsLong()));
+    }
+  }
+
+  /** Marker to pass to {@link #putIfNotInvalidated}, taken before the value is read. */
+  public long version() {
+    return invalidations.get();
+  }
+
+  /** Stores a loaded value, unless the cache was written or invalidated since the version. */
+  public void putIfNotInvalidated(K key, V value, long version) {
+    Segment<K, V> segment = segmentOf(key);
+    synchronized (segment) {
+      if (invalidations.get() == version) {
+        segment.put(key, new Entry<>(value, clock.getAsLong()));
+      }
+    }
+  }
+
+  public void invalidate(K key) {
+    Segment<K, V> segment = segmentOf(key);
+    synchronized (segment) {
+      invalidations.incrementAndGet();
+      segment.remove(key);
+    }
+  }
+
+  /** Drops every entry whose key matches, walking all segments. */
+  public void invalidateIf(Predicate<? super K> predicate) {
+    invalidations.incrementAndGet();
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        segment.keySet().removeIf(predicate);
+      }
+    }
+  }
+
+  public void invalidateAll() {
+    invalidations.incrementAndGet();
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  public long size() {
+    long size = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public CacheStats stats() {
+    return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+  }
+
+  private Segment<K, V> segmentOf(K key) {
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return segments[Math.floorMod(hash, segments.length)];
+  }
+
+  @Value
+  private static class Entry<V> {
+    V value;
+    long storedAt;
+  }
+
+  private static class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+    private final long capacity;
+    private final LongAdder evictions;
+
+    Segment(long capacity, LongAdder evictions) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+      this.evictions = evictions;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+      if (size() <= capacity) return false;
+      evictions.increment();
+      return true;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import lombok.Value;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Item cache keeping the encoded items in direct buffers, so large caches do not grow the heap.
+ * Items are written with {@link CompactItemFormat} into fixed size slabs, one after another. When
+ * the current slab is full the next one is taken over and every item still stored there is
+ * evicted, so the slabs are reused in a ring and the oldest writes go first.
+ *
+ * <p>Only the index from the encoded keys to the places of the items stays on the heap. A hit
+ * decodes the item through the mapper, so every read returns a new instance.
+ *
+ * <pre>{@code
+ * OffHeapItemCache<Product> products =
+ *     new OffHeapItemCache<>(repo.getMapper(), 16L << 30, 64 << 20, Duration.ofMinutes(10));
+ * }</pre>
+ */
+public class OffHeapItemCache<T> {
+
+  private final LiveMappingDescription<T> mapper;
+  private final int slabSize;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+
+  private final ByteBuffer[] slabs;
+  private final List<List<ByteBuffer>> keysOfSlabs;
+  private final Map<ByteBuffer, Location> index = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private int currentSlab;
+  private int position;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+
+  /**
+   * @param capacity bytes of all slabs together, rounded down to whole slabs
+   * @param slabSize bytes of a slab, also the largest item that can be cached
+   */
+  public OffHeapItemCache(
+      LiveMappingDescription<T> mapper, long capacity, int slabSize, Duration ttl) {
+    this(mapper, capacity, slabSize, ttl, System::nanoTime);
+  }
+
+  OffHeapItemCache(
+      LiveMappingDescription<T> mapper,
+      long capacity,
+      int slabSize,
+      Duration ttl,
+      LongSupplier clock) {
+    if (slabSize < 1 || capacity < slabSize) {
+      throw new IllegalArgumentException(
+          String.format("Capacity %d must hold at least one slab of %d bytes", capacity, slabSize));
+    }
+    if (capacity / slabSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many slabs, use larger ones");
+    }
+    if (ttl.isNegative() || ttl.isZero()) {
+      throw new IllegalArgumentException("Time to live must be positive, got " + ttl);
+    }
+    int slabCount = (int) (capacity / slabSize);
+    this.mapper = mapper;
+    this.slabSize = slabSize;
+    this.ttlNanos = ttl.toNanos();
+    this.clock = clock;
+    this.slabs = new ByteBuffer[slabCount];
+    this.keysOfSlabs = new ArrayList<>(slabCount);
+    for (int i = 0; i < slabCount; i++) keysOfSlabs.add(new ArrayList<>());
+  }
+
+  /** The cached item with the keys of the given one. */
+  public Optional<T> get(T key) {
+    ByteBuffer encodedKey = encode(mapper.exportKeys(key));
+    Map<String, AttributeValue> item = null;
+    Location expired = null;
+
+    lock.readLock().lock();
+    try {
+      Location location = index.get(encodedKey);
+      if (location != null && clock.getAsLong() - location.getStoredAt() >= ttlNanos) {
+        expired = location;
+      } else if (location != null) {
+        ByteBuffer in = slabs[location.getSlab()].duplicate();
+        // called on Buffer, since the ByteBuffer overrides of JDK 9+ are missing on Java 8
+        ((Buffer) in).position(location.getOffset());
+        item = CompactItemFormat.read(in);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    if (expired != null) remove(encodedKey, expired);
+    if (item == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    return Optional.of(mapper.transform(item));
+  }
+
+  /** Stores the item, replacing the cached one. An item larger than a slab is only invalidated. */
+  public void put(T item) {
+    Map<String, AttributeValue> encoded = mapper.export(item);
+    ByteBuffer encodedKey = encode(mapper.exportKeys(item));
+    int size = CompactItemFormat.sizeOf(encoded);
+    if (size > slabSize) {
+      invalidate(encodedKey);
+      return;
+    }
+
+    lock.writeLock().lock();
+    try {
+      if (position + size > slabSize || slabs[currentSlab] == null) nextSlab();
+      ByteBuffer out = slabs[currentSlab].duplicate();
+      ((Buffer) out).position(position);
+      CompactItemFormat.write(encoded, out);
+      index.put(encodedKey, new Location(currentSlab, position, clock.getAsLong()));
+      keysOfSlabs.get(currentSlab).add(encodedKey);
+      position += size;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void invalidate(T key) {
+    invalidate(encode(mapper.exportKeys(key)));
+  }
+
+  public void invalidateAll() {
+    lock.writeLock().lock();
+    try {
+      index.clear();
+      keysOfSlabs.forEach(List::clear);
+      position = slabSize;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public long size() {
+    lock.readLock().lock();
+    try {
+      return index.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Bytes of the direct buffers allocated so far; slabs are allocated when first written. */
+  public long allocatedBytes() {
+    lock.readLock().lock();
+    try {
+      long allocated = 0;
+      for (ByteBuffer slab : slabs) {
+        if (slab != null) allocated += slab.capacity();
+      }
+      return allocated;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public CacheStats stats() {
+    return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+  }
+
+  /** Takes over the next slab of the ring, evicting the items that are still stored there. */
+  private void nextSlab() {
+    if (slabs[currentSlab] != null) currentSlab = (currentSlab + 1) % slabs.length;
+    List<ByteBuffer> keys = keysOfSlabs.get(currentSlab);
+    for (ByteBuffer key : keys) {
+      Location location = index.get(key);
+      if (location != null && location.getSlab() == currentSlab) {
+        index.remove(key);
+        evictions.increment();
+      }
+    }
+    keys.clear();
+    if (slabs[currentSlab] == null) slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+    position = 0;
+  }
+
+  private void invalidate(ByteBuffer encodedKey) {
+    lock.writeLock().lock();
+    try {
+      index.remove(encodedKey);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void remove(ByteBuffer encodedKey, Location expired) {
+    lock.writeLock().lock();
+    try {
+      if (index.remove(encodedKey, expired)) expirations.increment();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private static ByteBuffer encode(Map<String, AttributeValue> keys) {
+    ByteBuffer encoded = ByteBuffer.allocate(CompactItemFormat.sizeOf(keys));
+    CompactItemFormat.write(keys, encoded);
+    ((Buffer) encoded).flip();
+    return encoded;
+  }
+
+  @Value
+  private static class Location {
+    int slab;
+    int offset;
+    long storedAt;
+  }
+}
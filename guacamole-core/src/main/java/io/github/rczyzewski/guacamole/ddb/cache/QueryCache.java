@@ -0,0 +1,134 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import io.github.rczyzewski.guacamole.ddb.BaseRepository;
+import io.github.rczyzewski.guacamole.ddb.MappedDeleteExpression;
+import io.github.rczyzewski.guacamole.ddb.MappedQueryExpression;
+import io.github.rczyzewski.guacamole.ddb.MappedUpdateExpression;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryIterable;
+
+/**
+ * Cache of query results of a repository. The key is the request built by {@link
+ * MappedQueryExpression#asQueryRequest()}: table, index, key condition, filter, projection and the
+ * bound values. Placeholders are assigned deterministically, so identical queries share an entry.
+ *
+ * <p>Writes executed through this class drop the cached queries of the written partition: every
+ * query of the table which binds the written hash key value. Queries of secondary indexes are
+ * dropped on any write to the table, as the item may move between their partitions.
+ *
+ * <pre>{@code
+ * QueryCache<Product> queries = new QueryCache<>(repo, client, 1_000, Duration.ofSeconds(5));
+ * List<Product> shelf = queries.query(repo.getIndexSelector().byShelf("A1"));
+ * }</pre>
+ */
+public class QueryCache<T> {
+
+  @Getter private final BaseRepository<T, ?> repository;
+  private final DynamoDbClient client;
+  private final LruCache<QueryRequest, List<T>> cache;
+
+  public QueryCache(
+      BaseRepository<T, ?> repository, DynamoDbClient client, long maxSize, Duration ttl) {
+    this(repository, client, new LruCache<>(maxSize, ttl));
+  }
+
+  QueryCache(
+      BaseRepository<T, ?> repository,
+      DynamoDbClient client,
+      LruCache<QueryRequest, List<T>> cache) {
+    this.repository = repository;
+    this.client = client;
+    this.cache = cache;
+  }
+
+  /** All items matching the query, from the cache or read from the table page by page. */
+  public List<T> query(MappedQueryExpression<T, ?> query) {
+    QueryRequest request = query.asQueryRequest();
+    List<T> cached = cache.get(request);
+    if (cached != null) return cached;
+
+    long version = cache.version();
+    List<T> items =
+        Collections.unmodifiableList(
+            new QueryIterable(client, request)
+                .stream()
+                    .map(QueryResponse::items)
+                    .map(query.pageDecoder())
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList()));
+    cache.putIfNotInvalidated(request, items, version);
+    return items;
+  }
+
+  public void put(T item) {
+    try {
+      client.putItem(repository.create(item));
+    } finally {
+      invalidate(item);
+    }
+  }
+
+  public void update(MappedUpdateExpression<T, ?> update) {
+    UpdateItemRequest request = update.asUpdateItemRequest();
+    try {
+      client.updateItem(request);
+    } finally {
+      invalidatePartition(request.key());
+    }
+  }
+
+  public void update(T item) {
+    update(repository.update(item));
+  }
+
+  public void delete(MappedDeleteExpression<T, ?> delete) {
+    DeleteItemRequest request = delete.asDeleteItemRequest();
+    try {
+      client.deleteItem(request);
+    } finally {
+      invalidatePartition(request.key());
+    }
+  }
+
+  public void delete(T item) {
+    delete(repository.delete(item));
+  }
+
+  /** Drops the queries of the partition of the item, after it was written elsewhere. */
+  public void invalidate(T item) {
+    invalidatePartition(repository.getMapper().exportKeys(item));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /**
+   * A query of the table binds its hash key value, so any query binding none of the written key
+   * values reads another partition. Matching a range key or a filter value only drops more.
+   */
+  private void invalidatePartition(Map<String, AttributeValue> keys) {
+    Collection<AttributeValue> written = keys.values();
+    cache.invalidateIf(
+        request ->
+            request.indexName() != null
+                || request.expressionAttributeValues().values().stream()
+                    .anyMatch(written::contains));
+  }
+}
@@ -0,0 +1,258 @@
+package io.github.rczyzewski.guacamole.ddb.capacity;
+
+import io.github.rczyzewski.guacamole.ddb.metrics.LatencyHistogram;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.Value;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Attributes the capacity consumed by a client to the code that sent the requests. Registered on a
+ * client, it asks DynamoDB for {@code ReturnConsumedCapacity=INDEXES} on every request and sums
+ * the reported read and write units per method, table and index, with a histogram of the units
+ * consumed by one request.
+ *
+ * <p>The method is the name given to {@link #method(String)} on the sending thread. Without one,
+ * it is the class and method that called the library when call sites are captured, or else the
+ * DynamoDB operation.
+ *
+ * <pre>{@code
+ * CapacityAccounting accounting = new CapacityAccounting(true);
+ * DynamoDbClient client =
+ *     DynamoDbClient.builder()
+ *         .overrideConfiguration(it -> it.addExecutionInterceptor(accounting))
+ *         .build();
+ * try (CapacityAccounting.Scope ignored = CapacityAccounting.method("nightly-export")) {
+ *   repo.scan().stream(client).forEach(exporter);
+ * }
+ * accounting.topConsumers(10).forEach(System.out::println);
+ * }</pre>
+ */
+public class CapacityAccounting implements ExecutionInterceptor {
+
+  private static final ExecutionAttribute<String> METHOD =
+      new ExecutionAttribute<>("GuacamoleAccountedMethod");
+  private static final ThreadLocal<String> CURRENT_METHOD = new ThreadLocal<>();
+
+  /** Frames of these packages are skipped when looking for the call site. */
+  private static final String[] LIBRARY_PACKAGES = {
+    "io.github.rczyzewski.guacamole.ddb.",
+    "software.amazon.",
+    "java.",
+    "javax.",
+    "jdk.",
+    "sun.",
+    "reactor."
+  };
+
+  /** Histograms keep whole numbers, the units are recorded in thousandths. */
+  private static final double SCALE = 1000;
+
+  private final boolean callSites;
+  private final ConcurrentMap<Key, Account> accounts = new ConcurrentHashMap<>();
+
+  public CapacityAccounting() {
+    this(false);
+  }
+
+  /**
+   * @param callSites whether requests sent outside of a {@link #method(String)} scope are charged
+   *     to the code calling the library; taking the stack trace costs several microseconds
+   */
+  public CapacityAccounting(boolean callSites) {
+    this.callSites = callSites;
+  }
+
+  /**
+   * Charges the requests sent by the current thread to the given method until the scope is
+   * closed. Scopes can be nested, the innermost one wins.
+   */
+  public static Scope method(String name) {
+    String previous = CURRENT_METHOD.get();
+    CURRENT_METHOD.set(name);
+    return () -> {
+      if (previous == null) {
+        CURRENT_METHOD.remove();
+      } else {
+        CURRENT_METHOD.set(previous);
+      }
+    };
+  }
+
+  @Override
+  public SdkRequest modifyRequest(
+      Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+    String method = CURRENT_METHOD.get();
+    if (method == null && callSites) method = callSite();
+    if (method == null) {
+      method = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    }
+    executionAttributes.putAttribute(METHOD, method);
+    return CapacityRateLimiter.withConsumedCapacity(context.request());
+  }
+
+  @Override
+  public void afterExecution(
+      Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+    String method = executionAttributes.getAttribute(METHOD);
+    boolean write = isWrite(context.request());
+    for (ConsumedCapacity consumed :
+        CapacityRateLimiter.consumedCapacityOf(context.response())) {
+      String table = consumed.tableName();
+      if (consumed.table() == null) {
+        charge(
+            new Key(method, table, null),
+            consumed.readCapacityUnits(),
+            consumed.writeCapacityUnits(),
+            consumed.capacityUnits(),
+            write);
+        continue;
+      }
+      charge(new Key(method, table, null), consumed.table(), write);
+      consumed
+          .localSecondaryIndexes()
+          .forEach((index, it) -> charge(new Key(method, table, index), it, write));
+      consumed
+          .globalSecondaryIndexes()
+          .forEach((index, it) -> charge(new Key(method, table, index), it, write));
+    }
+  }
+
+  /** Consumption of every method, table and index since creation or the last reset. */
+  public List<Consumer> consumers() {
+    return accounts.entrySet().stream()
+        .map(it -> it.getValue().snapshot(it.getKey()))
+        .collect(Collectors.toList());
+  }
+
+  /** The given number of consumers with the most units, read and written together. */
+  public List<Consumer> topConsumers(int limit) {
+    return consumers().stream()
+        .sorted(Comparator.comparingDouble(Consumer::getTotalUnits).reversed())
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  public void reset() {
+    accounts.clear();
+  }
+
+  private void charge(Key key, Capacity capacity, boolean write) {
+    charge(
+        key,
+        capacity.readCapacityUnits(),
+        capacity.writeCapacityUnits(),
+        capacity.capacityUnits(),
+        write);
+  }
+
+  /** Only the total is reported with {@code TOTAL}; it is read or write by the operation. */
+  private void charge(Key key, Double read, Double written, Double total, boolean write) {
+    double readUnits = orZero(read);
+    double writeUnits = orZero(written);
+    if (read == null && written == null) {
+      if (write) {
+        writeUnits = orZero(total);
+      } else {
+        readUnits = orZero(total);
+      }
+    }
+    accounts.computeIfAbsent(key, it -> new Account()).charge(readUnits, writeUnits);
+  }
+
+  private static boolean isWrite(SdkRequest request) {
+    return request instanceof PutItemRequest
+        || request instanceof UpdateItemRequest
+        || request instanceof DeleteItemRequest
+        || request instanceof BatchWriteItemRequest
+        || request instanceof TransactWriteItemsRequest;
+  }
+
+  private static String callSite() {
+    for (StackTraceElement frame : new Throwable().getStackTrace()) {
+      String className = frame.getClassName();
+      if (Stream.of(LIBRARY_PACKAGES).noneMatch(className::startsWith)) {
+        return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+      }
+    }
+    return null;
+  }
+
+  private static double orZero(Double value) {
+    return value == null ? 0 : value;
+  }
+
+  /** Ends a {@link #method(String)} scope. */
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /** Capacity consumed by the requests of a method on a table or an index. */
+  @Value
+  public static class Consumer {
+    String method;
+    String tableName;
+    String indexName;
+    long requests;
+    double readUnits;
+    double writeUnits;
+    double medianUnits;
+    double p99Units;
+
+    public double getTotalUnits() {
+      return readUnits + writeUnits;
+    }
+  }
+
+  @Value
+  private static class Key {
+    String method;
+    String tableName;
+    String indexName;
+  }
+
+  private static class Account {
+    private final LongAdder requests = new LongAdder();
+    private final DoubleAdder readUnits = new DoubleAdder();
+    private final DoubleAdder writeUnits = new DoubleAdder();
+    private final LatencyHistogram unitsPerRequest = new LatencyHistogram();
+
+    void charge(double read, double written) {
+      requests.increment();
+      readUnits.add(read);
+      writeUnits.add(written);
+      unitsPerRequest.record(Math.round((read + written) * SCALE));
+    }
+
+    Consumer snapshot(Key key) {
+      return new Consumer(
+          key.getMethod(),
+          key.getTableName(),
+          key.getIndexName(),
+          requests.sum(),
+          readUnits.sum(),
+          writeUnits.sum(),
+          unitsPerRequest.valueAtPercentile(0.5) / SCALE,
+          unitsPerRequest.valueAtPercentile(0.99) / SCALE);
+    }
+  }
+}
@@ -0,0 +1,472 @@
+package io.github.rczyzewski.guacamole.ddb.capacity;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+/**
+ * Keeps the capacity consumed by a client within a budget of read and write capacity units per
+ * second, for each configured table and global secondary index. Registered on a client, it asks
+ * DynamoDB for {@code ReturnConsumedCapacity=INDEXES} on every request to a limited table, charges
+ * the reported consumption to token buckets and makes the next request wait while a bucket is in
+ * debt. A scan or a bulk write is smoothed this way page by page.
+ *
+ * <pre>{@code
+ * CapacityRateLimiter limiter =
+ *     CapacityRateLimiter.builder().table("orders", 100, 50).index("orders", "byCustomer", 20, 0)
+ *         .build();
+ * DynamoDbClient client =
+ *     DynamoDbClient.builder()
+ *         .overrideConfiguration(it -> it.addExecutionInterceptor(limiter))
+ *         .build();
+ * }</pre>
+ *
+ * <p>The caller thread waits before the request is sent, also on an asynchronous client. A write
+ * waits for the write budget of its table and of every global secondary index of the table, as it
+ * may update all of them. Tables without a budget are not touched.
+ */
+@Slf4j
+public class CapacityRateLimiter implements ExecutionInterceptor {
+
+  private static final ExecutionAttribute<List<Reservation>> RESERVATIONS =
+      new ExecutionAttribute<>("GuacamoleCapacityReservations");
+
+  /** Charged before a request is sent, and given back once the real consumption is known. */
+  private static final double RESERVED_UNITS = 1;
+
+  private final Map<LimitKey, Limit> limits;
+  private final LongSupplier clock;
+  private final Sleeper sleeper;
+
+  CapacityRateLimiter(
+      Map<LimitKey, Budget> budgets, Duration burst, LongSupplier clock, Sleeper sleeper) {
+    this.clock = clock;
+    this.sleeper = sleeper;
+    long now = clock.getAsLong();
+    double burstSeconds = burst.toNanos() / 1_000_000_000d;
+    Map<LimitKey, Limit> created = new LinkedHashMap<>();
+    budgets.forEach(
+        (key, budget) ->
+            created.put(
+                key,
+                new Limit(
+                    key,
+                    bucket(budget.getReadUnitsPerSecond(), burstSeconds, now),
+                    bucket(budget.getWriteUnitsPerSecond(), burstSeconds, now))));
+    this.limits = Collections.unmodifiableMap(created);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public SdkRequest modifyRequest(
+      Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+    SdkRequest request = context.request();
+    List<Reservation> reservations = reservationsOf(request);
+    if (reservations.isEmpty()) return request;
+
+    reservations.forEach(this::acquire);
+    executionAttributes.putAttribute(RESERVATIONS, reservations);
+    return withConsumedCapacity(request);
+  }
+
+  @Override
+  public void afterExecution(
+      Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+    List<Reservation> reservations = executionAttributes.getAttribute(RESERVATIONS);
+    if (reservations == null) return;
+
+    long now = clock.getAsLong();
+    release(reservations, now);
+    boolean write = reservations.get(0).isWrite();
+    for (ConsumedCapacity consumed : consumedCapacityOf(context.response())) {
+      charge(consumed, write, now);
+    }
+  }
+
+  @Override
+  public void onExecutionFailure(
+      Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+    List<Reservation> reservations = executionAttributes.getAttribute(RESERVATIONS);
+    if (reservations != null) release(reservations, clock.getAsLong());
+  }
+
+  /** Consumption and waiting time of every limited table and index since creation. */
+  public List<Usage> usage() {
+    return limits.values().stream().map(Limit::usage).collect(Collectors.toList());
+  }
+
+  private void acquire(Reservation reservation) {
+    Limit limit = reservation.getLimit();
+    TokenBucket bucket = reservation.isWrite() ? limit.getWrite() : limit.getRead();
+    long waited = 0;
+    long wait;
+    while ((wait = bucket.nanosUntilAvailable(clock.getAsLong())) > 0) {
+      if (!sleeper.sleep(wait)) break;
+      waited += wait;
+    }
+    bucket.consume(RESERVED_UNITS, clock.getAsLong());
+    limit.getRequests().increment();
+    if (waited > 0) {
+      limit.getDelayedRequests().increment();
+      limit.getWaitedNanos().add(waited);
+      log.trace("waited {} ms for capacity of {}", TimeUnit.NANOSECONDS.toMillis(waited), limit);
+    }
+  }
+
+  private static void release(List<Reservation> reservations, long now) {
+    for (Reservation it : reservations) {
+      (it.isWrite() ? it.getLimit().getWrite() : it.getLimit().getRead())
+          .consume(-RESERVED_UNITS, now);
+    }
+  }
+
+  private void charge(ConsumedCapacity consumed, boolean write, long now) {
+    String table = consumed.tableName();
+    Limit tableLimit = limits.get(new LimitKey(table, null));
+    if (consumed.table() != null) {
+      charge(tableLimit, consumed.table(), write, now);
+      // local indexes share the throughput of the table
+      consumed.localSecondaryIndexes().values().forEach(it -> charge(tableLimit, it, write, now));
+      consumed
+          .globalSecondaryIndexes()
+          .forEach((index, it) -> charge(limits.get(new LimitKey(table, index)), it, write, now));
+    } else {
+      charge(
+          tableLimit,
+          Capacity.builder()
+              .readCapacityUnits(consumed.readCapacityUnits())
+              .writeCapacityUnits(consumed.writeCapacityUnits())
+              .capacityUnits(consumed.capacityUnits())
+              .build(),
+          write,
+          now);
+    }
+  }
+
+  private static void charge(Limit limit, Capacity capacity, boolean write, long now) {
+    if (limit == null) return;
+    double read = orZero(capacity.readCapacityUnits());
+    double written = orZero(capacity.writeCapacityUnits());
+    if (capacity.readCapacityUnits() == null && capacity.writeCapacityUnits() == null) {
+      if (write) {
+        written = orZero(capacity.capacityUnits());
+      } else {
+        read = orZero(capacity.capacityUnits());
+      }
+    }
+    if (read > 0) {
+      if (limit.getRead() != null) limit.getRead().consume(read, now);
+      limit.getConsumedReadUnits().add(read);
+    }
+    if (written > 0) {
+      if (limit.getWrite() != null) limit.getWrite().consume(written, now);
+      limit.getConsumedWriteUnits().add(written);
+    }
+  }
+
+  private List<Reservation> reservationsOf(SdkRequest request) {
+    List<Reservation> reservations = new ArrayList<>();
+    if (request instanceof GetItemRequest) {
+      reserve(reservations, ((GetItemRequest) request).tableName(), null, false);
+    } else if (request instanceof QueryRequest) {
+      QueryRequest query = (QueryRequest) request;
+      reserve(reservations, query.tableName(), query.indexName(), false);
+    } else if (request instanceof ScanRequest) {
+      ScanRequest scan = (ScanRequest) request;
+      reserve(reservations, scan.tableName(), scan.indexName(), false);
+    } else if (request instanceof BatchGetItemRequest) {
+      reserveAll(reservations, ((BatchGetItemRequest) request).requestItems().keySet(), false);
+    } else if (request instanceof TransactGetItemsRequest) {
+      reserveAll(
+          reservations,
+          ((TransactGetItemsRequest) request)
+              .transactItems().stream()
+                  .map(it -> it.get().tableName())
+                  .collect(Collectors.toSet()),
+          false);
+    } else if (request instanceof PutItemRequest) {
+      reserveWrite(reservations, ((PutItemRequest) request).tableName());
+    } else if (request instanceof UpdateItemRequest) {
+      reserveWrite(reservations, ((UpdateItemRequest) request).tableName());
+    } else if (request instanceof DeleteItemRequest) {
+      reserveWrite(reservations, ((DeleteItemRequest) request).tableName());
+    } else if (request instanceof BatchWriteItemRequest) {
+      reserveAll(reservations, ((BatchWriteItemRequest) request).requestItems().keySet(), true);
+    } else if (request instanceof TransactWriteItemsRequest) {
+      reserveAll(
+          reservations,
+          ((TransactWriteItemsRequest) request)
+              .transactItems().stream()
+                  .map(CapacityRateLimiter::tableOf)
+                  .collect(Collectors.toSet()),
+          true);
+    }
+    return reservations;
+  }
+
+  private void reserve(List<Reservation> reservations, String table, String index, boolean write) {
+    Limit limit = limits.get(new LimitKey(table, index));
+    if (limit != null && (write ? limit.getWrite() : limit.getRead()) != null) {
+      reservations.add(new Reservation(limit, write));
+    }
+  }
+
+  /** A write also updates the global secondary indexes, so it waits for their budgets too. */
+  private void reserveWrite(List<Reservation> reservations, String table) {
+    for (Limit limit : limits.values()) {
+      if (limit.getKey().getTableName().equals(table) && limit.getWrite() != null) {
+        reservations.add(new Reservation(limit, true));
+      }
+    }
+  }
+
+  private void reserveAll(
+      List<Reservation> reservations, Collection<String> tables, boolean write) {
+    for (String table : tables) {
+      if (write) {
+        reserveWrite(reservations, table);
+      } else {
+        reserve(reservations, table, null, false);
+      }
+    }
+  }
+
+  private static String tableOf(TransactWriteItem item) {
+    if (item.put() != null) return item.put().tableName();
+    if (item.update() != null) return item.update().tableName();
+    if (item.delete() != null) return item.delete().tableName();
+    return item.conditionCheck().tableName();
+  }
+
+  static SdkRequest withConsumedCapacity(SdkRequest request) {
+    ReturnConsumedCapacity indexes = ReturnConsumedCapacity.INDEXES;
+    if (request instanceof GetItemRequest) {
+      return ((GetItemRequest) request).toBuilder().returnConsumedCapacity(indexes).build();
+    } else if (request instanceof QueryRequest) {
+      return ((QueryRequest) request).toBuilder().returnConsumedCapacity(indexes).build();
+    } else if (request instanceof ScanRequest) {
+      return ((ScanRequest) request).toBuilder().returnConsumedCapacity(indexes).build();
+    } else if (request instanceof BatchGetItemRequest) {
+      return ((BatchGetItemRequest) request).toBuilder().returnConsumedCapacity(indexes).build();
+    } else if (request instanceof TransactGetItemsRequest) {
+      return ((TransactGetItemsRequest) request)
+          .toBuilder()
+          .returnConsumedCapacity(indexes)
+          .build();
+    } else if (request instanceof PutItemRequest) {
+      return ((PutItemRequest) request).toBuilder().returnConsumedCapacity(indexes).build();
+    } else if (request instanceof UpdateItemRequest) {
+      return ((UpdateItemRequest) request).toBuilder().returnConsumedCapacity(indexes).build();
+    } else if (request instanceof DeleteItemRequest) {
+      return ((DeleteItemRequest) request).toBuilder().returnConsumedCapacity(indexes).build();
+    } else if (request instanceof BatchWriteItemRequest) {
+      return ((BatchWriteItemRequest) request).toBuilder().returnConsumedCapacity(indexes).build();
+    } else if (request instanceof TransactWriteItemsRequest) {
+      return ((TransactWriteItemsRequest) request)
+          .toBuilder()
+          .returnConsumedCapacity(indexes)
+          .build();
+    }
+    return request;
+  }
+
+  static List<ConsumedCapacity> consumedCapacityOf(SdkResponse response) {
+    ConsumedCapacity single = null;
+    if (response instanceof GetItemResponse) {
+      single = ((GetItemResponse) response).consumedCapacity();
+    } else if (response instanceof QueryResponse) {
+      single = ((QueryResponse) response).consumedCapacity();
+    } else if (response instanceof ScanResponse) {
+      single = ((ScanResponse) response).consumedCapacity();
+    } else if (response instanceof PutItemResponse) {
+      single = ((PutItemResponse) response).consumedCapacity();
+    } else if (response instanceof UpdateItemResponse) {
+      single = ((UpdateItemResponse) response).consumedCapacity();
+    } else if (response instanceof DeleteItemResponse) {
+      single = ((DeleteItemResponse) response).consumedCapacity();
+    } else if (response instanceof BatchGetItemResponse) {
+      return ((BatchGetItemResponse) response).consumedCapacity();
+    } else if (response instanceof BatchWriteItemResponse) {
+      return ((BatchWriteItemResponse) response).consumedCapacity();
+    } else if (response instanceof TransactGetItemsResponse) {
+      return ((TransactGetItemsResponse) response).consumedCapacity();
+    } else if (response instanceof TransactWriteItemsResponse) {
+      return ((TransactWriteItemsResponse) response).consumedCapacity();
+    }
+    return single == null ? Collections.emptyList() : Collections.singletonList(single);
+  }
+
+  private static TokenBucket bucket(double unitsPerSecond, double burstSeconds, long now) {
+    if (unitsPerSecond <= 0) return null;
+    return new TokenBucket(unitsPerSecond, Math.max(1, unitsPerSecond * burstSeconds), now);
+  }
+
+  private static double orZero(Double value) {
+    return value == null ? 0 : value;
+  }
+
+  /** Waits for the given time; returns false when interrupted. */
+  interface Sleeper {
+    boolean sleep(long nanos);
+  }
+
+  private static boolean sleep(long nanos) {
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /** Capacity units per second allowed for a table or an index; zero means no limit. */
+  @Value
+  public static class Budget {
+    double readUnitsPerSecond;
+    double writeUnitsPerSecond;
+  }
+
+  @Value
+  static class LimitKey {
+    String tableName;
+    String indexName;
+  }
+
+  /** Consumption reported by DynamoDB and time requests waited for capacity. */
+  @Value
+  public static class Usage {
+    String tableName;
+    String indexName;
+    double consumedReadUnits;
+    double consumedWriteUnits;
+    long requests;
+    long delayedRequests;
+    Duration waited;
+  }
+
+  @Value
+  private static class Reservation {
+    Limit limit;
+    boolean write;
+  }
+
+  @Getter(AccessLevel.PRIVATE)
+  @RequiredArgsConstructor
+  private static class Limit {
+    private final LimitKey key;
+    private final TokenBucket read;
+    private final TokenBucket write;
+    private final DoubleAdder consumedReadUnits = new DoubleAdder();
+    private final DoubleAdder consumedWriteUnits = new DoubleAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder delayedRequests = new LongAdder();
+    private final LongAdder waitedNanos = new LongAdder();
+
+    Usage usage() {
+      return new Usage(
+          key.getTableName(),
+          key.getIndexName(),
+          consumedReadUnits.sum(),
+          consumedWriteUnits.sum(),
+          requests.sum(),
+          delayedRequests.sum(),
+          Duration.ofNanos(waitedNanos.sum()));
+    }
+
+    @Override
+    public String toString() {
+      return key.getIndexName() == null
+          ? key.getTableName()
+          : key.getTableName() + "/" + key.getIndexName();
+    }
+  }
+
+  public static class Builder {
+    private final Map<LimitKey, Budget> budgets = new LinkedHashMap<>();
+    private Duration burst = Duration.ofSeconds(1);
+    private LongSupplier clock = System::nanoTime;
+    private Sleeper sleeper = CapacityRateLimiter::sleep;
+
+    /** Budget of the table itself, not including its global secondary indexes. */
+    public Builder table(String tableName, double readUnitsPerSecond, double writeUnitsPerSecond) {
+      budgets.put(
+          new LimitKey(tableName, null), new Budget(readUnitsPerSecond, writeUnitsPerSecond));
+      return this;
+    }
+
+    /**
+     * Budget of a global secondary index. Queries and scans of the index wait for its read
+     * capacity; writes to the table are charged with what they consumed on the index.
+     */
+    public Builder index(
+        String tableName, String indexName, double readUnitsPerSecond, double writeUnitsPerSecond) {
+      budgets.put(
+          new LimitKey(tableName, indexName), new Budget(readUnitsPerSecond, writeUnitsPerSecond));
+      return this;
+    }
+
+    /** How long unused capacity is saved up; one second by default, like DynamoDB. */
+    public Builder burst(Duration burst) {
+      this.burst = burst;
+      return this;
+    }
+
+    Builder clock(LongSupplier clock, Sleeper sleeper) {
+      this.clock = clock;
+      this.sleeper = sleeper;
+      return this;
+    }
+
+    public CapacityRateLimiter build() {
+      return new CapacityRateLimiter(budgets, burst, clock, sleeper);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package io.github.rczyzewski.guacamole.ddb.capacity;
+
+/**
+ * Capacity units refilled at a constant rate, up to a burst. The consumed capacity is known only
+ * after a response, so the balance can go below zero; callers wait until it is positive again.
+ */
+class TokenBucket {
+
+  private final double unitsPerNano;
+  private final double burst;
+  private double units;
+  private long refilledAt;
+
+  TokenBucket(double unitsPerSecond, double burst, long now) {
+    this.unitsPerNano = unitsPerSecond / 1_000_000_000d;
+    this.burst = burst;
+    this.units = burst;
+    this.refilledAt = now;
+  }
+
+  /** Time until the balance is positive; zero when capacity is available now. */
+  synchronized long nanosUntilAvailable(long now) {
+    refill(now);
+    return units > 0 ? 0 : (long) Math.ceil(-units / unitsPerNano) + 1;
+  }
+
+  synchronized void consume(double consumed, long now) {
+    refill(now);
+    units = Math.min(burst, units - consumed);
+  }
+
+  synchronized double available(long now) {
+    refill(now);
+    return units;
+  }
+
+  private void refill(long now) {
+    if (now > refilledAt) {
+      units = Math.min(burst, units + (now - refilledAt) * unitsPerNano);
+      refilledAt = now;
+    }
+  }
+}
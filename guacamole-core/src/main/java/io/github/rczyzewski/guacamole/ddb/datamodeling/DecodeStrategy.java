@@ -0,0 +1,15 @@
+package io.github.rczyzewski.guacamole.ddb.datamodeling;
+
+/**
+ * Controls how the generated codec creates a bean from a DynamoDB item.
+ *
+ * <ul>
+ *   <li>{@link #WITHER} starts from an empty bean and calls {@code withX(..)} for each attribute,
+ *       creating an intermediate object per attribute.
+ *   <li>{@link #BUILDER} fills a Lombok builder ({@code X.XBuilder}) and builds the bean once.
+ * </ul>
+ */
+public enum DecodeStrategy {
+  WITHER,
+  BUILDER
+}
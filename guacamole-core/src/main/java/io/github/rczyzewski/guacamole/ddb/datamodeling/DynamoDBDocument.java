@@ -12,4 +12,7 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.SOURCE)
 @Target({ElementType.TYPE})
 @Inherited
-public @interface DynamoDBDocument {}
+public @interface DynamoDBDocument {
+
+  DecodeStrategy decode() default DecodeStrategy.WITHER;
+}
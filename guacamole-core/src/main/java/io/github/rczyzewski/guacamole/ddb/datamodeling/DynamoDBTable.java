@@ -12,4 +12,7 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE})
 @Inherited
-public @interface DynamoDBTable {}
+public @interface DynamoDBTable {
+
+  DecodeStrategy decode() default DecodeStrategy.WITHER;
+}
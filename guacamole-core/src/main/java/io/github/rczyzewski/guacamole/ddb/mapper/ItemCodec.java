@@ -0,0 +1,34 @@
+package io.github.rczyzewski.guacamole.ddb.mapper;
+
+import java.util.Collection;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Straight-line conversion between a bean and its DynamoDB item. Implementations are generated by
+ * the annotation processor for each {@code @DynamoDBTable} and {@code @DynamoDBDocument} class, so
+ * {@link LiveMappingDescription} can skip the per-field lambdas when such a codec is available.
+ */
+public interface ItemCodec<T> {
+
+  Map<String, AttributeValue> encode(T bean);
+
+  Map<String, AttributeValue> encodeKeys(T bean);
+
+  T decode(Map<String, AttributeValue> item);
+
+  /** Decodes only the given top level attributes, the ones requested with a projection. */
+  default T decode(Map<String, AttributeValue> item, Collection<String> attributes) {
+    return decode(item);
+  }
+
+  /** Size of the encoded item, computed by generated codecs without building the item. */
+  default long sizeOf(T bean) {
+    return ItemSizeCalculator.sizeOf(encode(bean));
+  }
+
+  /** Size of the bean stored as a document, an attribute of type {@code M}. */
+  default long documentSizeOf(T bean) {
+    return ItemSizeCalculator.sizeOf(AttributeValue.fromM(encode(bean)));
+  }
+}
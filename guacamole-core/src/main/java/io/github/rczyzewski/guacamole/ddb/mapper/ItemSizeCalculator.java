@@ -0,0 +1,224 @@
+package io.github.rczyzewski.guacamole.ddb.mapper;
+
+import java.util.List;
+import java.util.Map;
+import lombok.experimental.UtilityClass;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Computes the size DynamoDB bills for an item, following the rules of the developer guide:
+ * attribute names and strings count their UTF-8 bytes, binaries their length, numbers one byte
+ * per two significant digits plus one byte, and every document or list adds three bytes and one
+ * byte per element. The item is walked in place: no strings are encoded and no intermediate
+ * collections are created, so it is cheap enough to run on every write.
+ *
+ * <p>An item of a mapped entity is measured with {@link LiveMappingDescription#sizeOf(Object)},
+ * which does not build the item when the mapper has a generated codec. Nested documents and lists
+ * are measured the same way; only fields with a custom converter are converted, and floating point
+ * numbers formatted, before being measured.
+ */
+@UtilityClass
+public class ItemSizeCalculator {
+
+  /** Largest item accepted by DynamoDB. */
+  public static final int MAX_ITEM_SIZE = 400 * 1024;
+
+  /** Bytes of an item read with one read capacity unit. */
+  public static final int READ_UNIT_SIZE = 4 * 1024;
+
+  /** Bytes of an item written with one write capacity unit. */
+  public static final int WRITE_UNIT_SIZE = 1024;
+
+  /** Bytes added by every document and list, on top of their elements. */
+  public static final int CONTAINER_OVERHEAD = 3;
+
+  /** Bytes added by every element of a document or a list. */
+  public static final int ELEMENT_OVERHEAD = 1;
+
+  public static long sizeOf(Map<String, AttributeValue> item) {
+    long size = 0;
+    for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+      size += utf8Length(attribute.getKey()) + sizeOf(attribute.getValue());
+    }
+    return size;
+  }
+
+  public static long sizeOf(AttributeValue value) {
+    switch (value.type()) {
+      case S:
+        return utf8Length(value.s());
+      case N:
+        return numberSize(value.n());
+      case B:
+        return value.b().asByteArrayUnsafe().length;
+      case BOOL:
+      case NUL:
+        return 1;
+      case SS:
+        return stringsSize(value.ss());
+      case NS:
+        return numbersSize(value.ns());
+      case BS:
+        return binariesSize(value.bs());
+      case M:
+        return CONTAINER_OVERHEAD + mapSize(value.m());
+      case L:
+        return CONTAINER_OVERHEAD + listSize(value.l());
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Read capacity units consumed by reading an item of the given size with {@code GetItem}. A
+   * transactional read costs twice as much as a strongly consistent one.
+   */
+  public static double readCapacityUnits(long size, boolean stronglyConsistent) {
+    long units = Math.max(1, (size + READ_UNIT_SIZE - 1) / READ_UNIT_SIZE);
+    return stronglyConsistent ? units : units / 2.0;
+  }
+
+  /**
+   * Write capacity units consumed by writing an item of the given size. For updates and deletes
+   * the larger of the item before and after the write counts; transactional writes cost twice as
+   * much.
+   */
+  public static long writeCapacityUnits(long size) {
+    return Math.max(1, (size + WRITE_UNIT_SIZE - 1) / WRITE_UNIT_SIZE);
+  }
+
+  /** Length of the UTF-8 encoding, without encoding; unpaired surrogates count as {@code ?}. */
+  public static int utf8Length(CharSequence value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (!Character.isSurrogate(c)) {
+        length += 3;
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length++;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Numbers are stored as base-100 digits aligned to the decimal point, without leading and
+   * trailing zeros, plus one byte of exponent and one more for negative numbers. At most 38
+   * significant digits are accepted, so the size is at most 21 bytes.
+   */
+  public static int numberSize(CharSequence number) {
+    int end = number.length();
+    int point = -1;
+    int exponent = 0;
+    for (int i = 0; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c == '.') {
+        point = i;
+      } else if (c == 'e' || c == 'E') {
+        end = i;
+        exponent = parseExponent(number, i + 1);
+        break;
+      }
+    }
+    if (point < 0) point = end;
+
+    boolean negative = false;
+    boolean significant = false;
+    int highest = 0;
+    int lowest = 0;
+    for (int i = 0; i < end; i++) {
+      char c = number.charAt(i);
+      if (c == '-') negative = true;
+      if (c < '1' || c > '9') continue;
+      int power = (i < point ? point - i - 1 : point - i) + exponent;
+      if (!significant) highest = power;
+      significant = true;
+      lowest = power;
+    }
+    if (!significant) return 1;
+    int size = Math.floorDiv(highest, 2) - Math.floorDiv(lowest, 2) + 2;
+    return negative ? size + 1 : size;
+  }
+
+  /** Same as {@link #numberSize(CharSequence)} for an integer, without formatting it. */
+  public static int numberSize(long number) {
+    if (number == 0) return 1;
+    int lowest = 0;
+    long rest = number;
+    while (rest % 10 == 0) {
+      rest /= 10;
+      lowest++;
+    }
+    int highest = lowest;
+    while (rest / 10 != 0) {
+      rest /= 10;
+      highest++;
+    }
+    int size = highest / 2 - lowest / 2 + 2;
+    return number < 0 ? size + 1 : size;
+  }
+
+  private static int parseExponent(CharSequence number, int start) {
+    int exponent = 0;
+    boolean negative = false;
+    for (int i = start; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c == '-') {
+        negative = true;
+      } else if (c >= '0' && c <= '9') {
+        exponent = exponent * 10 + (c - '0');
+      }
+    }
+    return negative ? -exponent : exponent;
+  }
+
+  private static long mapSize(Map<String, AttributeValue> map) {
+    long size = 0;
+    for (Map.Entry<String, AttributeValue> entry : map.entrySet()) {
+      size += ELEMENT_OVERHEAD + utf8Length(entry.getKey()) + sizeOf(entry.getValue());
+    }
+    return size;
+  }
+
+  private static long listSize(List<AttributeValue> list) {
+    long size = 0;
+    for (int i = 0; i < list.size(); i++) {
+      size += ELEMENT_OVERHEAD + sizeOf(list.get(i));
+    }
+    return size;
+  }
+
+  private static long stringsSize(List<String> strings) {
+    long size = 0;
+    for (int i = 0; i < strings.size(); i++) {
+      size += utf8Length(strings.get(i));
+    }
+    return size;
+  }
+
+  private static long numbersSize(List<String> numbers) {
+    long size = 0;
+    for (int i = 0; i < numbers.size(); i++) {
+      size += numberSize(numbers.get(i));
+    }
+    return size;
+  }
+
+  private static long binariesSize(List<SdkBytes> binaries) {
+    long size = 0;
+    for (int i = 0; i < binaries.size(); i++) {
+      size += binaries.get(i).asByteArrayUnsafe().length;
+    }
+    return size;
+  }
+}
@@ -3,6 +3,7 @@ package io.github.rczyzewski.guacamole.ddb.mapper;
 import io.github.rczyzewski.guacamole.ddb.MappedDeleteExpression;
 import io.github.rczyzewski.guacamole.ddb.MappedScanExpression;
 import io.github.rczyzewski.guacamole.ddb.MappedUpdateExpression;
+import io.github.rczyzewski.guacamole.ddb.path.Path;
 import io.github.rczyzewski.guacamole.ddb.path.PrimitiveElement;
 import java.util.*;
 import java.util.function.Function;
@@ -21,13 +22,45 @@ public class LiveMappingDescription<T> {
   private final Supplier<T> supplier;
   private final List<FieldMappingDescription<T>> fields;
   private final Map<String, FieldMappingDescription<T>> dict;
+  /** Attribute name to its {@code #} placeholder, built once from the generated short codes. */
+  private final Map<String, String> placeholders;
+
+  private final ItemCodec<T> codec;
 
   public LiveMappingDescription(Supplier<T> supplier, List<FieldMappingDescription<T>> fields) {
+    this(supplier, fields, null);
+  }
+
+  public LiveMappingDescription(
+      Supplier<T> supplier, List<FieldMappingDescription<T>> fields, ItemCodec<T> codec) {
     this.supplier = supplier;
     this.fields = fields;
+    this.codec = codec;
     dict =
         fields.stream()
             .collect(Collectors.toMap(FieldMappingDescription::getDdbName, Function.identity()));
+    placeholders =
+        Collections.unmodifiableMap(
+            fields.stream()
+                .collect(
+                    Collectors.toMap(
+                        FieldMappingDescription::getDdbName, it -> "#" + it.getShortCode())));
+  }
+
+  /**
+   * Puts the placeholders of all parts of the path into the accumulator. Attributes of this mapping
+   * use their generated short codes; other names (attributes of nested documents) get a lowercase
+   * code, so they never clash with the uppercase short codes.
+   */
+  public void resolvePlaceholders(
+      Path<T> path, ConsecutiveIdGenerator idGenerator, Map<String, String> accumulator) {
+    for (String part : path.getPartsName()) {
+      if (accumulator.containsKey(part)) continue;
+      String placeholder = placeholders.get(part);
+      accumulator.put(
+          part,
+          placeholder != null ? placeholder : "#" + idGenerator.get().toLowerCase(Locale.ROOT));
+    }
   }
 
   public Map<String, Collection<WriteRequest>> writeRequest(String table, T[] objects) {
@@ -37,16 +70,7 @@ public class LiveMappingDescription<T> {
             .map(
                 object ->
                     WriteRequest.builder()
-                        .putRequest(
-                            PutRequest.builder()
-                                .item(
-                                    fields.stream()
-                                        .filter(it -> it.getExport().apply(object).isPresent())
-                                        .collect(
-                                            Collectors.toMap(
-                                                FieldMappingDescription::getDdbName,
-                                                it -> it.getExport().apply(object).get())))
-                                .build())
+                        .putRequest(PutRequest.builder().item(export(object)).build())
                         .build())
             .collect(Collectors.toList());
 
@@ -69,10 +93,12 @@ public class LiveMappingDescription<T> {
     MappedUpdateExpression.RczSetExpressionGenerator<T> ddd =
         new MappedUpdateExpression.RczSetExpressionGenerator<>();
 
+    Map<String, AttributeValue> exported = this.export(object);
+
     List<MappedUpdateExpression.Statement<T>> setExpressions =
         fields.stream()
             .filter(it -> !it.isKeyValue())
-            .filter(it -> it.getExport().apply(object).isPresent())
+            .filter(it -> exported.containsKey(it.getDdbName()))
             .map(
                 it ->
                     MappedUpdateExpression.UpdateStatement.<T>builder()
@@ -83,9 +109,7 @@ public class LiveMappingDescription<T> {
                                     .selectedElement(it.getDdbName())
                                     .build()))
                         .override(true)
-                        .value(
-                            ddd.just(
-                                it.getExport().apply(object).orElseThrow(RuntimeException::new)))
+                        .value(ddd.just(exported.get(it.getDdbName())))
                         .build())
             .collect(Collectors.toList());
 
@@ -102,6 +126,8 @@ public class LiveMappingDescription<T> {
 
   public T transform(Map<String, AttributeValue> m) {
 
+    if (codec != null) return codec.decode(m);
+
     T initialObject = supplier.get();
 
     for (Map.Entry<String, AttributeValue> e : m.entrySet()) {
@@ -116,7 +142,39 @@ public class LiveMappingDescription<T> {
     return initialObject;
   }
 
+  /**
+   * Decoder for items fetched with a projection: only the given top level attributes are visited,
+   * by the generated codec when there is one.
+   */
+  public Function<Map<String, AttributeValue>, T> projectedDecoder(Collection<String> attributes) {
+
+    if (codec != null) {
+      List<String> requested = attributes.stream().distinct().collect(Collectors.toList());
+      return item -> codec.decode(item, requested);
+    }
+
+    List<FieldMappingDescription<T>> projected =
+        attributes.stream()
+            .distinct()
+            .map(dict::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+
+    return item -> {
+      T bean = supplier.get();
+      for (FieldMappingDescription<T> field : projected) {
+        AttributeValue value = item.get(field.getDdbName());
+        if (value != null) {
+          bean = field.getWither().apply(bean, value);
+        }
+      }
+      return bean;
+    };
+  }
+
   public Map<String, AttributeValue> export(T object) {
+    if (codec != null) return codec.encode(object);
+
     return fields.stream()
         .collect(
             Collectors.toMap(
@@ -127,7 +185,42 @@ public class LiveMappingDescription<T> {
         .collect(Collectors.toMap(Map.Entry::getKey, it -> it.getValue().get()));
   }
 
+  /** Size DynamoDB bills for the item of the object, see {@link ItemSizeCalculator}. */
+  public long sizeOf(T object) {
+    if (codec != null) return codec.sizeOf(object);
+
+    long size = 0;
+    for (FieldMappingDescription<T> field : fields) {
+      Optional<AttributeValue> value = field.getExport().apply(object);
+      if (value.isPresent()) {
+        size +=
+            ItemSizeCalculator.utf8Length(field.getDdbName())
+                + ItemSizeCalculator.sizeOf(value.get());
+      }
+    }
+    return size;
+  }
+
+  /** Same as {@link #sizeOf(Object)} for the object stored as a document of another item. */
+  public long documentSizeOf(T object) {
+    if (codec != null) return codec.documentSizeOf(object);
+
+    long size = ItemSizeCalculator.CONTAINER_OVERHEAD;
+    for (FieldMappingDescription<T> field : fields) {
+      Optional<AttributeValue> value = field.getExport().apply(object);
+      if (value.isPresent()) {
+        size +=
+            ItemSizeCalculator.ELEMENT_OVERHEAD
+                + ItemSizeCalculator.utf8Length(field.getDdbName())
+                + ItemSizeCalculator.sizeOf(value.get());
+      }
+    }
+    return size;
+  }
+
   public Map<String, AttributeValue> exportKeys(T object) {
+    if (codec != null) return codec.encodeKeys(object);
+
     return fields.stream()
         .filter(FieldMappingDescription::isKeyValue)
         .collect(
@@ -2,6 +2,7 @@ package io.github.rczyzewski.guacamole.ddb.mapper;
 
 import io.github.rczyzewski.guacamole.ddb.path.Path;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -30,6 +31,27 @@ public interface LogicalExpression<T> {
 
   Map<String, String> getAttributesMap();
 
+  /**
+   * Passes every value of the expression, together with its placeholder, to the sink. The order is
+   * the same for all expressions of the same shape; placeholders are null until the expression is
+   * prepared.
+   */
+  void collectValues(BiConsumer<String, AttributeValue> sink);
+
+  /**
+   * Appends the structure of the expression: functions, operators and paths, with {@code ?} in
+   * place of values. Expressions with the same structure serialize to the same text.
+   */
+  void appendShape(StringBuilder shape);
+
+  /** Structure of the expression, see {@link #appendShape(StringBuilder)}; null for none. */
+  static String shapeOf(LogicalExpression<?> expression) {
+    if (expression == null) return null;
+    StringBuilder shape = new StringBuilder();
+    expression.appendShape(shape);
+    return shape.toString();
+  }
+
   @AllArgsConstructor
   @RequiredArgsConstructor
   class AttributeExists<K> implements LogicalExpression<K> {
@@ -52,8 +74,7 @@ public interface LogicalExpression<T> {
         ConsecutiveIdGenerator idGenerator,
         LiveMappingDescription<K> liveMappingDescription,
         Map<String, String> shortCodeAccumulator) {
-      path.getPartsName()
-          .forEach(it -> shortCodeAccumulator.computeIfAbsent(it, ignored -> idGenerator.get()));
+      liveMappingDescription.resolvePlaceholders(path, idGenerator, shortCodeAccumulator);
 
       return this.withShortCodeAccumulator(shortCodeAccumulator);
     }
@@ -63,6 +84,16 @@ public interface LogicalExpression<T> {
       return Collections.emptyMap();
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      // only attribute names are referenced
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape.append(shouldExists ? "exists(" : "not_exists(").append(path.serialize()).append(')');
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       Set<String> parts = path.getPartsName();
@@ -93,8 +124,7 @@ public interface LogicalExpression<T> {
         ConsecutiveIdGenerator idGenerator,
         LiveMappingDescription<K> liveMappingDescription,
         Map<String, String> shortCodeAccumulator) {
-      path.getPartsName()
-          .forEach(it -> shortCodeAccumulator.computeIfAbsent(it, ignored -> idGenerator.get()));
+      liveMappingDescription.resolvePlaceholders(path, idGenerator, shortCodeAccumulator);
 
       return this.withValueCode(":" + idGenerator.get())
           .withShortCodeAccumulator(shortCodeAccumulator);
@@ -105,6 +135,16 @@ public interface LogicalExpression<T> {
       return Collections.singletonMap(this.valueCode, AttributeValue.fromS(type.getType()));
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      sink.accept(valueCode, AttributeValue.fromS(type.getType()));
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape.append("attribute_type(").append(path.serialize()).append(", ?)");
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       Set<String> parts = path.getPartsName();
@@ -162,11 +202,8 @@ public interface LogicalExpression<T> {
         ConsecutiveIdGenerator idGenerator,
         LiveMappingDescription<K> liveMappingDescription,
         Map<String, String> shortCodeAccumulator) {
-      path.getPartsName()
-          .forEach(it -> shortCodeAccumulator.computeIfAbsent(it, ignored -> idGenerator.get()));
-      otherPath
-          .getPartsName()
-          .forEach(it -> shortCodeAccumulator.computeIfAbsent(it, ignored -> idGenerator.get()));
+      liveMappingDescription.resolvePlaceholders(path, idGenerator, shortCodeAccumulator);
+      liveMappingDescription.resolvePlaceholders(otherPath, idGenerator, shortCodeAccumulator);
 
       return this.withShortCodeAccumulator(shortCodeAccumulator);
     }
@@ -176,6 +213,21 @@ public interface LogicalExpression<T> {
       return Collections.emptyMap();
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      // only attribute names are referenced
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape
+          .append(path.serialize())
+          .append(' ')
+          .append(operator.getSymbol())
+          .append(' ')
+          .append(otherPath.serialize());
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       Set<String> parts = new HashSet<>();
@@ -213,8 +265,7 @@ public interface LogicalExpression<T> {
         LiveMappingDescription<K> liveMappingDescription,
         Map<String, String> shortCodeAccumulator) {
 
-      path.getPartsName()
-          .forEach(it -> shortCodeAccumulator.computeIfAbsent(it, ignored -> idGenerator.get()));
+      liveMappingDescription.resolvePlaceholders(path, idGenerator, shortCodeAccumulator);
       return this.withShortCodeAccumulator(shortCodeAccumulator)
           .withShortValueCode2(":" + idGenerator.get())
           .withShortValueCode(":" + idGenerator.get());
@@ -228,6 +279,17 @@ public interface LogicalExpression<T> {
       return ret;
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      sink.accept(shortValueCode, dynamoDBEncodedValue);
+      sink.accept(shortValueCode2, dynamoDBEncodedValue2);
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape.append(path.serialize()).append(" BETWEEN ? AND ?");
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       Set<String> parts = path.getPartsName();
@@ -259,8 +321,7 @@ public interface LogicalExpression<T> {
         LiveMappingDescription<K> liveMappingDescription,
         Map<String, String> shortCodeAccumulator) {
 
-      path.getPartsName()
-          .forEach(it -> shortCodeAccumulator.computeIfAbsent(it, ignored -> idGenerator.get()));
+      liveMappingDescription.resolvePlaceholders(path, idGenerator, shortCodeAccumulator);
       return this.withShortCodeAccumulator(shortCodeAccumulator)
           .withShortValueCode(":" + idGenerator.get());
     }
@@ -270,6 +331,16 @@ public interface LogicalExpression<T> {
       return Collections.singletonMap(shortValueCode, dynamoDBEncodedValue);
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      sink.accept(shortValueCode, dynamoDBEncodedValue);
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape.append("begins_with(").append(path.serialize()).append(", ?)");
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       Set<String> parts = path.getPartsName();
@@ -302,8 +373,7 @@ public interface LogicalExpression<T> {
         LiveMappingDescription<K> liveMappingDescription,
         Map<String, String> shortCodeAccumulator) {
 
-      path.getPartsName()
-          .forEach(it -> shortCodeAccumulator.computeIfAbsent(it, ignored -> idGenerator.get()));
+      liveMappingDescription.resolvePlaceholders(path, idGenerator, shortCodeAccumulator);
       return this.withShortCodeAccumulator(shortCodeAccumulator)
           .withShortValueCode(":" + idGenerator.get());
     }
@@ -313,6 +383,16 @@ public interface LogicalExpression<T> {
       return Collections.singletonMap(shortValueCode, dynamoDBEncodedValue);
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      sink.accept(shortValueCode, dynamoDBEncodedValue);
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape.append(path.serialize()).append(' ').append(operator.getSymbol()).append(" ?");
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       Set<String> parts = path.getPartsName();
@@ -359,6 +439,21 @@ public interface LogicalExpression<T> {
           .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      args.forEach(it -> it.collectValues(sink));
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape.append("or(");
+      for (int i = 0; i < args.size(); i++) {
+        if (i > 0) shape.append(", ");
+        args.get(i).appendShape(shape);
+      }
+      shape.append(')');
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       return args.stream()
@@ -394,6 +489,21 @@ public interface LogicalExpression<T> {
           .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      args.forEach(it -> it.collectValues(sink));
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape.append("and(");
+      for (int i = 0; i < args.size(); i++) {
+        if (i > 0) shape.append(", ");
+        args.get(i).appendShape(shape);
+      }
+      shape.append(')');
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       return args.stream()
@@ -429,6 +539,18 @@ public interface LogicalExpression<T> {
       return arg.getValuesMap();
     }
 
+    @Override
+    public void collectValues(BiConsumer<String, AttributeValue> sink) {
+      arg.collectValues(sink);
+    }
+
+    @Override
+    public void appendShape(StringBuilder shape) {
+      shape.append("not(");
+      arg.appendShape(shape);
+      shape.append(')');
+    }
+
     @Override
     public Map<String, String> getAttributesMap() {
       return arg.getAttributesMap();
@@ -14,6 +14,10 @@ public class StandardConverters {
     public static AttributeValue toAttribute(String arg) {
       return AttributeValue.fromS(arg);
     }
+
+    public static long sizeOf(String arg) {
+      return ItemSizeCalculator.utf8Length(arg);
+    }
   }
 
   @UtilityClass
@@ -26,6 +30,10 @@ public class StandardConverters {
     public static AttributeValue toAttribute(Integer arg) {
       return AttributeValue.fromN(arg.toString());
     }
+
+    public static long sizeOf(Integer arg) {
+      return ItemSizeCalculator.numberSize(arg.longValue());
+    }
   }
 
   @UtilityClass
@@ -38,6 +46,10 @@ public class StandardConverters {
     public static AttributeValue toAttribute(Long arg) {
       return AttributeValue.fromN(arg.toString());
     }
+
+    public static long sizeOf(Long arg) {
+      return ItemSizeCalculator.numberSize(arg.longValue());
+    }
   }
 
   @UtilityClass
@@ -50,6 +62,10 @@ public class StandardConverters {
     public static AttributeValue toAttribute(Double arg) {
       return AttributeValue.fromN(arg.toString());
     }
+
+    public static long sizeOf(Double arg) {
+      return ItemSizeCalculator.numberSize(arg.toString());
+    }
   }
 
   @UtilityClass
@@ -62,6 +78,10 @@ public class StandardConverters {
     public static AttributeValue toAttribute(Float arg) {
       return AttributeValue.fromN(arg.toString());
     }
+
+    public static long sizeOf(Float arg) {
+      return ItemSizeCalculator.numberSize(arg.toString());
+    }
   }
 
   @UtilityClass
@@ -74,5 +94,9 @@ public class StandardConverters {
     public static AttributeValue toAttribute(AttributeValue arg) {
       return arg;
     }
+
+    public static long sizeOf(AttributeValue arg) {
+      return ItemSizeCalculator.sizeOf(arg);
+    }
   }
 }
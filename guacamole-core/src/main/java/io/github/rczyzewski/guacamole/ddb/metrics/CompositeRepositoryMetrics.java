@@ -0,0 +1,33 @@
+package io.github.rczyzewski.guacamole.ddb.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+
+/** Reports to all the implementations found by the service loader. */
+@RequiredArgsConstructor
+class CompositeRepositoryMetrics implements RepositoryMetrics {
+
+  private final List<RepositoryMetrics> delegates;
+
+  @Override
+  public void record(Stage stage, MetricTags tags, long nanos) {
+    delegates.forEach(it -> it.record(stage, tags, nanos));
+  }
+
+  @Override
+  public Span start(Stage stage, MetricTags tags) {
+    List<Span> spans = new ArrayList<>(delegates.size());
+    for (RepositoryMetrics delegate : delegates) {
+      Span span = delegate.start(stage, tags);
+      if (span != Span.NOOP) spans.add(span);
+    }
+    if (spans.isEmpty()) return Span.NOOP;
+    return (items, bytes) -> spans.forEach(it -> it.end(items, bytes));
+  }
+
+  @Override
+  public void increment(Counter counter, MetricTags tags, long amount) {
+    delegates.forEach(it -> it.increment(counter, tags, amount));
+  }
+}
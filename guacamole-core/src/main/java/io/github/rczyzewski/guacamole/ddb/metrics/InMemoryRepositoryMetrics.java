@@ -0,0 +1,56 @@
+package io.github.rczyzewski.guacamole.ddb.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Value;
+
+/**
+ * Keeps the measurements in memory, for tests and for applications without a metrics library.
+ * Every counter and timer is a {@link LongAdder}, so threads reporting the same metric do not
+ * contend.
+ */
+public class InMemoryRepositoryMetrics implements RepositoryMetrics {
+
+  private final ConcurrentMap<Key<Counter>, LongAdder> counters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Key<Stage>, Timer> timers = new ConcurrentHashMap<>();
+
+  @Override
+  public void record(Stage stage, MetricTags tags, long nanos) {
+    Timer timer = timers.computeIfAbsent(new Key<>(stage, tags), it -> new Timer());
+    timer.count.increment();
+    timer.totalNanos.add(nanos);
+  }
+
+  @Override
+  public void increment(Counter counter, MetricTags tags, long amount) {
+    counters.computeIfAbsent(new Key<>(counter, tags), it -> new LongAdder()).add(amount);
+  }
+
+  public long count(Counter counter, MetricTags tags) {
+    LongAdder adder = counters.get(new Key<>(counter, tags));
+    return adder == null ? 0 : adder.sum();
+  }
+
+  /** Number of measurements of the stage. */
+  public long count(Stage stage, MetricTags tags) {
+    Timer timer = timers.get(new Key<>(stage, tags));
+    return timer == null ? 0 : timer.count.sum();
+  }
+
+  public long totalNanos(Stage stage, MetricTags tags) {
+    Timer timer = timers.get(new Key<>(stage, tags));
+    return timer == null ? 0 : timer.totalNanos.sum();
+  }
+
+  @Value
+  private static class Key<M> {
+    M metric;
+    MetricTags tags;
+  }
+
+  private static class Timer {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+  }
+}
@@ -0,0 +1,67 @@
+package io.github.rczyzewski.guacamole.ddb.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Each power of two is split into eight buckets,
+ * so percentiles are reported with a relative error below 12.5%, using a few kilobytes regardless of
+ * the number of recorded values.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+  private static final int BUCKETS =
+      LINEAR_LIMIT + (Long.SIZE - 1 - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder total = new LongAdder();
+
+  public void record(long nanos) {
+    counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+    total.increment();
+  }
+
+  public long count() {
+    return total.sum();
+  }
+
+  /**
+   * Smallest recorded bucket bound that is not exceeded by the given fraction of values, e.g.
+   * {@code 0.99} for the 99th percentile; zero when nothing was recorded.
+   */
+  public long valueAtPercentile(double fraction) {
+    if (fraction < 0 || fraction > 1) {
+      throw new IllegalArgumentException("Percentile must be in [0, 1], got " + fraction);
+    }
+    long recorded = 0;
+    for (int i = 0; i < BUCKETS; i++) recorded += counts.get(i);
+    if (recorded == 0) return 0;
+
+    long rank = Math.max(1, (long) Math.ceil(fraction * recorded));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) return upperBoundOf(i);
+    }
+    return upperBoundOf(BUCKETS - 1);
+  }
+
+  static int indexOf(long value) {
+    if (value < LINEAR_LIMIT) return (int) value;
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBoundOf(int index) {
+    if (index < LINEAR_LIMIT) return index;
+    int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+    long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+    long lowerBound = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return lowerBound + width - 1 < 0 ? Long.MAX_VALUE : lowerBound + width - 1;
+  }
+}
@@ -0,0 +1,15 @@
+package io.github.rczyzewski.guacamole.ddb.metrics;
+
+import lombok.Value;
+
+/**
+ * Table, index and operation a measurement belongs to. The index is null for the table itself, the
+ * table is null for batches spanning several tables. Operations are named as in the DynamoDB API,
+ * e.g. {@code Query} or {@code BatchWriteItem}.
+ */
+@Value(staticConstructor = "of")
+public class MetricTags {
+  String table;
+  String index;
+  String operation;
+}
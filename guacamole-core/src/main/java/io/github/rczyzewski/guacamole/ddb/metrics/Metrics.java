@@ -0,0 +1,118 @@
+package io.github.rczyzewski.guacamole.ddb.metrics;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/** Holder of the installed {@link RepositoryMetrics}, used by the library to report. */
+@Slf4j
+@UtilityClass
+public class Metrics {
+
+  private static volatile RepositoryMetrics installed = load();
+
+  /** Replaces the implementations found by the service loader, or {@code NOOP} to disable. */
+  public static void install(RepositoryMetrics metrics) {
+    installed = metrics;
+  }
+
+  public static RepositoryMetrics current() {
+    return installed;
+  }
+
+  public static boolean enabled() {
+    return installed != RepositoryMetrics.NOOP;
+  }
+
+  public static void increment(RepositoryMetrics.Counter counter, MetricTags tags, long amount) {
+    RepositoryMetrics metrics = installed;
+    if (metrics != RepositoryMetrics.NOOP) metrics.increment(counter, tags, amount);
+  }
+
+  public static <R> R time(RepositoryMetrics.Stage stage, MetricTags tags, Supplier<R> action) {
+    return time(stage, tags, action, it -> 0, it -> 0);
+  }
+
+  /** As {@link #time(RepositoryMetrics.Stage, MetricTags, Supplier)}, reporting the result. */
+  public static <R> R time(
+      RepositoryMetrics.Stage stage,
+      MetricTags tags,
+      Supplier<R> action,
+      ToLongFunction<? super R> items,
+      ToLongFunction<? super R> bytes) {
+    RepositoryMetrics metrics = installed;
+    if (metrics == RepositoryMetrics.NOOP) return action.get();
+    RepositoryMetrics.Span span = metrics.start(stage, tags);
+    R result = null;
+    try {
+      result = action.get();
+      return result;
+    } finally {
+      R measured = result;
+      if (measured == null) {
+        span.end(0, () -> 0);
+      } else {
+        span.end(items.applyAsLong(measured), () -> bytes.applyAsLong(measured));
+      }
+    }
+  }
+
+  /**
+   * The decoder of whole pages, every page measured as one {@link RepositoryMetrics.Stage#DECODING}
+   * batch. The items are always decoded; when metrics are disabled no span is started and their
+   * size is not computed.
+   */
+  public static <T> Function<List<Map<String, AttributeValue>>, List<T>> decoding(
+      MetricTags tags, Function<Map<String, AttributeValue>, T> decoder) {
+    RepositoryMetrics metrics = installed;
+    if (metrics == RepositoryMetrics.NOOP) return page -> decodeAll(page, decoder);
+    return page -> {
+      RepositoryMetrics.Span span = metrics.start(RepositoryMetrics.Stage.DECODING, tags);
+      try {
+        return decodeAll(page, decoder);
+      } finally {
+        span.end(page.size(), () -> page.stream().mapToLong(ItemSizeCalculator::sizeOf).sum());
+      }
+    };
+  }
+
+  private static <T> List<T> decodeAll(
+      List<Map<String, AttributeValue>> page, Function<Map<String, AttributeValue>, T> decoder) {
+    List<T> decoded = new ArrayList<>(page.size());
+    for (Map<String, AttributeValue> item : page) {
+      decoded.add(decoder.apply(item));
+    }
+    return decoded;
+  }
+
+  /**
+   * All the implementations found, skipping the ones that cannot be loaded, e.g. when they need a
+   * newer Java than the running one.
+   */
+  private static RepositoryMetrics load() {
+    List<RepositoryMetrics> found = new ArrayList<>();
+    Iterator<RepositoryMetrics> providers = ServiceLoader.load(RepositoryMetrics.class).iterator();
+    while (true) {
+      try {
+        if (!providers.hasNext()) break;
+        RepositoryMetrics metrics = providers.next();
+        log.debug("reporting metrics to {}", metrics.getClass().getName());
+        found.add(metrics);
+      } catch (ServiceConfigurationError | LinkageError e) {
+        log.warn("metrics implementation skipped, it cannot be loaded: {}", e.toString());
+      }
+    }
+    if (found.isEmpty()) return RepositoryMetrics.NOOP;
+    return found.size() == 1 ? found.get(0) : new CompositeRepositoryMetrics(found);
+  }
+}
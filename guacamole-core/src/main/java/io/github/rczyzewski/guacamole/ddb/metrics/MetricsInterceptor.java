@@ -0,0 +1,264 @@
+package io.github.rczyzewski.guacamole.ddb.metrics;
+
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics.Counter;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics.Stage;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Reports the work of a DynamoDB client: marshalling and network time, the pages of queries and
+ * scans, retries and throttles, and the items read or written.
+ *
+ * <pre>{@code
+ * DynamoDbClient client =
+ *     DynamoDbClient.builder()
+ *         .overrideConfiguration(it -> it.addExecutionInterceptor(new MetricsInterceptor()))
+ *         .build();
+ * }</pre>
+ *
+ * <p>A retry after a response with status 400 is counted as a throttle, as DynamoDB retries no
+ * other client errors by default; so is a request that finally failed with a throttling error.
+ */
+public class MetricsInterceptor implements ExecutionInterceptor {
+
+  private static final ExecutionAttribute<MetricTags> TAGS =
+      new ExecutionAttribute<>("GuacamoleMetricTags");
+  private static final ExecutionAttribute<Long> STARTED =
+      new ExecutionAttribute<>("GuacamoleMetricStarted");
+  private static final ExecutionAttribute<Integer> ATTEMPTS =
+      new ExecutionAttribute<>("GuacamoleMetricAttempts");
+  private static final ExecutionAttribute<Integer> LAST_STATUS =
+      new ExecutionAttribute<>("GuacamoleMetricLastStatus");
+  private static final ExecutionAttribute<RepositoryMetrics.Span> PAGE =
+      new ExecutionAttribute<>("GuacamoleMetricPage");
+
+  private static final int CLIENT_ERROR = 400;
+
+  private final Supplier<RepositoryMetrics> metrics;
+
+  /** Reports to the implementation installed in {@link Metrics} at the time of every call. */
+  public MetricsInterceptor() {
+    this.metrics = Metrics::current;
+  }
+
+  public MetricsInterceptor(RepositoryMetrics metrics) {
+    this.metrics = () -> metrics;
+  }
+
+  @Override
+  public void beforeMarshalling(
+      Context.BeforeMarshalling context, ExecutionAttributes executionAttributes) {
+    String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    MetricTags tags = tagsOf(context.request(), operation);
+    executionAttributes.putAttribute(TAGS, tags);
+    if (context.request() instanceof QueryRequest || context.request() instanceof ScanRequest) {
+      executionAttributes.putAttribute(PAGE, metrics.get().start(Stage.PAGE_FETCH, tags));
+    }
+    executionAttributes.putAttribute(STARTED, System.nanoTime());
+  }
+
+  @Override
+  public void afterMarshalling(
+      Context.AfterMarshalling context, ExecutionAttributes executionAttributes) {
+    record(Stage.SERIALIZATION, executionAttributes);
+  }
+
+  @Override
+  public void beforeTransmission(
+      Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+    MetricTags tags = executionAttributes.getAttribute(TAGS);
+    int attempts = executionAttributes.getOptionalAttribute(ATTEMPTS).orElse(0) + 1;
+    executionAttributes.putAttribute(ATTEMPTS, attempts);
+    if (tags != null && attempts > 1) {
+      metrics.get().increment(Counter.RETRIES, tags, 1);
+      Integer status = executionAttributes.getAttribute(LAST_STATUS);
+      if (status != null && status == CLIENT_ERROR) {
+        metrics.get().increment(Counter.THROTTLES, tags, 1);
+      }
+    }
+    executionAttributes.putAttribute(STARTED, System.nanoTime());
+  }
+
+  @Override
+  public void afterTransmission(
+      Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+    record(Stage.NETWORK_CALL, executionAttributes);
+    executionAttributes.putAttribute(LAST_STATUS, context.httpResponse().statusCode());
+  }
+
+  @Override
+  public void afterExecution(
+      Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+    MetricTags tags = executionAttributes.getAttribute(TAGS);
+    if (tags != null) countItems(context.request(), context.response(), tags);
+    RepositoryMetrics.Span page = executionAttributes.getAttribute(PAGE);
+    if (page != null) {
+      page.end(
+          itemsOf(context.response()),
+          () ->
+              context
+                  .httpResponse()
+                  .firstMatchingHeader("Content-Length")
+                  .map(Long::parseLong)
+                  .orElse(0L));
+    }
+  }
+
+  @Override
+  public void onExecutionFailure(
+      Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+    MetricTags tags = executionAttributes.getAttribute(TAGS);
+    Throwable failure = context.exception();
+    if (tags != null
+        && failure instanceof AwsServiceException
+        && ((AwsServiceException) failure).isThrottlingException()) {
+      metrics.get().increment(Counter.THROTTLES, tags, 1);
+    }
+    RepositoryMetrics.Span page = executionAttributes.getAttribute(PAGE);
+    if (page != null) page.end(0, () -> 0);
+  }
+
+  private void record(Stage stage, ExecutionAttributes executionAttributes) {
+    MetricTags tags = executionAttributes.getAttribute(TAGS);
+    Long started = executionAttributes.getAttribute(STARTED);
+    if (tags != null && started != null) {
+      metrics.get().record(stage, tags, System.nanoTime() - started);
+    }
+  }
+
+  private void countItems(SdkRequest request, SdkResponse response, MetricTags tags) {
+    RepositoryMetrics reported = metrics.get();
+    if (response instanceof QueryResponse) {
+      reported.increment(Counter.ITEMS_READ, tags, orZero(((QueryResponse) response).count()));
+      reported.increment(Counter.PAGES_FETCHED, tags, 1);
+    } else if (response instanceof ScanResponse) {
+      reported.increment(Counter.ITEMS_READ, tags, orZero(((ScanResponse) response).count()));
+      reported.increment(Counter.PAGES_FETCHED, tags, 1);
+    } else if (response instanceof GetItemResponse) {
+      GetItemResponse get = (GetItemResponse) response;
+      reported.increment(Counter.ITEMS_READ, tags, get.hasItem() && !get.item().isEmpty() ? 1 : 0);
+    } else if (response instanceof BatchGetItemResponse) {
+      ((BatchGetItemResponse) response)
+          .responses()
+          .forEach(
+              (table, items) ->
+                  reported.increment(Counter.ITEMS_READ, retag(tags, table), items.size()));
+    } else if (response instanceof TransactGetItemsResponse) {
+      long read =
+          ((TransactGetItemsResponse) response)
+              .responses().stream().filter(ItemResponse::hasItem).count();
+      reported.increment(Counter.ITEMS_READ, tags, read);
+    } else if (request instanceof PutItemRequest
+        || request instanceof UpdateItemRequest
+        || request instanceof DeleteItemRequest) {
+      reported.increment(Counter.ITEMS_WRITTEN, tags, 1);
+    } else if (request instanceof BatchWriteItemRequest) {
+      Map<String, List<WriteRequest>> unprocessed =
+          ((BatchWriteItemResponse) response).unprocessedItems();
+      List<WriteRequest> none = Collections.emptyList();
+      ((BatchWriteItemRequest) request)
+          .requestItems()
+          .forEach(
+              (table, writes) ->
+                  reported.increment(
+                      Counter.ITEMS_WRITTEN,
+                      retag(tags, table),
+                      writes.size() - unprocessed.getOrDefault(table, none).size()));
+    } else if (request instanceof TransactWriteItemsRequest) {
+      ((TransactWriteItemsRequest) request)
+          .transactItems().stream()
+              .filter(it -> it.conditionCheck() == null)
+              .collect(Collectors.groupingBy(MetricsInterceptor::tableOf, Collectors.counting()))
+              .forEach(
+                  (table, written) ->
+                      reported.increment(Counter.ITEMS_WRITTEN, retag(tags, table), written));
+    }
+  }
+
+  private static long itemsOf(SdkResponse response) {
+    if (response instanceof QueryResponse) return orZero(((QueryResponse) response).count());
+    if (response instanceof ScanResponse) return orZero(((ScanResponse) response).count());
+    return 0;
+  }
+
+  private static MetricTags tagsOf(SdkRequest request, String operation) {
+    if (request instanceof BatchGetItemRequest) {
+      return MetricTags.of(
+          onlyOf(((BatchGetItemRequest) request).requestItems().keySet()), null, operation);
+    } else if (request instanceof BatchWriteItemRequest) {
+      return MetricTags.of(
+          onlyOf(((BatchWriteItemRequest) request).requestItems().keySet()), null, operation);
+    } else if (request instanceof TransactWriteItemsRequest) {
+      List<String> tables =
+          ((TransactWriteItemsRequest) request)
+              .transactItems().stream()
+                  .map(MetricsInterceptor::tableOf)
+                  .collect(Collectors.toList());
+      return MetricTags.of(onlyOf(tables), null, operation);
+    } else if (request instanceof TransactGetItemsRequest) {
+      List<String> tables =
+          ((TransactGetItemsRequest) request)
+              .transactItems().stream()
+                  .map(it -> it.get().tableName())
+                  .collect(Collectors.toList());
+      return MetricTags.of(onlyOf(tables), null, operation);
+    }
+    return MetricTags.of(
+        request.getValueForField("TableName", String.class).orElse(null),
+        request.getValueForField("IndexName", String.class).orElse(null),
+        operation);
+  }
+
+  private static MetricTags retag(MetricTags tags, String table) {
+    return Objects.equals(tags.getTable(), table)
+        ? tags
+        : MetricTags.of(table, null, tags.getOperation());
+  }
+
+  /** The table when all the given ones are the same, null otherwise. */
+  private static String onlyOf(Collection<String> tables) {
+    return tables.stream().distinct().count() == 1 ? tables.iterator().next() : null;
+  }
+
+  private static long orZero(Integer count) {
+    return count == null ? 0 : count;
+  }
+
+  private static String tableOf(TransactWriteItem item) {
+    if (item.put() != null) return item.put().tableName();
+    if (item.update() != null) return item.update().tableName();
+    if (item.delete() != null) return item.delete().tableName();
+    return item.conditionCheck().tableName();
+  }
+}
@@ -0,0 +1,76 @@
+package io.github.rczyzewski.guacamole.ddb.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Receiver of the measurements of repository operations. Implementations are called on the hot
+ * path from many threads at once, so they should not block.
+ *
+ * <p>The implementation used by the library is the one passed to {@link Metrics#install}, or else
+ * all the ones found by {@link java.util.ServiceLoader}; without any, nothing is measured.
+ */
+public interface RepositoryMetrics {
+
+  /** Measures nothing; the library skips taking the time when it is installed. */
+  RepositoryMetrics NOOP =
+      new RepositoryMetrics() {
+        @Override
+        public Span start(Stage stage, MetricTags tags) {
+          return Span.NOOP;
+        }
+      };
+
+  /** Durations measured for every operation. */
+  enum Stage {
+    /**
+     * Resolving placeholders and building the request from an expression. The items are the ones
+     * the request writes or deletes, the bytes the size of its key and bound values.
+     */
+    PREPARATION,
+    /** Marshalling of the request by the SDK. */
+    SERIALIZATION,
+    /** Sending a request and receiving its response, once per attempt. */
+    NETWORK_CALL,
+    /**
+     * Fetching a page of a query or a scan, from marshalling to the unmarshalled response with all
+     * retries. The bytes are the length of the response body.
+     */
+    PAGE_FETCH,
+    /** Transforming the items of a page into entities. */
+    DECODING
+  }
+
+  enum Counter {
+    ITEMS_READ,
+    ITEMS_WRITTEN,
+    PAGES_FETCHED,
+    RETRIES,
+    THROTTLES
+  }
+
+  default void record(Stage stage, MetricTags tags, long nanos) {}
+
+  /**
+   * Starts measuring a stage, for implementations reporting more than its duration. By default
+   * the duration is passed to {@link #record} when the span ends.
+   */
+  default Span start(Stage stage, MetricTags tags) {
+    long started = System.nanoTime();
+    return (items, bytes) -> record(stage, tags, System.nanoTime() - started);
+  }
+
+  default void increment(Counter counter, MetricTags tags, long amount) {}
+
+  /** A stage being measured. */
+  interface Span {
+
+    /** Returned when the stage is not measured, so the library skips computing the sizes. */
+    Span NOOP = (items, bytes) -> {};
+
+    /**
+     * @param items number of items built, fetched or decoded
+     * @param bytes their size, to be computed only if reported
+     */
+    void end(long items, LongSupplier bytes);
+  }
+}
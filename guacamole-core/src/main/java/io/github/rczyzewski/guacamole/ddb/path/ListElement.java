@@ -1,28 +1,30 @@
 package io.github.rczyzewski.guacamole.ddb.path;
 
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
 
-@AllArgsConstructor
-@Builder
+/** Immutable element of a list, selected by its index. */
 public class ListElement<E> implements Path<E> {
-  //TODO: make a full test coverage over this class
 
-  @Getter @NonNull Path<E> parent;
-  int t;
+  @Getter private final Path<E> parent;
+  private final int t;
+  private final String serialized;
+
+  @Builder
+  public ListElement(@NonNull Path<E> parent, int t) {
+    this.parent = parent;
+    this.t = t;
+    String serializedParent = parent.serialize();
+    this.serialized = serializedParent == null ? null : serializedParent + "[" + t + "]";
+  }
 
   @Override
   public String serialize() {
-    return Optional.of(parent)
-        .map(Path::serialize)
-        .map(it -> it + String.format("[%s]", t))
-        .orElseThrow(
-            () -> new IllegalArgumentException("DDB list element must be a part of the list"));
+    if (serialized == null) throw notInList();
+    return serialized;
   }
 
   @Override
@@ -32,10 +34,12 @@ public class ListElement<E> implements Path<E> {
 
   @Override
   public String serializeAsPartExpression(Map<String, String> shortCodeAccumulator) {
-    return Optional.of(parent)
-        .map(it -> it.serializeAsPartExpression(shortCodeAccumulator))
-        .map(it -> it + String.format("[%s]", t))
-        .orElseThrow(
-            () -> new IllegalArgumentException("DDB list element must be a part of the list"));
+    String serializedParent = parent.serializeAsPartExpression(shortCodeAccumulator);
+    if (serializedParent == null) throw notInList();
+    return serializedParent + "[" + t + "]";
+  }
+
+  private static IllegalArgumentException notInList() {
+    return new IllegalArgumentException("DDB list element must be a part of the list");
   }
 }
@@ -1,47 +1,58 @@
 package io.github.rczyzewski.guacamole.ddb.path;
 
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 
-@AllArgsConstructor
-@Builder
+/** Immutable list attribute; elements are selected with {@link #at(int)}. */
 public class ListPath<E, T> implements Path<E> {
 
-  @Getter Path<E> parent;
-  String selectedField;
-  Function<Path<E>, T> provider;
+  @Getter private final Path<E> parent;
+  private final String selectedField;
+  private final Function<Path<E>, T> provider;
+
+  private final boolean nested;
+  private final String serialized;
+  private final Set<String> partsName;
+  private final String rootAttribute;
+
+  @Builder
+  public ListPath(Path<E> parent, String selectedField, Function<Path<E>, T> provider) {
+    this.parent = parent;
+    this.selectedField = selectedField;
+    this.provider = provider;
+
+    String parentSerialized = parent == null ? null : parent.serialize();
+    this.nested = parentSerialized != null;
+    this.serialized = nested ? parentSerialized + "." + selectedField : selectedField;
+    this.partsName = Path.appendPart(parent, selectedField);
+    String parentRoot = parent == null ? null : parent.getRootAttribute();
+    this.rootAttribute = parentRoot == null ? selectedField : parentRoot;
+  }
 
   @Override
   public String serialize() {
-    return Optional.ofNullable(parent)
-        .map(Path::serialize)
-        .map(it -> it + "." + selectedField)
-        .orElse(selectedField);
+    return serialized;
   }
 
   @Override
   public Set<String> getPartsName() {
-    Set<String> accumulator =
-        Optional.ofNullable(parent).map(Path::getPartsName).orElse(new HashSet<>());
-    accumulator.add(selectedField);
-    return accumulator;
+    return partsName;
   }
 
   @Override
-  public String serializeAsPartExpression(Map<String, String> shortCodeAccumulator) {
+  public String getRootAttribute() {
+    return rootAttribute;
+  }
 
+  @Override
+  public String serializeAsPartExpression(Map<String, String> shortCodeAccumulator) {
     String suffix = shortCodeAccumulator.get(selectedField);
-
-    return Optional.ofNullable(parent)
-        .map(it -> it.serializeAsPartExpression(shortCodeAccumulator))
-        .map(it -> it + "." + suffix)
-        .orElse(suffix);
+    return nested
+        ? parent.serializeAsPartExpression(shortCodeAccumulator) + "." + suffix
+        : suffix;
   }
 
   public T at(int num) {
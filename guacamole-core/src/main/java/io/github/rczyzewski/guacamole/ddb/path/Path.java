@@ -1,6 +1,7 @@
 package io.github.rczyzewski.guacamole.ddb.path;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -10,8 +11,14 @@ public interface Path<K> {
 
   Path<K> getParent();
 
+  /** Names of all attributes on the path; the returned set is immutable. */
   default Set<String> getPartsName() {
-    return Optional.ofNullable(getParent()).map(Path::getPartsName).orElseGet(HashSet::new);
+    return Optional.ofNullable(getParent()).map(Path::getPartsName).orElse(Collections.emptySet());
+  }
+
+  /** Name of the top level attribute this path starts from, or null for a root. */
+  default String getRootAttribute() {
+    return Optional.ofNullable(getParent()).map(Path::getRootAttribute).orElse(null);
   }
 
   default String serializeAsPartExpression(Map<String, String> shortCodeAccumulator) {
@@ -19,4 +26,17 @@ public interface Path<K> {
         .map(it -> it.serializeAsPartExpression(shortCodeAccumulator))
         .orElseThrow(RuntimeException::new);
   }
+
+  /** Parts of the parent followed by the given attribute name, as an immutable set. */
+  static Set<String> appendPart(Path<?> parent, String name) {
+    if (parent == null) return Collections.singleton(name);
+
+    Set<String> parentParts = parent.getPartsName();
+    if (parentParts.isEmpty()) return Collections.singleton(name);
+    if (parentParts.contains(name)) return parentParts;
+
+    Set<String> parts = new LinkedHashSet<>(parentParts);
+    parts.add(name);
+    return Collections.unmodifiableSet(parts);
+  }
 }
@@ -1,44 +1,58 @@
 package io.github.rczyzewski.guacamole.ddb.path;
 
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 
-@AllArgsConstructor
-@Builder
-@Getter
+/**
+ * Immutable attribute of a document or a table. The serialized form and the part names are
+ * computed once, when the element is created.
+ */
 public class PrimitiveElement<E, T> implements TypedPath<E, T> {
-  Path<E> parent;
-  String selectedElement;
+  @Getter private final Path<E> parent;
+  @Getter private final String selectedElement;
+
+  /** False when the element is a top level attribute, even if it is selected from a root path. */
+  private final boolean nested;
+
+  private final String serialized;
+  private final Set<String> partsName;
+  private final String rootAttribute;
+
+  @Builder
+  public PrimitiveElement(Path<E> parent, String selectedElement) {
+    this.parent = parent;
+    this.selectedElement = selectedElement;
+
+    String parentSerialized = parent == null ? null : parent.serialize();
+    this.nested = parentSerialized != null;
+    this.serialized = nested ? parentSerialized + "." + selectedElement : selectedElement;
+    this.partsName = Path.appendPart(parent, selectedElement);
+    String parentRoot = parent == null ? null : parent.getRootAttribute();
+    this.rootAttribute = parentRoot == null ? selectedElement : parentRoot;
+  }
 
   @Override
   public String serialize() {
-    return Optional.ofNullable(parent)
-        .map(Path::serialize)
-        .map(it -> it + "." + selectedElement)
-        .orElse(selectedElement);
+    return serialized;
   }
 
   @Override
   public Set<String> getPartsName() {
-    Set<String> parentSet =
-        Optional.ofNullable(parent).map(Path::getPartsName).orElseGet(HashSet::new);
-
-    parentSet.add(selectedElement);
+    return partsName;
+  }
 
-    return parentSet;
+  @Override
+  public String getRootAttribute() {
+    return rootAttribute;
   }
 
   @Override
   public String serializeAsPartExpression(Map<String, String> shortCodeAccumulator) {
     String shortValue = shortCodeAccumulator.get(selectedElement);
-    return Optional.ofNullable(parent)
-        .map(it -> it.serializeAsPartExpression(shortCodeAccumulator))
-        .map(it -> it + "." + shortValue)
-        .orElse(shortValue);
+    return nested
+        ? parent.serializeAsPartExpression(shortCodeAccumulator) + "." + shortValue
+        : shortValue;
   }
 }
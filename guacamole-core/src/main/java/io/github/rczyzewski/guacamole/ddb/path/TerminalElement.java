@@ -7,5 +7,5 @@ import lombok.experimental.Delegate;
 @AllArgsConstructor
 @Builder
 public class TerminalElement<E> implements Path<E> {
-  @Delegate Path<E> parent;
+  @Delegate private final Path<E> parent;
 }
@@ -0,0 +1,114 @@
+package io.github.rczyzewski.guacamole.ddb.reactive;
+
+import io.github.rczyzewski.guacamole.ddb.BaseRepository;
+import io.github.rczyzewski.guacamole.ddb.MappedDeleteExpression;
+import io.github.rczyzewski.guacamole.ddb.MappedQueryExpression;
+import io.github.rczyzewski.guacamole.ddb.MappedScanExpression;
+import io.github.rczyzewski.guacamole.ddb.MappedUpdateExpression;
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryPublisher;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanPublisher;
+
+/**
+ * Executes the requests of a generated repository on the {@link DynamoDbAsyncClient}. Nothing is
+ * sent before subscription. Queries and scans request the next page only when the subscriber
+ * asked for more items than were already delivered, so a slow consumer holds at most one page.
+ *
+ * <p>Requires {@code io.projectreactor:reactor-core} on the classpath.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ReactiveRepository<T, G extends ExpressionGenerator<T>> {
+
+  private final BaseRepository<T, G> repository;
+  private final DynamoDbAsyncClient client;
+
+  public Flux<T> query(MappedQueryExpression<T, ?> query) {
+    return Flux.defer(
+        () -> {
+          Function<List<Map<String, AttributeValue>>, List<T>> decoder = query.pageDecoder();
+          return Flux.from(new QueryPublisher(client, query.asQueryRequest()))
+              .flatMapIterable(page -> decoder.apply(page.items()), 1);
+        });
+  }
+
+  public Flux<T> scan(MappedScanExpression<T, ?> scan) {
+    return Flux.defer(
+        () -> {
+          Function<List<Map<String, AttributeValue>>, List<T>> decoder = scan.pageDecoder();
+          return Flux.from(new ScanPublisher(client, scan.asScanItemRequest()))
+              .flatMapIterable(page -> decoder.apply(page.items()), 1);
+        });
+  }
+
+  public Flux<T> scan() {
+    return scan(repository.scan());
+  }
+
+  /** The stored item with the keys of the given one, or an empty Mono when there is none. */
+  public Mono<T> get(T key) {
+    return execute(() -> client.getItem(repository.get(key)))
+        .filter(GetItemResponse::hasItem)
+        .map(it -> decode(it.item()));
+  }
+
+  /** Emits the item once it is stored. */
+  public Mono<T> put(T item) {
+    return execute(() -> client.putItem(repository.create(item))).thenReturn(item);
+  }
+
+  /** Emits the whole item as it is after the update. */
+  public Mono<T> update(MappedUpdateExpression<T, ?> update) {
+    return execute(
+            () ->
+                client.updateItem(
+                    update.asUpdateItemRequest().toBuilder()
+                        .returnValues(ReturnValue.ALL_NEW)
+                        .build()))
+        .filter(UpdateItemResponse::hasAttributes)
+        .map(it -> decode(it.attributes()));
+  }
+
+  public Mono<T> update(T item) {
+    return update(repository.update(item));
+  }
+
+  /** Emits the deleted item, or completes empty when there was nothing to delete. */
+  public Mono<T> delete(MappedDeleteExpression<T, ?> delete) {
+    return execute(
+            () ->
+                client.deleteItem(
+                    delete.asDeleteItemRequest().toBuilder()
+                        .returnValues(ReturnValue.ALL_OLD)
+                        .build()))
+        .filter(DeleteItemResponse::hasAttributes)
+        .map(it -> decode(it.attributes()));
+  }
+
+  public Mono<T> delete(T item) {
+    return delete(repository.delete(item));
+  }
+
+  private T decode(Map<String, AttributeValue> item) {
+    return repository.getMapper().transform(item);
+  }
+
+  private static <R> Mono<R> execute(Supplier<CompletableFuture<R>> call) {
+    return Mono.defer(() -> Mono.fromFuture(call.get()));
+  }
+}
@@ -0,0 +1,113 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.MAPPER;
+import static io.github.rczyzewski.guacamole.ddb.Player.NAME;
+import static io.github.rczyzewski.guacamole.ddb.Player.SCORE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+class CompiledExpressionTest {
+
+  private MappedUpdateExpression<Player, ExpressionGenerator<Player>> update(
+      String name, int score, int bonus) {
+    return MAPPER
+        .generateUpdateExpression(
+            Player.builder().name(name).score(score).build(),
+            new ExpressionGenerator<>(),
+            "players")
+        .add(SCORE, bonus)
+        .condition(
+            it -> it.compare(SCORE, LogicalExpression.ComparisonOperator.LESS, (long) score));
+  }
+
+  @Test
+  void boundUpdateIsTheSameAsPrepared() {
+    CompiledUpdateExpression<Player> compiled = update("Alice", 10, 1).compile();
+
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> other = update("Bob", 20, 5);
+
+    assertThat(compiled.asUpdateItemRequest(other)).isEqualTo(other.asUpdateItemRequest());
+  }
+
+  @Test
+  void bindingUsesValuesOfTheGivenExpression() {
+    CompiledUpdateExpression<Player> compiled = update("Alice", 10, 1).compile();
+
+    UpdateItemRequest request = compiled.asUpdateItemRequest(update("Bob", 20, 5));
+
+    assertThat(request.key()).containsEntry("name", AttributeValue.fromS("Bob"));
+    assertThat(request.expressionAttributeValues())
+        .containsValues(AttributeValue.fromN("5"), AttributeValue.fromN("20"));
+    assertThat(request.updateExpression()).isEqualTo(compiled.getUpdateExpression());
+  }
+
+  @Test
+  void differentShapeIsRejected() {
+    CompiledUpdateExpression<Player> compiled = update("Alice", 10, 1).compile();
+
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> withoutCondition =
+        MAPPER.generateUpdateExpression(
+            Player.builder().name("Bob").score(20).build(), new ExpressionGenerator<>(), "players");
+
+    assertThatThrownBy(() -> compiled.asUpdateItemRequest(withoutCondition))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void conditionOfAnotherShapeIsRejected() {
+    CompiledUpdateExpression<Player> compiled = update("Alice", 10, 1).compile();
+
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> otherOperator =
+        update("Bob", 20, 5)
+            .condition(
+                it -> it.compare(SCORE, LogicalExpression.ComparisonOperator.GREATER, 20L));
+
+    assertThatThrownBy(() -> compiled.asUpdateItemRequest(otherOperator))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("score > ?");
+  }
+
+  @Test
+  void scanWithAnotherFilterOfTheSameArityIsRejected() {
+    CompiledScanExpression<Player> compiled =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .condition(it -> it.compare(NAME, LogicalExpression.ComparisonOperator.EQUAL, "Alice"))
+            .compile();
+
+    MappedScanExpression<Player, ExpressionGenerator<Player>> otherAttribute =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .condition(it -> it.compare(SCORE, LogicalExpression.ComparisonOperator.EQUAL, 10L));
+
+    assertThatThrownBy(() -> compiled.asScanItemRequest(otherAttribute))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("score = ?");
+  }
+
+  @Test
+  void boundScanIsTheSameAsPrepared() {
+    CompiledScanExpression<Player> compiled =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .condition(it -> it.compare(NAME, LogicalExpression.ComparisonOperator.EQUAL, "Alice"))
+            .compile();
+
+    MappedScanExpression<Player, ExpressionGenerator<Player>> other =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .condition(it -> it.compare(NAME, LogicalExpression.ComparisonOperator.EQUAL, "Bob"));
+
+    ScanRequest request = compiled.asScanItemRequest(other);
+
+    assertThat(request).isEqualTo(other.asScanItemRequest());
+    assertThat(request.expressionAttributeValues()).containsValue(AttributeValue.fromS("Bob"));
+  }
+}
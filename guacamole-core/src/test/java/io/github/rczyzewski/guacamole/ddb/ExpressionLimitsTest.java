@@ -0,0 +1,126 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.ADDRESS;
+import static io.github.rczyzewski.guacamole.ddb.Player.NAME;
+import static io.github.rczyzewski.guacamole.ddb.Player.SCORE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import io.github.rczyzewski.guacamole.ddb.path.Path;
+import io.github.rczyzewski.guacamole.ddb.path.PrimitiveElement;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+class ExpressionLimitsTest {
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+
+  private static Path<Player> addressAttribute(String name) {
+    return PrimitiveElement.<Player, String>builder().parent(ADDRESS).selectedElement(name).build();
+  }
+
+  /** Update of the given number of attributes of the address, as saving a wide entity does. */
+  private MappedUpdateExpression<Player, ExpressionGenerator<Player>> wideUpdate(int attributes) {
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> update =
+        repository.update(Player.builder().name("alice").build());
+    for (int i = 0; i < attributes; i++) {
+      String value = "value " + i;
+      update.set(addressAttribute("attribute" + i), it -> it.just(value));
+    }
+    return update;
+  }
+
+  @Test
+  void requestWithinTheLimitsIsBuilt() {
+    UpdateItemRequest request = wideUpdate(10).asUpdateItemRequest();
+
+    ExpressionLimits.Analysis analysis = ExpressionLimits.analyze(request);
+    assertThat(analysis.violations()).isEmpty();
+    assertThat(analysis.getValues()).isEqualTo(10);
+    assertThat(analysis.getExpressionBytes().get("UpdateExpression"))
+        .isEqualTo(request.updateExpression().length());
+  }
+
+  @Test
+  void longExpressionFailsWhenTheRequestIsBuilt() {
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> update = wideUpdate(500);
+
+    assertThatThrownBy(update::asUpdateItemRequest)
+        .isInstanceOf(ExpressionLimits.LimitExceededException.class)
+        .hasMessageStartingWith("UpdateItem on players (501 names, 500 values)")
+        .hasMessageContaining("UpdateExpression has")
+        .hasMessageContaining("at most 4096 are allowed");
+  }
+
+  @Test
+  void largeValuesFailAsTooLargeItem() {
+    char[] text = new char[300 * 1024];
+    Arrays.fill(text, 'a');
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> update =
+        repository
+            .update(Player.builder().name("alice").build())
+            .set(ADDRESS, it -> it.just(new String(text)))
+            .set(SCORE, it -> it.just(new String(text)));
+
+    assertThatThrownBy(update::asUpdateItemRequest)
+        .isInstanceOf(ExpressionLimits.LimitExceededException.class)
+        .hasMessageContaining("the item has at least 614409 bytes");
+    assertThatThrownBy(update::split)
+        .isInstanceOf(ExpressionLimits.LimitExceededException.class);
+  }
+
+  @Test
+  void operatorsOfUpdateAreCounted() {
+    assertThat(
+            ExpressionLimits.operatorsOf(
+                "SET #A = if_not_exists( #A , :B ) , #C = #D + :E , #F = #G - :H ADD #I :J"))
+        .isEqualTo(3);
+  }
+
+  @Test
+  void oversizedUpdateIsSplitIntoUpdatesWithinTheLimits() {
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> update =
+        wideUpdate(500)
+            .condition(
+                it -> it.compare(NAME, LogicalExpression.ComparisonOperator.EQUAL, "alice"));
+
+    List<UpdateItemRequest> requests = update.asUpdateItemRequests();
+
+    assertThat(requests).hasSizeGreaterThan(1);
+    assertThat(requests.get(0).conditionExpression()).isNotNull();
+    assertThat(requests.subList(1, requests.size()))
+        .allSatisfy(it -> assertThat(it.conditionExpression()).isNull());
+    assertThat(requests.stream().mapToInt(it -> it.expressionAttributeValues().size()).sum())
+        .isEqualTo(501);
+    assertThat(requests)
+        .allSatisfy(it -> assertThat(ExpressionLimits.analyze(it).violations()).isEmpty());
+  }
+
+  @Test
+  void updateWithinTheLimitsIsNotSplit() {
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> update = wideUpdate(10);
+
+    assertThat(update.split()).containsExactly(update);
+  }
+
+  @Test
+  void updateReadingAnEarlierPartCannotBeSplit() {
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> update =
+        repository
+            .update(Player.builder().name("alice").build())
+            .set(SCORE, it -> it.just(AttributeValue.fromN("1")));
+    for (int i = 0; i < 500; i++) {
+      update.set(addressAttribute("attribute" + i), it -> it.just("value"));
+    }
+    update.set(addressAttribute("copy"), it -> it.just(SCORE));
+
+    assertThatThrownBy(update::split)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("score is read after it is written");
+  }
+}
@@ -0,0 +1,135 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+
+class HedgedReaderTest {
+
+  private static final Player ALICE = Player.builder().name("alice").score(7).build();
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+  private final Queue<CompletableFuture<GetItemResponse>> responses = new ConcurrentLinkedQueue<>();
+  private final List<CompletableFuture<GetItemResponse>> sent = new CopyOnWriteArrayList<>();
+
+  /** Answers every request with the next prepared response. */
+  private final DynamoDbAsyncClient client =
+      new DynamoDbAsyncClient() {
+        @Override
+        public CompletableFuture<GetItemResponse> getItem(GetItemRequest request) {
+          CompletableFuture<GetItemResponse> response = responses.remove();
+          sent.add(response);
+          return response;
+        }
+
+        @Override
+        public String serviceName() {
+          return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {}
+      };
+
+  private static CompletableFuture<GetItemResponse> found() {
+    return CompletableFuture.completedFuture(
+        GetItemResponse.builder().item(Player.MAPPER.export(ALICE)).build());
+  }
+
+  private HedgedReader<Player> reader(double hedgeRatio) {
+    return HedgedReader.<Player>builder()
+        .client(client)
+        .repository(repository)
+        .hedgeRatio(hedgeRatio)
+        .minSamples(5L)
+        .build();
+  }
+
+  private void warmUp(HedgedReader<Player> reader) {
+    for (int i = 0; i < 5; i++) {
+      responses.add(found());
+      reader.get(ALICE).join();
+    }
+  }
+
+  @Test
+  void slowRequestIsHedgedAndCancelled() {
+    HedgedReader<Player> reader = reader(1);
+    warmUp(reader);
+    CompletableFuture<GetItemResponse> slow = new CompletableFuture<>();
+    responses.add(slow);
+    responses.add(found());
+
+    assertThat(reader.get(ALICE).join()).contains(ALICE);
+    assertThat(slow).isCancelled();
+    assertThat(reader.stats()).isEqualTo(new HedgedReader.HedgeStats(6, 1, 1));
+    assertThat(reader.hedgeDelay("GetItem")).isPresent();
+  }
+
+  @Test
+  void nothingIsHedgedBeforeEnoughLatenciesAreRecorded() throws InterruptedException {
+    HedgedReader<Player> reader = reader(1);
+    CompletableFuture<GetItemResponse> slow = new CompletableFuture<>();
+    responses.add(slow);
+
+    CompletableFuture<Optional<Player>> result = reader.get(ALICE);
+    Thread.sleep(20);
+    slow.complete(GetItemResponse.builder().build());
+
+    assertThat(result.join()).isEmpty();
+    assertThat(sent).hasSize(1);
+    assertThat(reader.hedgeDelay("GetItem")).isEmpty();
+  }
+
+  @Test
+  void hedgesAreLimitedByTheBudget() throws InterruptedException {
+    HedgedReader<Player> reader = reader(0.2);
+    warmUp(reader);
+
+    CompletableFuture<GetItemResponse> first = new CompletableFuture<>();
+    CompletableFuture<GetItemResponse> second = new CompletableFuture<>();
+    responses.add(first);
+    responses.add(found());
+    assertThat(reader.get(ALICE).join()).contains(ALICE);
+
+    responses.add(second);
+    CompletableFuture<Optional<Player>> notHedged = reader.get(ALICE);
+    Thread.sleep(20);
+    second.complete(GetItemResponse.builder().build());
+
+    assertThat(notHedged.join()).isEmpty();
+    assertThat(reader.stats().getHedges()).isEqualTo(1);
+    assertThat(sent).hasSize(8);
+  }
+
+  @Test
+  void failureIsReportedWhenNoAttemptSucceeded() {
+    HedgedReader<Player> reader = reader(1);
+    CompletableFuture<GetItemResponse> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("unavailable"));
+    responses.add(failed);
+
+    assertThatThrownBy(() -> reader.get(ALICE).get())
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void closedReaderRejectsReads() {
+    HedgedReader<Player> reader = reader(1);
+    reader.close();
+
+    assertThatThrownBy(() -> reader.get(ALICE)).isInstanceOf(IllegalStateException.class);
+  }
+}
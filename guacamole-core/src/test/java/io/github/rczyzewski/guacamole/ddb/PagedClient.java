@@ -0,0 +1,83 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+/** Serves the given pages to scans and queries and records the requests it received. */
+public class PagedClient implements DynamoDbClient {
+
+  private static final String PAGE = "page";
+
+  private final List<List<Map<String, AttributeValue>>> pages;
+  public final List<Object> requests = new ArrayList<>();
+
+  @SafeVarargs
+  public PagedClient(List<Map<String, AttributeValue>>... pages) {
+    this.pages = Arrays.asList(pages);
+  }
+
+  @Override
+  public ScanResponse scan(ScanRequest request) {
+    requests.add(request);
+    int page = request.hasExclusiveStartKey() ? pageOf(request.exclusiveStartKey()) : 0;
+    return ScanResponse.builder().items(pages.get(page)).lastEvaluatedKey(nextPage(page)).build();
+  }
+
+  @Override
+  public QueryResponse query(QueryRequest request) {
+    requests.add(request);
+    int page = request.hasExclusiveStartKey() ? pageOf(request.exclusiveStartKey()) : 0;
+    return QueryResponse.builder().items(pages.get(page)).lastEvaluatedKey(nextPage(page)).build();
+  }
+
+  private int pageOf(Map<String, AttributeValue> key) {
+    return Integer.parseInt(key.get(PAGE).n());
+  }
+
+  private Map<String, AttributeValue> nextPage(int page) {
+    if (page + 1 >= pages.size()) return null;
+    return Collections.singletonMap(PAGE, AttributeValue.fromN(Integer.toString(page + 1)));
+  }
+
+  /** The same pages, served by an asynchronous client. */
+  public DynamoDbAsyncClient async() {
+    return new DynamoDbAsyncClient() {
+      @Override
+      public CompletableFuture<ScanResponse> scan(ScanRequest request) {
+        return CompletableFuture.completedFuture(PagedClient.this.scan(request));
+      }
+
+      @Override
+      public CompletableFuture<QueryResponse> query(QueryRequest request) {
+        return CompletableFuture.completedFuture(PagedClient.this.query(request));
+      }
+
+      @Override
+      public String serviceName() {
+        return SERVICE_NAME;
+      }
+
+      @Override
+      public void close() {}
+    };
+  }
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close() {}
+}
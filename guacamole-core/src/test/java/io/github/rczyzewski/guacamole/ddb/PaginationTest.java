@@ -0,0 +1,72 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.MAPPER;
+import static io.github.rczyzewski.guacamole.ddb.Player.NAME;
+import static io.github.rczyzewski.guacamole.ddb.Player.page;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class PaginationTest {
+
+  private final PagedClient client = new PagedClient(page("a", "b"), page("c", "d"), page("e"));
+
+  @Test
+  void scanFetchesAllPages() {
+    List<String> names =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .stream(client)
+            .map(Player::getName)
+            .collect(Collectors.toList());
+
+    assertThat(names).containsExactly("a", "b", "c", "d", "e");
+    assertThat(client.requests).hasSize(3);
+  }
+
+  @Test
+  void pagesAreFetchedWhenConsumed() {
+    Iterator<Player> players =
+        MAPPER.generateScanExpression(new ExpressionGenerator<>(), "players").iterator(client);
+
+    assertThat(players.next().getName()).isEqualTo("a");
+    assertThat(client.requests).hasSize(1);
+
+    players.next();
+    assertThat(players.next().getName()).isEqualTo("c");
+    assertThat(client.requests).hasSize(2);
+  }
+
+  @Test
+  void limitStopsPaging() {
+    List<Player> players =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .stream(client, 3)
+            .collect(Collectors.toList());
+
+    assertThat(players).hasSize(3);
+    assertThat(client.requests).hasSize(2);
+  }
+
+  @Test
+  void queryFetchesAllPages() {
+    MappedQueryExpression<Player, ExpressionGenerator<Player>> query =
+        new MappedQueryExpression<>(
+            new ExpressionGenerator<>(),
+            null,
+            "players",
+            null,
+            MAPPER,
+            new ExpressionGenerator<Player>()
+                .compare(NAME, LogicalExpression.ComparisonOperator.EQUAL, "a"));
+
+    assertThat(query.stream(client)).hasSize(5);
+    assertThat(client.requests).hasSize(3);
+  }
+}
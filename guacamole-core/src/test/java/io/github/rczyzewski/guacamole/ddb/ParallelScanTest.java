@@ -0,0 +1,132 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.page;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+class ParallelScanTest {
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  private final List<PagedClient> segments =
+      Arrays.asList(
+          new PagedClient(page("a", "b"), page("c")),
+          new PagedClient(page("d")),
+          new PagedClient(page("e", "f"), page("g", "h")));
+
+  /** Serves every segment from its own pages. */
+  private final DynamoDbClient client =
+      new DynamoDbClient() {
+        @Override
+        public ScanResponse scan(ScanRequest request) {
+          return segments.get(request.segment()).scan(request);
+        }
+
+        @Override
+        public String serviceName() {
+          return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {}
+      };
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void segmentIsPartOfTheRequest() {
+    ScanRequest request = repository.scan().segment(2, 3).asScanItemRequest();
+
+    assertThat(request.segment()).isEqualTo(2);
+    assertThat(request.totalSegments()).isEqualTo(3);
+  }
+
+  @Test
+  void segmentOutsideOfTheTotalIsRejected() {
+    assertThatThrownBy(() -> repository.scan().segment(3, 3))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> repository.scan().parallel(client, 0, executor))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void forEachReadsAllSegments() {
+    ParallelScan<Player> scan = repository.scan().parallel(client, 3, executor);
+    Queue<String> names = new ConcurrentLinkedQueue<>();
+
+    scan.forEach(it -> names.add(it.getName()));
+
+    assertThat(names).containsExactlyInAnyOrder("a", "b", "c", "d", "e", "f", "g", "h");
+    assertThat(scan.progress())
+        .extracting(
+            ParallelScan.SegmentProgress::getPages,
+            ParallelScan.SegmentProgress::getItems,
+            ParallelScan.SegmentProgress::isFinished)
+        .containsExactly(
+            tuple(2L, 3L, true),
+            tuple(1L, 1L, true),
+            tuple(2L, 4L, true));
+  }
+
+  @Test
+  void streamMergesAllSegments() {
+    try (Stream<Player> players = repository.scan().parallel(client, 3, executor).stream()) {
+      assertThat(players.map(Player::getName).collect(Collectors.toList()))
+          .containsExactlyInAnyOrder("a", "b", "c", "d", "e", "f", "g", "h");
+    }
+  }
+
+  @Test
+  void failureOfSegmentFailsTheScan() {
+    DynamoDbClient failing =
+        new DynamoDbClient() {
+          @Override
+          public ScanResponse scan(ScanRequest request) {
+            if (request.segment() == 1) throw new IllegalStateException("segment 1 is broken");
+            return segments.get(request.segment()).scan(request);
+          }
+
+          @Override
+          public String serviceName() {
+            return SERVICE_NAME;
+          }
+
+          @Override
+          public void close() {}
+        };
+
+    assertThatThrownBy(() -> repository.scan().parallel(failing, 3, executor).forEach(it -> {}))
+        .isInstanceOf(ParallelScan.ScanFailedException.class)
+        .hasRootCauseMessage("segment 1 is broken");
+    assertThatThrownBy(() -> repository.scan().parallel(failing, 3, executor).stream().count())
+        .isInstanceOf(ParallelScan.ScanFailedException.class)
+        .hasRootCauseMessage("segment 1 is broken");
+  }
+
+  @Test
+  void scanRunsOnlyOnce() {
+    ParallelScan<Player> scan = repository.scan().parallel(client, 3, executor);
+    scan.forEach(it -> {});
+
+    assertThatThrownBy(() -> scan.forEach(it -> {})).isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,69 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.FieldMappingDescription;
+import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
+import io.github.rczyzewski.guacamole.ddb.path.Path;
+import io.github.rczyzewski.guacamole.ddb.path.PrimitiveElement;
+import io.github.rczyzewski.guacamole.ddb.path.TypedPath;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/** Hand written equivalent of a generated mapping, shared by the expression tests. */
+@Value
+@With
+@Builder
+@AllArgsConstructor
+public class Player {
+  String name;
+  Integer score;
+  Map<String, AttributeValue> address;
+
+  public static final LiveMappingDescription<Player> MAPPER =
+      new LiveMappingDescription<>(
+          () -> Player.builder().build(),
+          Arrays.asList(
+              new FieldMappingDescription<>(
+                  "name",
+                  true,
+                  (bean, value) -> bean.withName(value.s()),
+                  bean -> Optional.ofNullable(bean.getName()).map(AttributeValue::fromS),
+                  "A"),
+              new FieldMappingDescription<>(
+                  "score",
+                  false,
+                  (bean, value) -> bean.withScore(Integer.valueOf(value.n())),
+                  bean ->
+                      Optional.ofNullable(bean.getScore())
+                          .map(it -> AttributeValue.fromN(it.toString())),
+                  "B"),
+              new FieldMappingDescription<>(
+                  "address",
+                  false,
+                  (bean, value) -> bean.withAddress(value.m()),
+                  bean -> Optional.ofNullable(bean.getAddress()).map(AttributeValue::fromM),
+                  "C")));
+
+  public static final TypedPath<Player, String> NAME =
+      PrimitiveElement.<Player, String>builder().selectedElement("name").build();
+  public static final TypedPath<Player, Number> SCORE =
+      PrimitiveElement.<Player, Number>builder().selectedElement("score").build();
+  public static final Path<Player> ADDRESS =
+      PrimitiveElement.<Player, Object>builder().selectedElement("address").build();
+  public static final Path<Player> CITY =
+      PrimitiveElement.<Player, String>builder().parent(ADDRESS).selectedElement("city").build();
+
+  /** Exported players with the given names, as returned in a page of a scan or a query. */
+  public static List<Map<String, AttributeValue>> page(String... names) {
+    return Arrays.stream(names)
+        .map(it -> MAPPER.export(Player.builder().name(it).score(1).build()))
+        .collect(Collectors.toList());
+  }
+}
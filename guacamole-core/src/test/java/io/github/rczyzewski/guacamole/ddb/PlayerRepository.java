@@ -0,0 +1,47 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.MAPPER;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+/** Hand written equivalent of a generated repository for {@link Player}. */
+@RequiredArgsConstructor
+public class PlayerRepository implements BaseRepository<Player, ExpressionGenerator<Player>> {
+
+  @Getter private final String tableName;
+
+  @Override
+  public LiveMappingDescription<Player> getMapper() {
+    return MAPPER;
+  }
+
+  @Override
+  public PutItemRequest create(Player item) {
+    return PutItemRequest.builder().tableName(tableName).item(MAPPER.export(item)).build();
+  }
+
+  @Override
+  public MappedDeleteExpression<Player, ExpressionGenerator<Player>> delete(Player item) {
+    return MAPPER.generateDeleteExpression(item, new ExpressionGenerator<>(), tableName);
+  }
+
+  @Override
+  public MappedUpdateExpression<Player, ExpressionGenerator<Player>> update(Player data) {
+    return MAPPER.generateUpdateExpression(data, new ExpressionGenerator<>(), tableName);
+  }
+
+  @Override
+  public MappedScanExpression<Player, ExpressionGenerator<Player>> scan() {
+    return MAPPER.generateScanExpression(new ExpressionGenerator<>(), tableName);
+  }
+
+  @Override
+  public CreateTableRequest createTable() {
+    return CreateTableRequest.builder().tableName(tableName).build();
+  }
+}
@@ -0,0 +1,89 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.CITY;
+import static io.github.rczyzewski.guacamole.ddb.Player.MAPPER;
+import static io.github.rczyzewski.guacamole.ddb.Player.NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+class ProjectionTest {
+
+  @Test
+  void scanWithoutProjectionFetchesAllAttributes() {
+    ScanRequest request =
+        MAPPER.generateScanExpression(new ExpressionGenerator<>(), "players").asScanItemRequest();
+
+    assertThat(request.select()).isEqualTo(Select.ALL_ATTRIBUTES);
+    assertThat(request.projectionExpression()).isNull();
+    assertThat(request.hasExpressionAttributeNames()).isFalse();
+  }
+
+  @Test
+  void projectionUsesPlaceholders() {
+    ScanRequest request =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .project(NAME, CITY)
+            .asScanItemRequest();
+
+    assertThat(request.select()).isEqualTo(Select.SPECIFIC_ATTRIBUTES);
+    assertThat(request.projectionExpression()).isEqualTo("#A, #C.#a");
+    assertThat(request.expressionAttributeNames())
+        .containsEntry("#A", "name")
+        .containsEntry("#C", "address")
+        .containsEntry("#a", "city")
+        .hasSize(3);
+  }
+
+  @Test
+  void projectionSharesPlaceholdersWithCondition() {
+    ScanRequest request =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .condition(it -> it.exists(NAME))
+            .project(NAME)
+            .asScanItemRequest();
+
+    assertThat(request.projectionExpression()).isEqualTo("#A");
+    assertThat(request.filterExpression()).isEqualTo("attribute_exists(#A)");
+    assertThat(request.expressionAttributeNames()).containsOnlyKeys("#A");
+  }
+
+  @Test
+  void onlyReferencedAttributesGetPlaceholders() {
+    ScanRequest request =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .condition(it -> it.exists(CITY))
+            .asScanItemRequest();
+
+    assertThat(request.filterExpression()).isEqualTo("attribute_exists(#C.#a)");
+    assertThat(request.expressionAttributeNames())
+        .containsEntry("#C", "address")
+        .containsEntry("#a", "city")
+        .hasSize(2);
+  }
+
+  @Test
+  void projectedDecoderVisitsOnlyProjectedAttributes() {
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("name", AttributeValue.fromS("Alice"));
+    item.put("score", AttributeValue.fromN("42"));
+
+    Player player =
+        MAPPER
+            .generateScanExpression(new ExpressionGenerator<>(), "players")
+            .project(NAME)
+            .decoder()
+            .apply(item);
+
+    assertThat(player).isEqualTo(Player.builder().name("Alice").build());
+  }
+}
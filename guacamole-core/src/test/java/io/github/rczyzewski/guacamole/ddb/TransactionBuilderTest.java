@@ -0,0 +1,98 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.SCORE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+
+class TransactionBuilderTest {
+
+  private final PlayerRepository players = new PlayerRepository("players");
+  private final PlayerRepository archive = new PlayerRepository("archive");
+
+  private static Player player(String name) {
+    return Player.builder().name(name).score(1).build();
+  }
+
+  @Test
+  void actionsOfSeveralRepositoriesAreCombined() {
+    TransactWriteItemsRequest request =
+        new TransactionBuilder()
+            .put(archive, player("alice"))
+            .delete(players.delete(player("alice")))
+            .update(players.update(player("bob")).add(SCORE, 1))
+            .conditionCheck(
+                players
+                    .delete(player("carol"))
+                    .condition(
+                        it -> it.compare(SCORE, LogicalExpression.ComparisonOperator.LESS, 5L)))
+            .clientRequestToken("transfer-alice")
+            .asTransactWriteItemsRequest();
+
+    List<TransactWriteItem> items = request.transactItems();
+    assertThat(items).hasSize(4);
+    assertThat(items.get(0).put().tableName()).isEqualTo("archive");
+    assertThat(items.get(1).delete().key()).containsEntry("name", AttributeValue.fromS("alice"));
+    assertThat(items.get(1).delete().expressionAttributeNames()).isEmpty();
+    assertThat(items.get(2).update().updateExpression()).contains("ADD");
+    assertThat(items.get(3).conditionCheck().conditionExpression()).isNotBlank();
+    assertThat(request.clientRequestToken()).isEqualTo("transfer-alice");
+  }
+
+  @Test
+  void itemCanAppearOnlyOnce() {
+    TransactionBuilder transaction = new TransactionBuilder().put(players, player("alice"));
+
+    assertThatThrownBy(() -> transaction.delete(players.delete(player("alice"))))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(transaction.put(archive, player("alice")).size()).isEqualTo(2);
+  }
+
+  @Test
+  void invalidActionsAreRejectedLocally() {
+    TransactionBuilder transaction = new TransactionBuilder();
+    Player huge = player(new String(new char[410 * 1024]).replace('\0', 'x'));
+
+    assertThatThrownBy(() -> transaction.put(players, huge))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> transaction.update(players.update(Player.builder().name("a").build())))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> transaction.conditionCheck(players.delete(player("bob"))))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> transaction.clientRequestToken(new String(new char[37])))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(transaction::asTransactWriteItemsRequest)
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void largeWorkIsSplitIntoIndependentTransactions() {
+    TransactionBuilder transaction = new TransactionBuilder().clientRequestToken("import-42");
+    IntStream.range(0, 250).forEach(it -> transaction.put(players, player("player" + it)));
+
+    assertThatThrownBy(transaction::asTransactWriteItemsRequest)
+        .isInstanceOf(TransactionBuilder.TransactionTooLargeException.class);
+
+    List<TransactWriteItemsRequest> requests = transaction.asIndependentTransactions();
+    List<String> tokens =
+        requests.stream()
+            .map(TransactWriteItemsRequest::clientRequestToken)
+            .collect(Collectors.toList());
+
+    assertThat(requests)
+        .extracting(it -> it.transactItems().size())
+        .containsExactly(100, 100, 50);
+    assertThat(tokens).doesNotHaveDuplicates().allMatch(it -> it.length() <= 36);
+    assertThat(transaction.asIndependentTransactions())
+        .extracting(TransactWriteItemsRequest::clientRequestToken)
+        .containsExactlyElementsOf(tokens);
+  }
+}
@@ -0,0 +1,198 @@
+package io.github.rczyzewski.guacamole.ddb;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.ADDRESS;
+import static io.github.rczyzewski.guacamole.ddb.Player.CITY;
+import static io.github.rczyzewski.guacamole.ddb.Player.SCORE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+class WriteBehindBufferTest {
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+  private final List<UpdateItemRequest> requests = Collections.synchronizedList(new ArrayList<>());
+
+  /** Records the updates and fails those of the player named {@code broken}. */
+  private final DynamoDbClient client =
+      new DynamoDbClient() {
+        @Override
+        public UpdateItemResponse updateItem(UpdateItemRequest request) {
+          if (request.key().get("name").s().equals("broken")) {
+            throw new IllegalStateException("broken");
+          }
+          requests.add(request);
+          return UpdateItemResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+          return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {}
+      };
+
+  private final WriteBehindBuffer<Player> buffer =
+      WriteBehindBuffer.<Player>builder().client(client).flushInterval(Duration.ofHours(1)).build();
+
+  @AfterEach
+  void close() {
+    buffer.close();
+  }
+
+  private MappedUpdateExpression<Player, ExpressionGenerator<Player>> update(String name) {
+    return repository.update(Player.builder().name(name).build());
+  }
+
+  private MappedUpdateExpression<Player, ExpressionGenerator<Player>> update(
+      String name, int score) {
+    return repository.update(Player.builder().name(name).score(score).build());
+  }
+
+  @Test
+  void addsAreSummedUp() {
+    UpdateItemRequest merged =
+        update("alice")
+            .add(SCORE, 1)
+            .merge(update("alice").add(SCORE, 2))
+            .get()
+            .asUpdateItemRequest();
+
+    assertThat(merged.updateExpression()).contains("ADD").doesNotContain("SET");
+    assertThat(merged.expressionAttributeValues()).containsValue(AttributeValue.fromN("3"));
+  }
+
+  @Test
+  void addIsFoldedIntoEarlierSet() {
+    UpdateItemRequest merged =
+        update("alice", 10).merge(update("alice").add(SCORE, 5)).get().asUpdateItemRequest();
+
+    assertThat(merged.updateExpression()).contains("SET").doesNotContain("ADD");
+    assertThat(merged.expressionAttributeValues()).containsValue(AttributeValue.fromN("15"));
+  }
+
+  @Test
+  void laterStatementReplacesEarlierOne() {
+    UpdateItemRequest merged =
+        update("alice")
+            .add(SCORE, 5)
+            .merge(update("alice").remove(SCORE))
+            .get()
+            .asUpdateItemRequest();
+
+    assertThat(merged.updateExpression()).contains("REMOVE").doesNotContain("ADD");
+  }
+
+  @Test
+  void updatesThatCannotBeCombinedAreNotMerged() {
+    MappedUpdateExpression<Player, ExpressionGenerator<Player>> conditional =
+        update("alice")
+            .add(SCORE, 1)
+            .condition(it -> it.compare(SCORE, LogicalExpression.ComparisonOperator.LESS, 5L));
+
+    assertThat(update("alice").add(SCORE, 1).merge(conditional)).isEmpty();
+    assertThat(
+            update("alice")
+                .add(SCORE, 1)
+                .merge(update("alice").set(ADDRESS, it -> it.just(SCORE))))
+        .isEmpty();
+    assertThat(
+            update("alice")
+                .set(ADDRESS, it -> it.just(AttributeValue.fromM(Collections.emptyMap())))
+                .merge(update("alice").remove(CITY)))
+        .isEmpty();
+    assertThatThrownBy(() -> update("alice").merge(update("bob")))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void burstOfUpdatesIsWrittenOnce() {
+    List<CompletableFuture<Void>> written = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      written.add(buffer.submit(update("alice").add(SCORE, 1)));
+    }
+    written.add(buffer.submit(update("bob").add(SCORE, 1)));
+
+    assertThat(buffer.pendingItems()).isEqualTo(2);
+    buffer.flush().join();
+
+    assertThat(requests).hasSize(2);
+    assertThat(requests)
+        .filteredOn(it -> it.key().get("name").s().equals("alice"))
+        .singleElement()
+        .satisfies(
+            it ->
+                assertThat(it.expressionAttributeValues())
+                    .containsValue(AttributeValue.fromN("10")));
+    assertThat(written).allMatch(CompletableFuture::isDone);
+  }
+
+  @Test
+  void updatesThatCannotBeMergedAreWrittenInOrder() {
+    buffer.submit(update("alice").add(SCORE, 1));
+    buffer.submit(update("alice").set(ADDRESS, it -> it.just(SCORE)));
+    buffer.flush().join();
+
+    assertThat(requests).hasSize(2);
+    assertThat(requests.get(0).updateExpression()).contains("ADD");
+    assertThat(requests.get(1).updateExpression()).contains("SET");
+  }
+
+  @Test
+  void reachingTheLimitOfPendingItemsFlushes() {
+    try (WriteBehindBuffer<Player> small =
+        WriteBehindBuffer.<Player>builder()
+            .client(client)
+            .flushInterval(Duration.ofHours(1))
+            .maxPendingItems(2)
+            .build()) {
+      CompletableFuture<Void> alice = small.submit(update("alice").add(SCORE, 1));
+      small.submit(update("bob").add(SCORE, 1)).join();
+      alice.join();
+
+      assertThat(requests).hasSize(2);
+      assertThat(small.pendingItems()).isZero();
+    }
+  }
+
+  @Test
+  void failureIsReportedToEveryMergedUpdate() {
+    CompletableFuture<Void> first = buffer.submit(update("broken").add(SCORE, 1));
+    CompletableFuture<Void> second = buffer.submit(update("broken").add(SCORE, 2));
+    buffer.flush();
+
+    assertThatThrownBy(first::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(second::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void closeWritesPendingUpdates() {
+    CompletableFuture<Void> written = buffer.submit(update("alice").add(SCORE, 1));
+
+    buffer.close();
+
+    assertThat(written).isCompleted();
+    assertThat(requests).hasSize(1);
+    assertThatThrownBy(() -> buffer.submit(update("alice").add(SCORE, 1)))
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
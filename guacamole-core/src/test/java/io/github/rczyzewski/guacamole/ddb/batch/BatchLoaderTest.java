@@ -0,0 +1,140 @@
+package io.github.rczyzewski.guacamole.ddb.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.rczyzewski.guacamole.ddb.Player;
+import io.github.rczyzewski.guacamole.ddb.PlayerRepository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+class BatchLoaderTest {
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Stores players named {@code player0..player249}. The first two keys of every request are left
+   * unprocessed, and keys named {@code never*} are never processed.
+   */
+  private final DynamoDbClient client =
+      new DynamoDbClient() {
+        @Override
+        public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+          List<Map<String, AttributeValue>> keys = request.requestItems().get("players").keys();
+          batchSizes.add(keys.size());
+
+          List<Map<String, AttributeValue>> items = new ArrayList<>();
+          List<Map<String, AttributeValue>> unprocessed = new ArrayList<>();
+          for (int i = 0; i < keys.size(); i++) {
+            String name = keys.get(i).get("name").s();
+            if (name.startsWith("never") || i < 2 && keys.size() > 2) {
+              unprocessed.add(keys.get(i));
+            } else if (name.startsWith("player")) {
+              int score = Integer.parseInt(name.substring("player".length()));
+              items.add(Player.MAPPER.export(player(score)));
+            }
+          }
+          return BatchGetItemResponse.builder()
+              .responses(Collections.singletonMap("players", items))
+              .unprocessedKeys(
+                  unprocessed.isEmpty()
+                      ? null
+                      : Collections.singletonMap(
+                          "players", KeysAndAttributes.builder().keys(unprocessed).build()))
+              .build();
+        }
+
+        @Override
+        public String serviceName() {
+          return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {}
+      };
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private static Player player(int score) {
+    return Player.builder().name("player" + score).score(score).build();
+  }
+
+  private static Player key(String name) {
+    return Player.builder().name(name).build();
+  }
+
+  private BatchLoader.BatchLoaderBuilder<Player> loader() {
+    return BatchLoader.<Player>builder()
+        .client(client)
+        .repository(repository)
+        .baseDelay(Duration.ZERO);
+  }
+
+  @Test
+  void keysAreDeduplicatedAndSplitIntoBatchesOfHundred() {
+    List<Player> keys =
+        IntStream.range(0, 250).mapToObj(it -> key("player" + it)).collect(Collectors.toList());
+    keys.addAll(keys.subList(0, 10));
+
+    List<Player> loaded = loader().executor(executor).maxConcurrency(2).build().load(keys);
+
+    assertThat(loaded)
+        .containsExactlyInAnyOrderElementsOf(
+            IntStream.range(0, 250).mapToObj(BatchLoaderTest::player).collect(Collectors.toList()));
+    assertThat(batchSizes).containsExactlyInAnyOrder(100, 100, 50, 2, 2, 2);
+  }
+
+  @Test
+  void resultsFollowTheOrderOfTheKeys() {
+    List<Optional<Player>> loaded =
+        loader()
+            .build()
+            .loadInOrder(
+                Arrays.asList(key("player7"), key("missing"), key("player3"), key("player7")));
+
+    assertThat(loaded)
+        .containsExactly(
+            Optional.of(player(7)),
+            Optional.empty(),
+            Optional.of(player(3)),
+            Optional.of(player(7)));
+  }
+
+  @Test
+  void repositoryLoadsAllByKeys() {
+    assertThat(repository.loadAll(client, Arrays.asList(key("player1"), key("player2"))))
+        .containsExactlyInAnyOrder(player(1), player(2));
+  }
+
+  @Test
+  void failsWhenKeysStayUnprocessed() {
+    BatchLoader<Player> loader = loader().maxRetries(2).build();
+
+    assertThatThrownBy(() -> loader.load(Arrays.asList(key("never"), key("player1"))))
+        .isInstanceOf(BatchLoader.UnprocessedKeysException.class);
+    assertThat(batchSizes).containsExactly(2, 1, 1);
+  }
+}
@@ -0,0 +1,185 @@
+package io.github.rczyzewski.guacamole.ddb.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.Player;
+import io.github.rczyzewski.guacamole.ddb.PlayerRepository;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+class BatchWriterTest {
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+  private final Queue<Map<String, AttributeValue>> sent = new ConcurrentLinkedQueue<>();
+  private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  /**
+   * Accepts every item, except that items named {@code slow*} are left unprocessed on their first
+   * attempt, and items named {@code never*} on every attempt.
+   */
+  private final DynamoDbClient client =
+      new DynamoDbClient() {
+        @Override
+        public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          try {
+            List<WriteRequest> requests = request.requestItems().get("players");
+            batchSizes.add(requests.size());
+            requests.forEach(it -> sent.add(it.putRequest().item()));
+            List<WriteRequest> unprocessed =
+                requests.stream()
+                    .filter(
+                        it -> {
+                          String name = it.putRequest().item().get("name").s();
+                          int attempt =
+                              attempts
+                                  .computeIfAbsent(name, ignored -> new AtomicInteger())
+                                  .incrementAndGet();
+                          return name.startsWith("never")
+                              || name.startsWith("slow") && attempt == 1;
+                        })
+                    .collect(Collectors.toList());
+            Thread.sleep(5);
+            return BatchWriteItemResponse.builder()
+                .unprocessedItems(
+                    unprocessed.isEmpty()
+                        ? null
+                        : Collections.singletonMap("players", unprocessed))
+                .build();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          } finally {
+            inFlight.decrementAndGet();
+          }
+        }
+
+        @Override
+        public String serviceName() {
+          return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {}
+      };
+
+  private BatchWriter.BatchWriterBuilder<Player> writer() {
+    return BatchWriter.<Player>builder()
+        .client(client)
+        .repository(repository)
+        .baseDelay(Duration.ZERO);
+  }
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private static List<Player> players(String prefix, int count) {
+    return IntStream.range(0, count)
+        .mapToObj(it -> Player.builder().name(prefix + it).score(it).build())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  void itemsAreSplitIntoBatchesOfTwentyFive() {
+    BatchWriteResult<Player> result = writer().build().write(players("player", 60));
+
+    assertThat(result.isSuccessful()).isTrue();
+    assertThat(result.getWritten()).hasSize(60);
+    assertThat(batchSizes).containsExactly(25, 25, 10);
+  }
+
+  @Test
+  void unprocessedItemsAreSentAgain() {
+    List<Player> players = players("slow", 3);
+    players.addAll(players("player", 2));
+
+    BatchWriteResult<Player> result = writer().build().write(players);
+
+    assertThat(result.isSuccessful()).isTrue();
+    assertThat(result.getWritten()).containsExactlyInAnyOrderElementsOf(players);
+    assertThat(batchSizes).containsExactly(5, 3);
+  }
+
+  @Test
+  void itemsWithTheSameKeyAreWrittenOnceWithTheLastOfThem() {
+    Player first = Player.builder().name("player").score(1).build();
+    Player other = Player.builder().name("other").score(1).build();
+    Player last = first.withScore(2);
+
+    BatchWriteResult<Player> result = writer().build().write(Arrays.asList(first, other, last));
+
+    assertThat(result.getWritten()).containsExactlyInAnyOrder(first, other, last);
+    assertThat(batchSizes).containsExactly(2);
+    assertThat(sent)
+        .filteredOn(it -> it.get("name").s().equals("player"))
+        .singleElement()
+        .satisfies(it -> assertThat(it.get("score")).isEqualTo(AttributeValue.fromN("2")));
+  }
+
+  @Test
+  void itemsAreReportedAsFailedWhenRetriesAreExhausted() {
+    List<Player> players = players("never", 1);
+    players.addAll(players("player", 2));
+
+    BatchWriteResult<Player> result = writer().maxRetries(2).build().write(players);
+
+    assertThat(result.getWritten())
+        .extracting(Player::getName)
+        .containsExactlyInAnyOrder("player0", "player1");
+    assertThat(result.getFailed())
+        .singleElement()
+        .satisfies(
+            it -> {
+              assertThat(it.getItem().getName()).isEqualTo("never0");
+              assertThat(it.getCause()).isInstanceOf(BatchWriter.UnprocessedItemsException.class);
+            });
+    assertThat(attempts.get("never0")).hasValue(3);
+  }
+
+  @Test
+  void itemsAboveTheSizeLimitFailWithoutBeingSent() {
+    String name = new String(new char[410 * 1024]).replace('\0', 'x');
+    Player huge = Player.builder().name(name).build();
+
+    BatchWriteResult<Player> result = writer().build().write(Arrays.asList(huge));
+
+    assertThat(result.getFailed())
+        .singleElement()
+        .satisfies(
+            it -> assertThat(it.getCause()).isInstanceOf(BatchWriter.ItemTooLargeException.class));
+    assertThat(batchSizes).isEmpty();
+  }
+
+  @Test
+  void batchesAreSentConcurrentlyUpToTheLimit() {
+    BatchWriteResult<Player> result =
+        writer().executor(executor).maxConcurrency(2).build().write(players("player", 200));
+
+    assertThat(result.getWritten()).hasSize(200);
+    assertThat(batchSizes).hasSize(8);
+    assertThat(maxInFlight.get()).isBetween(1, 2);
+  }
+}
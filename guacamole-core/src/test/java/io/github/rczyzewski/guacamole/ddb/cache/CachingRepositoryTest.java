@@ -0,0 +1,158 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.Player;
+import io.github.rczyzewski.guacamole.ddb.PlayerRepository;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+class CachingRepositoryTest {
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+  private final Map<Map<String, AttributeValue>, Map<String, AttributeValue>> table =
+      new ConcurrentHashMap<>();
+  private final AtomicInteger reads = new AtomicInteger();
+  private final AtomicLong now = new AtomicLong();
+
+  /** Keeps the items in memory; an update sets the score to 99. */
+  private final DynamoDbClient client =
+      new DynamoDbClient() {
+        @Override
+        public GetItemResponse getItem(GetItemRequest request) {
+          reads.incrementAndGet();
+          return GetItemResponse.builder().item(table.get(request.key())).build();
+        }
+
+        @Override
+        public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+          List<Map<String, AttributeValue>> keys = request.requestItems().get("players").keys();
+          reads.addAndGet(keys.size());
+          return BatchGetItemResponse.builder()
+              .responses(
+                  Collections.singletonMap(
+                      "players",
+                      keys.stream()
+                          .map(table::get)
+                          .filter(it -> it != null)
+                          .collect(Collectors.toList())))
+              .build();
+        }
+
+        @Override
+        public PutItemResponse putItem(PutItemRequest request) {
+          table.put(Collections.singletonMap("name", request.item().get("name")), request.item());
+          return PutItemResponse.builder().build();
+        }
+
+        @Override
+        public UpdateItemResponse updateItem(UpdateItemRequest request) {
+          Player updated = Player.MAPPER.transform(table.get(request.key())).withScore(99);
+          table.put(request.key(), Player.MAPPER.export(updated));
+          return UpdateItemResponse.builder().attributes(Player.MAPPER.export(updated)).build();
+        }
+
+        @Override
+        public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+          table.remove(request.key());
+          return DeleteItemResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+          return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {}
+      };
+
+  private final CachingRepository<Player> cached =
+      new CachingRepository<>(
+          repository, client, new LruCache<>(2, Duration.ofSeconds(10), now::get));
+
+  private static Player player(String name) {
+    return Player.builder().name(name).score(1).build();
+  }
+
+  private static Player key(String name) {
+    return Player.builder().name(name).build();
+  }
+
+  private void store(Player player) {
+    table.put(Player.MAPPER.exportKeys(player), Player.MAPPER.export(player));
+  }
+
+  @Test
+  void repeatedGetIsServedFromTheCache() {
+    store(player("alice"));
+
+    assertThat(cached.get(key("alice"))).contains(player("alice"));
+    assertThat(cached.get(key("alice"))).contains(player("alice"));
+    assertThat(cached.get(key("bob"))).isEmpty();
+
+    assertThat(reads).hasValue(2);
+    assertThat(cached.stats()).isEqualTo(new CacheStats(1, 2, 0, 0));
+  }
+
+  @Test
+  void entriesExpireAndAreEvicted() {
+    CachingRepository<Player> single =
+        new CachingRepository<>(
+            repository, client, new LruCache<>(1, Duration.ofSeconds(10), now::get));
+    Arrays.asList("alice", "bob").forEach(it -> store(player(it)));
+    single.get(key("alice"));
+    single.get(key("bob"));
+    single.get(key("alice"));
+
+    now.addAndGet(Duration.ofSeconds(11).toNanos());
+    single.get(key("alice"));
+
+    assertThat(single.stats()).isEqualTo(new CacheStats(0, 4, 2, 1));
+    assertThat(reads).hasValue(4);
+  }
+
+  @Test
+  void getAllReadsOnlyMissingKeys() {
+    Arrays.asList("alice", "bob").forEach(it -> store(player(it)));
+    cached.get(key("alice"));
+
+    List<Player> players = cached.getAll(Arrays.asList(key("alice"), key("bob"), key("bob")));
+
+    assertThat(players).containsExactlyInAnyOrder(player("alice"), player("bob"));
+    assertThat(reads).hasValue(2);
+  }
+
+  @Test
+  void writesRefreshOrInvalidateTheEntry() {
+    cached.put(player("alice"));
+    assertThat(cached.get(key("alice"))).contains(player("alice"));
+
+    cached.update(player("alice"));
+    assertThat(cached.get(key("alice"))).contains(player("alice").withScore(99));
+
+    cached.delete(key("alice"));
+    assertThat(cached.get(key("alice"))).isEmpty();
+    assertThat(reads).hasValue(1);
+  }
+}
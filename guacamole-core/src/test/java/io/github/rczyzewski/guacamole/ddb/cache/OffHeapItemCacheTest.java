@@ -0,0 +1,141 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.MAPPER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.rczyzewski.guacamole.ddb.Player;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class OffHeapItemCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  /** Two slabs, each holding two small players. */
+  private final OffHeapItemCache<Player> cache =
+      new OffHeapItemCache<>(MAPPER, 80, 40, Duration.ofSeconds(10), now::get);
+
+  private static Player player(String name) {
+    return Player.builder().name(name).score(1).build();
+  }
+
+  private static Player key(String name) {
+    return Player.builder().name(name).build();
+  }
+
+  @Test
+  void formatKeepsEveryType() {
+    Map<String, AttributeValue> item = new LinkedHashMap<>();
+    item.put("s", AttributeValue.fromS("zażółć 𝄞"));
+    item.put("n", AttributeValue.fromN("-12.5E+3"));
+    item.put("b", AttributeValue.fromB(SdkBytes.fromByteArray(new byte[] {0, -1, 7})));
+    item.put("t", AttributeValue.fromBool(true));
+    item.put("f", AttributeValue.fromBool(false));
+    item.put("nul", AttributeValue.fromNul(true));
+    item.put("ss", AttributeValue.fromSs(Arrays.asList("a", "b")));
+    item.put("ns", AttributeValue.fromNs(Arrays.asList("1", "0.25")));
+    item.put("bs", AttributeValue.fromBs(Arrays.asList(SdkBytes.fromUtf8String("x"))));
+    item.put(
+        "l",
+        AttributeValue.fromL(Arrays.asList(AttributeValue.fromN("7"), AttributeValue.fromS(""))));
+    item.put("m", AttributeValue.fromM(new LinkedHashMap<>(item)));
+
+    ByteBuffer buffer = ByteBuffer.allocate(CompactItemFormat.sizeOf(item));
+    CompactItemFormat.write(item, buffer);
+    assertThat(buffer.remaining()).isZero();
+
+    buffer.flip();
+    assertThat(CompactItemFormat.read(buffer)).isEqualTo(item);
+  }
+
+  @Test
+  void numbersArePackedTwoCharactersPerByte() {
+    Map<String, AttributeValue> item =
+        Collections.singletonMap("n", AttributeValue.fromN("1234567890"));
+
+    assertThat(CompactItemFormat.sizeOf(item)).isEqualTo(1 + 2 + 1 + 1 + 5);
+  }
+
+  @Test
+  void numberWithUnexpectedCharacterIsRejected() {
+    Map<String, AttributeValue> item = Collections.singletonMap("n", AttributeValue.fromN("0x10"));
+
+    assertThatThrownBy(() -> CompactItemFormat.write(item, ByteBuffer.allocate(16)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void storedItemIsDecodedOnHit() {
+    Map<String, AttributeValue> address = new LinkedHashMap<>();
+    address.put("city", AttributeValue.fromS("Kraków"));
+    Player alice = player("alice").withAddress(address);
+    OffHeapItemCache<Player> large = new OffHeapItemCache<>(MAPPER, 1024, 512, Duration.ofDays(1));
+
+    large.put(alice);
+
+    assertThat(large.get(key("alice"))).contains(alice);
+    assertThat(large.get(key("bob"))).isEmpty();
+    assertThat(large.stats()).isEqualTo(new CacheStats(1, 1, 0, 0));
+    assertThat(large.allocatedBytes()).isEqualTo(512);
+  }
+
+  @Test
+  void putReplacesTheItem() {
+    cache.put(player("alice"));
+    cache.put(player("alice").withScore(2));
+
+    assertThat(cache.get(key("alice"))).contains(player("alice").withScore(2));
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void fullSlabsAreEvictedInTurn() {
+    cache.put(player("a"));
+    cache.put(player("b"));
+    cache.put(player("c"));
+    cache.put(player("d"));
+    cache.put(player("e"));
+
+    assertThat(cache.get(key("a"))).isEmpty();
+    assertThat(cache.get(key("b"))).isEmpty();
+    assertThat(cache.get(key("c"))).contains(player("c"));
+    assertThat(cache.get(key("e"))).contains(player("e"));
+    assertThat(cache.stats().getEvictions()).isEqualTo(2);
+  }
+
+  @Test
+  void itemLargerThanSlabIsNotCached() {
+    cache.put(player("alice"));
+    cache.put(player("alice").withAddress(bigAddress()));
+
+    assertThat(cache.get(key("alice"))).isEmpty();
+  }
+
+  @Test
+  void entriesExpireAndAreInvalidated() {
+    cache.put(player("alice"));
+    cache.put(player("bob"));
+    cache.invalidate(key("bob"));
+    now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+    assertThat(cache.get(key("alice"))).isEmpty();
+    assertThat(cache.get(key("bob"))).isEmpty();
+    assertThat(cache.stats().getExpirations()).isEqualTo(1);
+    assertThat(cache.size()).isZero();
+  }
+
+  private static Map<String, AttributeValue> bigAddress() {
+    Map<String, AttributeValue> address = new LinkedHashMap<>();
+    address.put("street", AttributeValue.fromS("a very long street name over forty bytes"));
+    return address;
+  }
+}
@@ -0,0 +1,158 @@
+package io.github.rczyzewski.guacamole.ddb.cache;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.MAPPER;
+import static io.github.rczyzewski.guacamole.ddb.Player.NAME;
+import static io.github.rczyzewski.guacamole.ddb.Player.SCORE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.MappedQueryExpression;
+import io.github.rczyzewski.guacamole.ddb.Player;
+import io.github.rczyzewski.guacamole.ddb.PlayerRepository;
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+class QueryCacheTest {
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+  private final Map<AttributeValue, Map<String, AttributeValue>> table = new ConcurrentHashMap<>();
+  private final AtomicInteger queries = new AtomicInteger();
+  private final AtomicLong now = new AtomicLong();
+
+  /** Keeps the items in memory, a query returns the items bound by any of its values. */
+  private final DynamoDbClient client =
+      new DynamoDbClient() {
+        @Override
+        public QueryResponse query(QueryRequest request) {
+          queries.incrementAndGet();
+          return QueryResponse.builder()
+              .items(
+                  request.expressionAttributeValues().values().stream()
+                      .map(table::get)
+                      .filter(it -> it != null)
+                      .collect(Collectors.toList()))
+              .build();
+        }
+
+        @Override
+        public PutItemResponse putItem(PutItemRequest request) {
+          table.put(request.item().get("name"), request.item());
+          return PutItemResponse.builder().build();
+        }
+
+        @Override
+        public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+          table.remove(request.key().get("name"));
+          return DeleteItemResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+          return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {}
+      };
+
+  private final QueryCache<Player> cached =
+      new QueryCache<>(repository, client, new LruCache<>(10, Duration.ofSeconds(10), now::get));
+
+  private static MappedQueryExpression<Player, ExpressionGenerator<Player>> byName(
+      String index, String name) {
+    return new MappedQueryExpression<>(
+        new ExpressionGenerator<>(),
+        index,
+        "players",
+        null,
+        MAPPER,
+        new ExpressionGenerator<Player>()
+            .compare(NAME, LogicalExpression.ComparisonOperator.EQUAL, name));
+  }
+
+  private static Player player(String name, int score) {
+    return Player.builder().name(name).score(score).build();
+  }
+
+  private void store(Player player) {
+    table.put(AttributeValue.fromS(player.getName()), MAPPER.export(player));
+  }
+
+  @Test
+  void identicalQueriesShareTheEntry() {
+    store(player("alice", 1));
+
+    assertThat(cached.query(byName(null, "alice"))).containsExactly(player("alice", 1));
+    assertThat(cached.query(byName(null, "alice"))).containsExactly(player("alice", 1));
+    assertThat(cached.query(byName(null, "bob"))).isEmpty();
+
+    assertThat(queries).hasValue(2);
+    assertThat(cached.stats()).isEqualTo(new CacheStats(1, 2, 0, 0));
+  }
+
+  @Test
+  void filterIsPartOfTheKey() {
+    store(player("alice", 1));
+    cached.query(byName(null, "alice"));
+    cached.query(
+        byName(null, "alice")
+            .condition(it -> it.compare(SCORE, LogicalExpression.ComparisonOperator.EQUAL, 1)));
+
+    assertThat(queries).hasValue(2);
+  }
+
+  @Test
+  void writeDropsQueriesOfItsPartitionOnly() {
+    store(player("alice", 1));
+    store(player("bob", 1));
+    cached.query(byName(null, "alice"));
+    cached.query(byName(null, "bob"));
+
+    cached.put(player("alice", 2));
+
+    assertThat(cached.query(byName(null, "alice"))).containsExactly(player("alice", 2));
+    assertThat(cached.query(byName(null, "bob"))).containsExactly(player("bob", 1));
+    assertThat(queries).hasValue(3);
+
+    cached.delete(player("bob", 1));
+
+    assertThat(cached.query(byName(null, "bob"))).isEmpty();
+    assertThat(queries).hasValue(4);
+  }
+
+  @Test
+  void writeDropsAllQueriesOfIndexes() {
+    store(player("alice", 1));
+    cached.query(byName("byScore", "alice"));
+
+    cached.put(player("bob", 1));
+    cached.query(byName("byScore", "alice"));
+
+    assertThat(queries).hasValue(2);
+  }
+
+  @Test
+  void entriesExpire() {
+    store(player("alice", 1));
+    cached.query(byName(null, "alice"));
+    now.addAndGet(Duration.ofSeconds(10).toNanos());
+    cached.query(byName(null, "alice"));
+
+    assertThat(queries).hasValue(2);
+    assertThat(cached.stats().getExpirations()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,127 @@
+package io.github.rczyzewski.guacamole.ddb.capacity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+class CapacityAccountingTest {
+
+  private final CapacityAccounting accounting = new CapacityAccounting();
+
+  /** Sends the request through the accounting and answers it with the given response. */
+  private SdkRequest execute(String operation, SdkRequest request, SdkResponse response) {
+    ExecutionAttributes attributes = new ExecutionAttributes();
+    attributes.putAttribute(SdkExecutionAttribute.OPERATION_NAME, operation);
+    SdkRequest modified =
+        accounting.modifyRequest(
+            InterceptorContext.builder().request(request).build(), attributes);
+    accounting.afterExecution(
+        InterceptorContext.builder().request(modified).response(response).build(), attributes);
+    return modified;
+  }
+
+  private static QueryResponse queried(double units) {
+    return QueryResponse.builder()
+        .consumedCapacity(
+            ConsumedCapacity.builder()
+                .tableName("players")
+                .table(Capacity.builder().readCapacityUnits(0.0).build())
+                .globalSecondaryIndexes(
+                    Collections.singletonMap(
+                        "byScore", Capacity.builder().readCapacityUnits(units).build()))
+                .build())
+        .build();
+  }
+
+  private static PutItemResponse written(double units) {
+    return PutItemResponse.builder()
+        .consumedCapacity(
+            ConsumedCapacity.builder()
+                .tableName("players")
+                .table(Capacity.builder().writeCapacityUnits(units).build())
+                .localSecondaryIndexes(
+                    Collections.singletonMap(
+                        "byName", Capacity.builder().writeCapacityUnits(1.0).build()))
+                .build())
+        .build();
+  }
+
+  @Test
+  void requestsAskForCapacityOfIndexes() {
+    QueryRequest query = QueryRequest.builder().tableName("players").build();
+
+    SdkRequest modified = execute("Query", query, queried(1));
+
+    assertThat(((QueryRequest) modified).returnConsumedCapacity())
+        .isEqualTo(ReturnConsumedCapacity.INDEXES);
+  }
+
+  @Test
+  void capacityIsChargedToTableAndIndexesOfTheMethod() {
+    QueryRequest query = QueryRequest.builder().tableName("players").indexName("byScore").build();
+    PutItemRequest put = PutItemRequest.builder().tableName("players").build();
+
+    try (CapacityAccounting.Scope ignored = CapacityAccounting.method("leaderboard")) {
+      execute("Query", query, queried(2));
+      execute("Query", query, queried(4));
+    }
+    execute("PutItem", put, written(3));
+
+    assertThat(accounting.topConsumers(2))
+        .extracting(
+            CapacityAccounting.Consumer::getMethod,
+            CapacityAccounting.Consumer::getTableName,
+            CapacityAccounting.Consumer::getIndexName,
+            CapacityAccounting.Consumer::getRequests,
+            CapacityAccounting.Consumer::getTotalUnits)
+        .containsExactly(
+            tuple("leaderboard", "players", "byScore", 2L, 6.0),
+            tuple("PutItem", "players", null, 1L, 3.0));
+    assertThat(accounting.consumers()).hasSize(4);
+  }
+
+  @Test
+  void percentilesComeFromTheHistogram() {
+    QueryRequest query = QueryRequest.builder().tableName("players").indexName("byScore").build();
+    for (int i = 0; i < 99; i++) execute("Query", query, queried(1));
+    execute("Query", query, queried(100));
+
+    CapacityAccounting.Consumer consumer = accounting.topConsumers(1).get(0);
+
+    assertThat(consumer.getReadUnits()).isEqualTo(199.0);
+    assertThat(consumer.getMedianUnits()).isCloseTo(1, offset(0.125));
+    assertThat(consumer.getP99Units()).isCloseTo(1, offset(0.125));
+  }
+
+  @Test
+  void scopesCanBeNested() {
+    QueryRequest query = QueryRequest.builder().tableName("players").build();
+
+    try (CapacityAccounting.Scope outer = CapacityAccounting.method("outer")) {
+      try (CapacityAccounting.Scope inner = CapacityAccounting.method("inner")) {
+        execute("Query", query, queried(1));
+      }
+      execute("Query", query, queried(1));
+    }
+    execute("Query", query, queried(1));
+
+    assertThat(accounting.consumers())
+        .extracting(CapacityAccounting.Consumer::getMethod)
+        .containsOnly("inner", "outer", "Query");
+  }
+}
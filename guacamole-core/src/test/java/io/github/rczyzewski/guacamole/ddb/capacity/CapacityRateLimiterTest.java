@@ -0,0 +1,186 @@
+package io.github.rczyzewski.guacamole.ddb.capacity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+class CapacityRateLimiterTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private final CapacityRateLimiter limiter =
+      limiter().table("players", 10, 5).index("players", "byScore", 4, 0).build();
+
+  private CapacityRateLimiter.Builder limiter() {
+    return CapacityRateLimiter.builder()
+        .burst(Duration.ofSeconds(1))
+        .clock(
+            now::get,
+            nanos -> {
+              now.addAndGet(nanos);
+              return true;
+            });
+  }
+
+  private SdkRequest execute(SdkRequest request, SdkResponse response) {
+    return execute(limiter, request, response);
+  }
+
+  /** Sends the request through the limiter and answers it with the given response. */
+  private static SdkRequest execute(
+      CapacityRateLimiter limiter, SdkRequest request, SdkResponse response) {
+    ExecutionAttributes attributes = new ExecutionAttributes();
+    SdkRequest modified =
+        limiter.modifyRequest(InterceptorContext.builder().request(request).build(), attributes);
+    limiter.afterExecution(
+        InterceptorContext.builder().request(modified).response(response).build(), attributes);
+    return modified;
+  }
+
+  private static ScanResponse scanned(double units) {
+    return ScanResponse.builder()
+        .consumedCapacity(
+            ConsumedCapacity.builder()
+                .tableName("players")
+                .table(Capacity.builder().readCapacityUnits(units).build())
+                .build())
+        .build();
+  }
+
+  @Test
+  void requestsOfLimitedTablesAskForConsumedCapacity() {
+    SdkRequest limited = execute(ScanRequest.builder().tableName("players").build(), scanned(1));
+    ScanRequest other = ScanRequest.builder().tableName("other").build();
+
+    assertThat(((ScanRequest) limited).returnConsumedCapacity())
+        .isEqualTo(ReturnConsumedCapacity.INDEXES);
+    assertThat(execute(other, ScanResponse.builder().build())).isSameAs(other);
+  }
+
+  @Test
+  void requestWaitsUntilConsumedCapacityIsPaidBack() {
+    ScanRequest scan = ScanRequest.builder().tableName("players").build();
+
+    execute(scan, scanned(25));
+    execute(scan, scanned(1));
+
+    CapacityRateLimiter.Usage usage = limiter.usage().get(0);
+    assertThat(usage.getConsumedReadUnits()).isEqualTo(26);
+    assertThat(usage.getRequests()).isEqualTo(2);
+    assertThat(usage.getDelayedRequests()).isEqualTo(1);
+    // 10 units of burst, 15 units of debt refilled at 10 units per second
+    assertThat(usage.getWaited()).isBetween(Duration.ofMillis(1500), Duration.ofMillis(1501));
+  }
+
+  @Test
+  void capacityOfGlobalIndexesIsChargedSeparately() {
+    QueryRequest query = QueryRequest.builder().tableName("players").indexName("byScore").build();
+    QueryResponse response =
+        QueryResponse.builder()
+            .consumedCapacity(
+                ConsumedCapacity.builder()
+                    .tableName("players")
+                    .table(Capacity.builder().readCapacityUnits(0.0).build())
+                    .globalSecondaryIndexes(
+                        Collections.singletonMap(
+                            "byScore", Capacity.builder().readCapacityUnits(8.0).build()))
+                    .build())
+            .build();
+
+    execute(query, response);
+    execute(query, response);
+
+    assertThat(limiter.usage())
+        .extracting(
+            CapacityRateLimiter.Usage::getIndexName,
+            CapacityRateLimiter.Usage::getConsumedReadUnits,
+            CapacityRateLimiter.Usage::getDelayedRequests)
+        .containsExactly(
+            tuple(null, 0.0, 0L),
+            tuple("byScore", 16.0, 1L));
+  }
+
+  @Test
+  void writesAreChargedToTheWriteBudget() {
+    PutItemResponse response =
+        PutItemResponse.builder()
+            .consumedCapacity(
+                ConsumedCapacity.builder().tableName("players").capacityUnits(3.0).build())
+            .build();
+
+    execute(PutItemRequest.builder().tableName("players").build(), response);
+
+    CapacityRateLimiter.Usage usage = limiter.usage().get(0);
+    assertThat(usage.getConsumedWriteUnits()).isEqualTo(3);
+    assertThat(usage.getConsumedReadUnits()).isZero();
+  }
+
+  @Test
+  void writesToAnIndexWithoutWriteBudgetAreOnlyCounted() {
+    PutItemResponse response =
+        PutItemResponse.builder()
+            .consumedCapacity(
+                ConsumedCapacity.builder()
+                    .tableName("players")
+                    .table(Capacity.builder().writeCapacityUnits(1.0).build())
+                    .globalSecondaryIndexes(
+                        Collections.singletonMap(
+                            "byScore", Capacity.builder().writeCapacityUnits(2.0).build()))
+                    .build())
+            .build();
+
+    execute(PutItemRequest.builder().tableName("players").build(), response);
+
+    assertThat(limiter.usage())
+        .extracting(
+            CapacityRateLimiter.Usage::getIndexName,
+            CapacityRateLimiter.Usage::getConsumedWriteUnits)
+        .containsExactly(tuple(null, 1.0), tuple("byScore", 2.0));
+  }
+
+  @Test
+  void writesWaitForTheWriteBudgetOfGlobalIndexes() {
+    CapacityRateLimiter indexed =
+        limiter().table("players", 10, 5).index("players", "byScore", 0, 2).build();
+    PutItemRequest put = PutItemRequest.builder().tableName("players").build();
+    PutItemResponse response =
+        PutItemResponse.builder()
+            .consumedCapacity(
+                ConsumedCapacity.builder()
+                    .tableName("players")
+                    .table(Capacity.builder().writeCapacityUnits(1.0).build())
+                    .globalSecondaryIndexes(
+                        Collections.singletonMap(
+                            "byScore", Capacity.builder().writeCapacityUnits(8.0).build()))
+                    .build())
+            .build();
+
+    execute(indexed, put, response);
+    execute(indexed, put, response);
+
+    CapacityRateLimiter.Usage table = indexed.usage().get(0);
+    CapacityRateLimiter.Usage index = indexed.usage().get(1);
+    assertThat(table.getDelayedRequests()).isZero();
+    assertThat(index.getConsumedWriteUnits()).isEqualTo(16);
+    assertThat(index.getDelayedRequests()).isEqualTo(1);
+    // 2 units of burst, 6 units of debt refilled at 2 units per second
+    assertThat(index.getWaited()).isBetween(Duration.ofMillis(3000), Duration.ofMillis(3001));
+  }
+}
@@ -0,0 +1,86 @@
+package io.github.rczyzewski.guacamole.ddb.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.Player;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class ItemSizeCalculatorTest {
+
+  @Test
+  void stringsCountTheirUtf8Bytes() {
+    for (String text : Arrays.asList("", "plain", "zażółć", "😀", "\uD83D")) {
+      assertThat(ItemSizeCalculator.utf8Length(text))
+          .isEqualTo(text.getBytes(StandardCharsets.UTF_8).length);
+    }
+  }
+
+  @Test
+  void numbersCountPairsOfDigitsAroundTheDecimalPoint() {
+    assertThat(ItemSizeCalculator.numberSize("0")).isEqualTo(1);
+    assertThat(ItemSizeCalculator.numberSize("12")).isEqualTo(2);
+    assertThat(ItemSizeCalculator.numberSize("123")).isEqualTo(3);
+    assertThat(ItemSizeCalculator.numberSize("100")).isEqualTo(2);
+    assertThat(ItemSizeCalculator.numberSize("0.1")).isEqualTo(2);
+    assertThat(ItemSizeCalculator.numberSize("1.1")).isEqualTo(3);
+    assertThat(ItemSizeCalculator.numberSize("-1")).isEqualTo(3);
+    assertThat(ItemSizeCalculator.numberSize("1E+2")).isEqualTo(2);
+    assertThat(ItemSizeCalculator.numberSize("1.5e-3")).isEqualTo(2);
+  }
+
+  @Test
+  void wholeNumbersAreMeasuredWithoutFormatting() {
+    for (long number : new long[] {0, 7, 12, 100, 12345, -120, Long.MAX_VALUE, Long.MIN_VALUE}) {
+      assertThat(ItemSizeCalculator.numberSize(number))
+          .isEqualTo(ItemSizeCalculator.numberSize(Long.toString(number)));
+    }
+  }
+
+  @Test
+  void documentsAndListsAddTheirOverhead() {
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("a", AttributeValue.fromS("xy"));
+    item.put(
+        "l",
+        AttributeValue.fromL(
+            Arrays.asList(AttributeValue.fromN("1"), AttributeValue.fromBool(true))));
+    item.put(
+        "m", AttributeValue.fromM(Collections.singletonMap("k", AttributeValue.fromNul(true))));
+
+    assertThat(ItemSizeCalculator.sizeOf(item)).isEqualTo(3 + 9 + 7);
+  }
+
+  @Test
+  void capacityUnitsAreRoundedUpToWholeUnits() {
+    assertThat(ItemSizeCalculator.readCapacityUnits(4096, true)).isEqualTo(1.0);
+    assertThat(ItemSizeCalculator.readCapacityUnits(4097, true)).isEqualTo(2.0);
+    assertThat(ItemSizeCalculator.readCapacityUnits(4097, false)).isEqualTo(1.0);
+    assertThat(ItemSizeCalculator.readCapacityUnits(0, false)).isEqualTo(0.5);
+    assertThat(ItemSizeCalculator.writeCapacityUnits(0)).isEqualTo(1);
+    assertThat(ItemSizeCalculator.writeCapacityUnits(1025)).isEqualTo(2);
+  }
+
+  @Test
+  void entityIsMeasuredWithoutItsMissingAttributes() {
+    Player player = Player.builder().name("alice").score(12).build();
+
+    assertThat(Player.MAPPER.sizeOf(player)).isEqualTo(16);
+    assertThat(Player.MAPPER.sizeOf(player))
+        .isEqualTo(ItemSizeCalculator.sizeOf(Player.MAPPER.export(player)));
+  }
+
+  @Test
+  void entityStoredAsADocumentAddsTheOverheadOfAMap() {
+    Player player = Player.builder().name("alice").score(12).build();
+
+    assertThat(Player.MAPPER.documentSizeOf(player)).isEqualTo(21);
+    assertThat(Player.MAPPER.documentSizeOf(player))
+        .isEqualTo(ItemSizeCalculator.sizeOf(AttributeValue.fromM(Player.MAPPER.export(player))));
+  }
+}
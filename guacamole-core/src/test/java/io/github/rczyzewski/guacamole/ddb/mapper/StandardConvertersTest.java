@@ -12,6 +12,8 @@ class StandardConvertersTest {
     AttributeValue attr = StandardConverters.StringConverter.toAttribute("foo");
     assertThat(attr).isEqualTo(AttributeValue.builder().s("foo").build());
     assertThat(StandardConverters.StringConverter.fromAttribute(attr)).isEqualTo("foo");
+    assertThat(StandardConverters.StringConverter.sizeOf("foo"))
+        .isEqualTo(ItemSizeCalculator.sizeOf(attr));
   }
 
   @Test
@@ -19,6 +21,8 @@ class StandardConvertersTest {
     AttributeValue attr = StandardConverters.IntegerConverter.toAttribute(12);
     assertThat(attr).isEqualTo(AttributeValue.builder().n("12").build());
     assertThat(StandardConverters.IntegerConverter.fromAttribute(attr)).isEqualTo(12);
+    assertThat(StandardConverters.IntegerConverter.sizeOf(12))
+        .isEqualTo(ItemSizeCalculator.sizeOf(attr));
   }
 
   @Test
@@ -26,6 +30,8 @@ class StandardConvertersTest {
     AttributeValue attr = StandardConverters.LongConverter.toAttribute(12L);
     assertThat(attr).isEqualTo(AttributeValue.builder().n("12").build());
     assertThat(StandardConverters.LongConverter.fromAttribute(attr)).isEqualTo(12);
+    assertThat(StandardConverters.LongConverter.sizeOf(12L))
+        .isEqualTo(ItemSizeCalculator.sizeOf(attr));
   }
 
   @Test
@@ -40,6 +46,8 @@ class StandardConvertersTest {
     AttributeValue attr = StandardConverters.DoubleConverter.toAttribute(Math.PI);
     assertThat(attr).isEqualTo(AttributeValue.builder().n(Double.toString(Math.PI)).build());
     assertThat(StandardConverters.DoubleConverter.fromAttribute(attr)).isEqualTo(Math.PI);
+    assertThat(StandardConverters.DoubleConverter.sizeOf(Math.PI))
+        .isEqualTo(ItemSizeCalculator.sizeOf(attr));
   }
 
   @Test
@@ -47,6 +55,8 @@ class StandardConvertersTest {
     AttributeValue attr = StandardConverters.FloatConverter.toAttribute((float) Math.PI);
     assertThat(attr).isEqualTo(AttributeValue.builder().n(Float.toString((float) Math.PI)).build());
     assertThat(StandardConverters.FloatConverter.fromAttribute(attr)).isEqualTo((float) Math.PI);
+    assertThat(StandardConverters.FloatConverter.sizeOf((float) Math.PI))
+        .isEqualTo(ItemSizeCalculator.sizeOf(attr));
   }
 
   @Test
@@ -56,5 +66,7 @@ class StandardConvertersTest {
     AttributeValue reconverted = StandardConverters.AttributeConverter.fromAttribute(converted);
     assertThat(arg).isEqualTo(reconverted);
     assertThat(converted).isEqualTo(reconverted);
+    assertThat(StandardConverters.AttributeConverter.sizeOf(arg))
+        .isEqualTo(ItemSizeCalculator.sizeOf(arg));
   }
 }
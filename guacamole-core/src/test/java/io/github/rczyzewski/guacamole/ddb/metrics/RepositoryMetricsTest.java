@@ -0,0 +1,152 @@
+package io.github.rczyzewski.guacamole.ddb.metrics;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.MAPPER;
+import static io.github.rczyzewski.guacamole.ddb.Player.NAME;
+import static io.github.rczyzewski.guacamole.ddb.Player.page;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.MappedQueryExpression;
+import io.github.rczyzewski.guacamole.ddb.Player;
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import io.github.rczyzewski.guacamole.ddb.mapper.LogicalExpression;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics.Counter;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics.Stage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpFullResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+class RepositoryMetricsTest {
+
+  private static final MetricTags QUERY = MetricTags.of("players", "byScore", "Query");
+
+  private final InMemoryRepositoryMetrics metrics = new InMemoryRepositoryMetrics();
+  private final MetricsInterceptor interceptor = new MetricsInterceptor(metrics);
+
+  @AfterEach
+  void uninstall() {
+    Metrics.install(RepositoryMetrics.NOOP);
+  }
+
+  /** Passes the request through the interceptor, answering the attempts with the statuses. */
+  private void execute(String operation, SdkRequest request, SdkResponse response, int... status) {
+    ExecutionAttributes attributes = new ExecutionAttributes();
+    attributes.putAttribute(SdkExecutionAttribute.OPERATION_NAME, operation);
+    InterceptorContext context = InterceptorContext.builder().request(request).build();
+    interceptor.beforeMarshalling(context, attributes);
+    interceptor.afterMarshalling(context, attributes);
+    for (int it : status) {
+      interceptor.beforeTransmission(context, attributes);
+      interceptor.afterTransmission(
+          context.copy(
+              c -> c.httpResponse(SdkHttpFullResponse.builder().statusCode(it).build())),
+          attributes);
+    }
+    interceptor.afterExecution(context.copy(c -> c.response(response)), attributes);
+  }
+
+  private static WriteRequest put(String name) {
+    return WriteRequest.builder()
+        .putRequest(PutRequest.builder().item(page(name).get(0)).build())
+        .build();
+  }
+
+  @Test
+  void requestIsMeasuredPerAttempt() {
+    QueryRequest request = QueryRequest.builder().tableName("players").indexName("byScore").build();
+    QueryResponse response = QueryResponse.builder().items(page("a", "b", "c")).count(3).build();
+
+    execute("Query", request, response, 400, 500, 200);
+
+    assertThat(metrics.count(Stage.SERIALIZATION, QUERY)).isEqualTo(1);
+    assertThat(metrics.count(Stage.NETWORK_CALL, QUERY)).isEqualTo(3);
+    assertThat(metrics.count(Counter.RETRIES, QUERY)).isEqualTo(2);
+    assertThat(metrics.count(Counter.THROTTLES, QUERY)).isEqualTo(1);
+    assertThat(metrics.count(Counter.ITEMS_READ, QUERY)).isEqualTo(3);
+    assertThat(metrics.count(Counter.PAGES_FETCHED, QUERY)).isEqualTo(1);
+  }
+
+  @Test
+  void unprocessedItemsAreNotCountedAsWritten() {
+    BatchWriteItemRequest request =
+        BatchWriteItemRequest.builder()
+            .requestItems(Collections.singletonMap("players", Arrays.asList(put("a"), put("b"))))
+            .build();
+    BatchWriteItemResponse response =
+        BatchWriteItemResponse.builder()
+            .unprocessedItems(Collections.singletonMap("players", Arrays.asList(put("b"))))
+            .build();
+
+    execute("BatchWriteItem", request, response, 200);
+
+    MetricTags tags = MetricTags.of("players", null, "BatchWriteItem");
+    assertThat(metrics.count(Counter.ITEMS_WRITTEN, tags)).isEqualTo(1);
+  }
+
+  @Test
+  void expressionsReportToInstalledMetrics() {
+    MappedQueryExpression<Player, ExpressionGenerator<Player>> query =
+        new MappedQueryExpression<>(
+            new ExpressionGenerator<>(),
+            "byScore",
+            "players",
+            null,
+            MAPPER,
+            new ExpressionGenerator<Player>()
+                .compare(NAME, LogicalExpression.ComparisonOperator.EQUAL, "a"));
+
+    query.asQueryRequest();
+    assertThat(metrics.count(Stage.PREPARATION, QUERY)).isZero();
+
+    Metrics.install(metrics);
+    query.asQueryRequest();
+    query.pageDecoder().apply(page("a", "b"));
+
+    assertThat(metrics.count(Stage.PREPARATION, QUERY)).isEqualTo(1);
+    assertThat(metrics.count(Stage.DECODING, QUERY)).isEqualTo(1);
+  }
+
+  @Test
+  void pagesAreReportedWithItemsAndBytes() {
+    List<String> ended = new ArrayList<>();
+    RepositoryMetrics spans =
+        new RepositoryMetrics() {
+          @Override
+          public Span start(Stage stage, MetricTags tags) {
+            return (items, bytes) -> ended.add(stage + " " + items + " " + bytes.getAsLong());
+          }
+        };
+    MetricsInterceptor pages = new MetricsInterceptor(spans);
+    ExecutionAttributes attributes = new ExecutionAttributes();
+    attributes.putAttribute(SdkExecutionAttribute.OPERATION_NAME, "Query");
+    InterceptorContext context =
+        InterceptorContext.builder()
+            .request(QueryRequest.builder().tableName("players").build())
+            .httpResponse(
+                SdkHttpFullResponse.builder()
+                    .statusCode(200)
+                    .putHeader("Content-Length", "1234")
+                    .build())
+            .build();
+
+    pages.beforeMarshalling(context, attributes);
+    pages.afterExecution(
+        context.copy(c -> c.response(QueryResponse.builder().count(2).build())), attributes);
+
+    assertThat(ended).containsExactly("PAGE_FETCH 2 1234");
+  }
+}
@@ -0,0 +1,116 @@
+package io.github.rczyzewski.guacamole.ddb.reactive;
+
+import static io.github.rczyzewski.guacamole.ddb.Player.page;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.github.rczyzewski.guacamole.ddb.PagedClient;
+import io.github.rczyzewski.guacamole.ddb.Player;
+import io.github.rczyzewski.guacamole.ddb.PlayerRepository;
+import io.github.rczyzewski.guacamole.ddb.mapper.ExpressionGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+class ReactiveRepositoryTest {
+
+  private final PlayerRepository repository = new PlayerRepository("players");
+  private final Player alice = Player.builder().name("alice").score(7).build();
+
+  @Test
+  void scanEmitsItemsOfAllPages() {
+    PagedClient pages = new PagedClient(page("a", "b"), page("c"));
+    ReactiveRepository<Player, ExpressionGenerator<Player>> reactive =
+        new ReactiveRepository<>(repository, pages.async());
+
+    List<Player> players = reactive.scan().collectList().block();
+
+    assertThat(players).extracting(Player::getName).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  void nextPageIsRequestedOnDemand() {
+    PagedClient pages = new PagedClient(page("a", "b"), page("c", "d"), page("e"));
+    ReactiveRepository<Player, ExpressionGenerator<Player>> reactive =
+        new ReactiveRepository<>(repository, pages.async());
+    List<Player> received = new ArrayList<>();
+
+    reactive
+        .scan()
+        .subscribe(
+            new BaseSubscriber<Player>() {
+              @Override
+              protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+              }
+
+              @Override
+              protected void hookOnNext(Player value) {
+                received.add(value);
+              }
+            });
+
+    assertThat(received).hasSize(1);
+    assertThat(pages.requests).hasSize(1);
+  }
+
+  @Test
+  void nothingIsSentBeforeSubscription() {
+    DynamoDbAsyncClient client = mock(DynamoDbAsyncClient.class);
+
+    Mono<Player> get = new ReactiveRepository<>(repository, client).get(alice);
+
+    verify(client, never()).getItem(any(GetItemRequest.class));
+    assertThat(get).isNotNull();
+  }
+
+  @Test
+  void getDecodesTheItem() {
+    DynamoDbAsyncClient client = mock(DynamoDbAsyncClient.class);
+    when(client.getItem(any(GetItemRequest.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                GetItemResponse.builder().item(Player.MAPPER.export(alice)).build()));
+
+    assertThat(new ReactiveRepository<>(repository, client).get(alice).block()).isEqualTo(alice);
+  }
+
+  @Test
+  void getOfMissingItemIsEmpty() {
+    DynamoDbAsyncClient client = mock(DynamoDbAsyncClient.class);
+    when(client.getItem(any(GetItemRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(GetItemResponse.builder().build()));
+
+    assertThat(new ReactiveRepository<>(repository, client).get(alice).block()).isNull();
+  }
+
+  @Test
+  void updateReturnsTheNewItem() {
+    DynamoDbAsyncClient client = mock(DynamoDbAsyncClient.class);
+    ArgumentCaptor<UpdateItemRequest> request = ArgumentCaptor.forClass(UpdateItemRequest.class);
+    when(client.updateItem(request.capture()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                UpdateItemResponse.builder().attributes(Player.MAPPER.export(alice)).build()));
+
+    Player updated = new ReactiveRepository<>(repository, client).update(alice).block();
+
+    assertThat(updated).isEqualTo(alice);
+    assertThat(request.getValue().returnValues()).isEqualTo(ReturnValue.ALL_NEW);
+  }
+}
@@ -0,0 +1,10 @@
+package io.github.rczyzewski.guacamole.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.rczyzewski.guacamole.DecodeBatch")
+@Label("Decode Batch")
+@Description("Decoding the items of a page into entities; the size is of the decoded items")
+class DecodeBatchEvent extends RepositoryEvent {}
@@ -0,0 +1,92 @@
+package io.github.rczyzewski.guacamole.jfr;
+
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricsInterceptor;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
+import jdk.jfr.EventType;
+
+/**
+ * Emits a Java Flight Recorder event for every request built, page fetched and page decoded, with
+ * the table, index and operation, the number of items and their size. The events are in the
+ * {@code Guacamole} category and disabled unless a recording enables them, e.g. with a custom
+ * {@code .jfc} settings file:
+ *
+ * <pre>{@code
+ * <event name="io.github.rczyzewski.guacamole.PageFetch">
+ *   <setting name="enabled">true</setting>
+ *   <setting name="threshold">10 ms</setting>
+ * </event>
+ * }</pre>
+ *
+ * <p>Found by the service loader when this module is on the class path. While no recording enables
+ * an event, its stage is not measured at all and no event is created. On Java 8 runtimes older than
+ * update 262, which have no flight recorder API, nothing is measured.
+ *
+ * <p>Page fetches are measured by {@link MetricsInterceptor}, so {@code PageFetch} events are only
+ * emitted by clients it is added to; request builds and decoding are measured by the repository.
+ */
+public class FlightRecorderMetrics implements RepositoryMetrics {
+
+  private static final boolean AVAILABLE = isAvailable();
+
+  @Override
+  public Span start(Stage stage, MetricTags tags) {
+    if (!AVAILABLE) return Span.NOOP;
+    if (!EventTypes.isEnabled(stage)) return Span.NOOP;
+    RepositoryEvent event = eventOf(stage);
+    event.begin();
+    return (items, bytes) -> {
+      event.end();
+      if (event.shouldCommit()) {
+        event.table = tags.getTable();
+        event.index = tags.getIndex();
+        event.operation = tags.getOperation();
+        event.items = items;
+        event.bytes = bytes.getAsLong();
+        event.commit();
+      }
+    };
+  }
+
+  private static RepositoryEvent eventOf(Stage stage) {
+    switch (stage) {
+      case PREPARATION:
+        return new RequestBuildEvent();
+      case PAGE_FETCH:
+        return new PageFetchEvent();
+      case DECODING:
+        return new DecodeBatchEvent();
+      default:
+        return null;
+    }
+  }
+
+  /** Looked up once; a separate class, so that it is not loaded without the flight recorder. */
+  private static final class EventTypes {
+    private static final EventType REQUEST_BUILD = EventType.getEventType(RequestBuildEvent.class);
+    private static final EventType PAGE_FETCH = EventType.getEventType(PageFetchEvent.class);
+    private static final EventType DECODE_BATCH = EventType.getEventType(DecodeBatchEvent.class);
+
+    static boolean isEnabled(Stage stage) {
+      switch (stage) {
+        case PREPARATION:
+          return REQUEST_BUILD.isEnabled();
+        case PAGE_FETCH:
+          return PAGE_FETCH.isEnabled();
+        case DECODING:
+          return DECODE_BATCH.isEnabled();
+        default:
+          return false;
+      }
+    }
+  }
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightRecorderMetrics.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+}
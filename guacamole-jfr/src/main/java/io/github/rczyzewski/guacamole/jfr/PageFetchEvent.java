@@ -0,0 +1,10 @@
+package io.github.rczyzewski.guacamole.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.rczyzewski.guacamole.PageFetch")
+@Label("Page Fetch")
+@Description("Fetching a page of a query or a scan with all retries; the size is of the response")
+class PageFetchEvent extends RepositoryEvent {}
@@ -0,0 +1,29 @@
+package io.github.rczyzewski.guacamole.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/** Fields shared by the events of a stage of a repository operation. */
+@Category({"Guacamole", "DynamoDB"})
+@StackTrace(false)
+abstract class RepositoryEvent extends Event {
+
+  @Label("Table")
+  String table;
+
+  @Label("Index")
+  String index;
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Items")
+  long items;
+
+  @Label("Size")
+  @DataAmount
+  long bytes;
+}
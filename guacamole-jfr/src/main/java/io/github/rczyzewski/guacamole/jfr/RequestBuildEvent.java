@@ -0,0 +1,10 @@
+package io.github.rczyzewski.guacamole.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.rczyzewski.guacamole.RequestBuild")
+@Label("Request Build")
+@Description("Building a request from an expression; the size is of its key and bound values")
+class RequestBuildEvent extends RepositoryEvent {}
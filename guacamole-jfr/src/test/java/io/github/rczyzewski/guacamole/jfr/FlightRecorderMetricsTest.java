@@ -0,0 +1,72 @@
+package io.github.rczyzewski.guacamole.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics.Span;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics.Stage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+class FlightRecorderMetricsTest {
+
+  private static final MetricTags QUERY = MetricTags.of("players", "byScore", "Query");
+
+  private final FlightRecorderMetrics metrics = new FlightRecorderMetrics();
+
+  @Test
+  void stagesAreRecordedAsEvents() throws IOException {
+    Path file = Files.createTempFile("guacamole", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(RequestBuildEvent.class);
+      recording.enable(PageFetchEvent.class);
+      recording.enable(DecodeBatchEvent.class);
+      recording.start();
+
+      metrics.start(Stage.PREPARATION, QUERY).end(0, () -> 12);
+      metrics.start(Stage.PAGE_FETCH, QUERY).end(25, () -> 4096);
+      metrics.start(Stage.DECODING, QUERY).end(25, () -> 3000);
+
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    Files.delete(file);
+    assertThat(events)
+        .extracting(
+            it -> it.getEventType().getLabel(),
+            it -> it.getString("table"),
+            it -> it.getString("index"),
+            it -> it.getString("operation"),
+            it -> it.getLong("items"),
+            it -> it.getLong("bytes"))
+        .containsExactlyInAnyOrder(
+            tuple("Request Build", "players", "byScore", "Query", 0L, 12L),
+            tuple("Page Fetch", "players", "byScore", "Query", 25L, 4096L),
+            tuple("Decode Batch", "players", "byScore", "Query", 25L, 3000L));
+  }
+
+  @Test
+  void nothingIsMeasuredWithoutRecording() {
+    assertThat(metrics.start(Stage.PAGE_FETCH, QUERY)).isSameAs(Span.NOOP);
+  }
+
+  @Test
+  void stagesWithoutEventsAreNotMeasured() {
+    try (Recording recording = new Recording()) {
+      recording.enable(PageFetchEvent.class);
+      recording.start();
+
+      assertThat(metrics.start(Stage.NETWORK_CALL, QUERY)).isSameAs(Span.NOOP);
+      assertThat(metrics.start(Stage.SERIALIZATION, QUERY)).isSameAs(Span.NOOP);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package io.github.rczyzewski.guacamole.micrometer;
+
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import lombok.Value;
+
+/**
+ * Reports the measurements of repositories to a Micrometer registry. Timers are named after the
+ * stage, e.g. {@code guacamole.network.call}, counters after what they count, e.g. {@code
+ * guacamole.items.read}; all are tagged with {@code table}, {@code index} and {@code operation},
+ * using {@code none} for a missing table or index.
+ *
+ * <p>Found by the service loader when this module is on the class path, then reporting to the
+ * global registry; install another instance to use a different registry:
+ *
+ * <pre>{@code
+ * io.github.rczyzewski.guacamole.ddb.metrics.Metrics.install(
+ *     new MicrometerRepositoryMetrics(meterRegistry));
+ * }</pre>
+ */
+public class MicrometerRepositoryMetrics implements RepositoryMetrics {
+
+  static final String PREFIX = "guacamole.";
+  private static final String NONE = "none";
+
+  private final MeterRegistry registry;
+  private final ConcurrentMap<Key<Stage>, Timer> timers = new ConcurrentHashMap<>();
+  // the micrometer counter is fully qualified, Counter is the enum inherited from RepositoryMetrics
+  private final ConcurrentMap<Key<Counter>, io.micrometer.core.instrument.Counter> counters =
+      new ConcurrentHashMap<>();
+
+  /** Reports to the global registry of Micrometer. */
+  public MicrometerRepositoryMetrics() {
+    this(Metrics.globalRegistry);
+  }
+
+  public MicrometerRepositoryMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void record(Stage stage, MetricTags tags, long nanos) {
+    timers
+        .computeIfAbsent(
+            new Key<>(stage, tags),
+            it -> Timer.builder(nameOf(stage)).tags(tagsOf(tags)).register(registry))
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void increment(Counter counter, MetricTags tags, long amount) {
+    counters
+        .computeIfAbsent(
+            new Key<>(counter, tags),
+            it ->
+                io.micrometer.core.instrument.Counter.builder(nameOf(counter))
+                    .tags(tagsOf(tags))
+                    .register(registry))
+        .increment(amount);
+  }
+
+  static String nameOf(Enum<?> metric) {
+    return PREFIX + metric.name().toLowerCase(Locale.ROOT).replace('_', '.');
+  }
+
+  private static Tags tagsOf(MetricTags tags) {
+    return Tags.of(
+        "table", orNone(tags.getTable()),
+        "index", orNone(tags.getIndex()),
+        "operation", orNone(tags.getOperation()));
+  }
+
+  private static String orNone(String value) {
+    return value == null ? NONE : value;
+  }
+
+  @Value
+  private static class Key<M> {
+    M metric;
+    MetricTags tags;
+  }
+}
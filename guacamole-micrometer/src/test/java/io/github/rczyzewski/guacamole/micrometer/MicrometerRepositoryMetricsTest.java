@@ -0,0 +1,55 @@
+package io.github.rczyzewski.guacamole.micrometer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.metrics.MetricTags;
+import io.github.rczyzewski.guacamole.ddb.metrics.RepositoryMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class MicrometerRepositoryMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final MicrometerRepositoryMetrics metrics = new MicrometerRepositoryMetrics(registry);
+
+  @Test
+  void timersAreTaggedWithTableIndexAndOperation() {
+    MetricTags tags = MetricTags.of("players", "byScore", "Query");
+
+    metrics.record(RepositoryMetrics.Stage.NETWORK_CALL, tags, 2_000_000);
+    metrics.record(RepositoryMetrics.Stage.NETWORK_CALL, tags, 4_000_000);
+
+    Timer timer =
+        registry
+            .get("guacamole.network.call")
+            .tags("table", "players", "index", "byScore", "operation", "Query")
+            .timer();
+    assertThat(timer.count()).isEqualTo(2);
+    assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(6);
+  }
+
+  @Test
+  void countersUseNoneForMissingTags() {
+    MetricTags tags = MetricTags.of(null, null, "BatchWriteItem");
+
+    metrics.increment(RepositoryMetrics.Counter.ITEMS_WRITTEN, tags, 25);
+    metrics.increment(RepositoryMetrics.Counter.ITEMS_WRITTEN, tags, 5);
+
+    assertThat(
+            registry
+                .get("guacamole.items.written")
+                .tags("table", "none", "index", "none", "operation", "BatchWriteItem")
+                .counter()
+                .count())
+        .isEqualTo(30);
+  }
+
+  @Test
+  void metricsAreFoundByServiceLoader() {
+    assertThat(ServiceLoader.load(RepositoryMetrics.class))
+        .hasAtLeastOneElementOfType(MicrometerRepositoryMetrics.class);
+  }
+}
@@ -25,7 +25,9 @@ import io.github.rczyzewski.guacamole.ddb.MappedUpdateExpression;
 import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBTable;
 import io.github.rczyzewski.guacamole.ddb.mapper.ConsecutiveIdGenerator;
 import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
+import io.github.rczyzewski.guacamole.ddb.processor.generator.CodecGenerator;
 import io.github.rczyzewski.guacamole.ddb.processor.generator.IndexSelectorGenerator;
+import io.github.rczyzewski.guacamole.ddb.processor.generator.LazyViewGenerator;
 import io.github.rczyzewski.guacamole.ddb.processor.generator.LiveDescriptionGenerator;
 import io.github.rczyzewski.guacamole.ddb.processor.generator.LogicalExpressionBuilderGenerator;
 import io.github.rczyzewski.guacamole.ddb.processor.generator.PathGenerator;
@@ -54,6 +56,7 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Types;
 import lombok.*;
 import org.jetbrains.annotations.NotNull;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
@@ -133,6 +136,7 @@ public class DynamoDBProcessor extends AbstractProcessor {
     ClassName pathClassName = repositoryClazz.nestedClass("Paths");
 
     String mainMapperName = toSnakeCase(classDescription.getName());
+    CodecGenerator codecGenerator = new CodecGenerator();
 
     TypeSpec.Builder navigatorClass =
         TypeSpec.classBuilder(repositoryClazz)
@@ -147,6 +151,11 @@ public class DynamoDBProcessor extends AbstractProcessor {
                 classDescription.getSourandingClasses().values().stream()
                     .map(it -> descriptionGenerator.prepareMapperClass(it, repositoryClazz))
                     .collect(Collectors.toList()))
+            .addTypes(
+                classDescription.getSourandingClasses().values().stream()
+                    .filter(it -> it.getParametrized() == null)
+                    .map(it -> codecGenerator.createCodecClass(it, repositoryClazz))
+                    .collect(Collectors.toList()))
             .addFields(
                 classDescription.getSourandingClasses().values().stream()
                     .filter(it -> !Objects.equals(it.getPackageName(), "java.util"))
@@ -280,6 +289,22 @@ public class DynamoDBProcessor extends AbstractProcessor {
     navigatorClass.addType(queryGeneratorBuilder);
     navigatorClass.addType(path);
 
+    LazyViewGenerator lazyViewGenerator =
+        new LazyViewGenerator(descriptionGenerator, codecGenerator);
+    ClassName lazyViewClass =
+        LazyViewGenerator.lazyViewClassName(repositoryClazz, classDescription);
+    navigatorClass.addType(
+        lazyViewGenerator.createLazyViewClass(classDescription, repositoryClazz));
+    navigatorClass.addMethod(
+        MethodSpec.methodBuilder("lazyView")
+            .addModifiers(PUBLIC)
+            .addParameter(
+                ParameterSpec.builder(get(Map.class, String.class, AttributeValue.class), "item")
+                    .build())
+            .addCode("return new $T(item);", lazyViewClass)
+            .returns(lazyViewClass)
+            .build());
+
     return JavaFile.builder(
             Optional.ofNullable(classDescription.getPackageName()).orElse(""),
             navigatorClass.build())
@@ -1,6 +1,7 @@
 package io.github.rczyzewski.guacamole.ddb.processor;
 
 import com.squareup.javapoet.ClassName;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DecodeStrategy;
 import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBAttribute;
 import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBConverted;
 import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBDocument;
@@ -62,6 +63,16 @@ public class TableClassVisitor
     }
   }
 
+  DecodeStrategy getDecodeStrategy(Element element) {
+    return Optional.ofNullable(element.getAnnotation(DynamoDBTable.class))
+        .map(DynamoDBTable::decode)
+        .orElseGet(
+            () ->
+                Optional.ofNullable(element.getAnnotation(DynamoDBDocument.class))
+                    .map(DynamoDBDocument::decode)
+                    .orElse(DecodeStrategy.WITHER));
+  }
+
   @Override
   public TableClassVisitor visitType(TypeElement element, Map<String, ClassDescription> o) {
 
@@ -80,6 +91,7 @@ public class TableClassVisitor
               .name(name)
               .generatedMapperName(name)
               .packageName(originalName)
+              .decodeStrategy(getDecodeStrategy(element))
               .fieldDescriptions(new ArrayList<>())
               .sourandingClasses(o)
               .build();
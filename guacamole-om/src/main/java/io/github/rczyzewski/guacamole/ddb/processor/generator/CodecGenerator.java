@@ -0,0 +1,390 @@
+package io.github.rczyzewski.guacamole.ddb.processor.generator;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DecodeStrategy;
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemCodec;
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
+import io.github.rczyzewski.guacamole.ddb.processor.TypoUtils;
+import io.github.rczyzewski.guacamole.ddb.processor.model.ClassDescription;
+import io.github.rczyzewski.guacamole.ddb.processor.model.DDBType;
+import io.github.rczyzewski.guacamole.ddb.processor.model.FieldDescription;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.jetbrains.annotations.NotNull;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Generates an {@link ItemCodec} for a table or a document. Every attribute is handled by a
+ * dedicated statement, so encoding and decoding do not allocate Optionals or lambdas and the
+ * decoding is a single pass over the item with a {@code switch} on the attribute name. With
+ * {@link DecodeStrategy#BUILDER} the bean is assembled with its Lombok builder and created once.
+ * Lists are handed to the generated list mappers, which convert them element by element in a loop.
+ */
+public class CodecGenerator {
+
+  private static final List<DDBType> SCALAR_TYPES =
+      Arrays.asList(DDBType.INTEGER, DDBType.DOUBLE, DDBType.FLOAT, DDBType.STRING, DDBType.LONG);
+
+  private static final String BEAN = "bean";
+  private static final String BUILDER = "builder";
+  static final String ITEM = "item";
+  static final String VALUE = "value";
+  private static final String OVERHEAD = "overhead";
+
+  public static ClassName codecClassName(
+      @NotNull ClassName repositoryClass, @NotNull ClassDescription classDescription) {
+    return repositoryClass.nestedClass(classDescription.getGeneratedMapperName() + "CODEC");
+  }
+
+  @NotNull
+  public TypeSpec createCodecClass(
+      @NotNull ClassDescription classDescription, @NotNull ClassName repositoryClass) {
+
+    ClassName beanClass =
+        ClassName.get(
+            Optional.ofNullable(classDescription.getPackageName()).orElse(""),
+            classDescription.getName());
+
+    return TypeSpec.classBuilder(codecClassName(repositoryClass, classDescription))
+        .addModifiers(STATIC, FINAL)
+        .addSuperinterface(ParameterizedTypeName.get(ClassName.get(ItemCodec.class), beanClass))
+        .addMethod(createEncode("encode", beanClass, classDescription, it -> true))
+        .addMethod(
+            createEncode(
+                "encodeKeys", beanClass, classDescription, it -> it.isHashKey() || it.isRangeKey()))
+        .addMethod(createDecode(beanClass, classDescription))
+        .addMethod(createProjectedDecode(beanClass, classDescription))
+        .addMethods(createSizeOf(beanClass, classDescription))
+        .build();
+  }
+
+  private MethodSpec createEncode(
+      String methodName,
+      ClassName beanClass,
+      ClassDescription classDescription,
+      Predicate<FieldDescription> filter) {
+
+    TypeName itemType =
+        ParameterizedTypeName.get(Map.class, String.class, AttributeValue.class);
+
+    CodeBlock.Builder body =
+        CodeBlock.builder()
+            .addStatement("$T $L = new $T<>()", itemType, ITEM, HashMap.class)
+            .addStatement("$T $L", AttributeValue.class, VALUE);
+
+    classDescription.getFieldDescriptions().stream()
+        .filter(filter)
+        .map(this::encodeField)
+        .forEach(body::add);
+
+    return MethodSpec.methodBuilder(methodName)
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(beanClass, BEAN)
+        .addCode(body.addStatement("return $L", ITEM).build())
+        .returns(itemType)
+        .build();
+  }
+
+  private MethodSpec createDecode(ClassName beanClass, ClassDescription classDescription) {
+    CodeBlock loop =
+        CodeBlock.builder()
+            .beginControlFlow(
+                "for ($T.Entry<String, $T> entry : $L.entrySet())",
+                Map.class,
+                AttributeValue.class,
+                ITEM)
+            .addStatement("$T $L = entry.getValue()", AttributeValue.class, VALUE)
+            .add(decodeSwitch("entry.getKey()", classDescription))
+            .endControlFlow()
+            .build();
+
+    return MethodSpec.methodBuilder("decode")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(
+            ParameterizedTypeName.get(Map.class, String.class, AttributeValue.class), ITEM)
+        .addCode(decodeBody(beanClass, classDescription, loop))
+        .returns(beanClass)
+        .build();
+  }
+
+  /** Decoding that looks up only the given attributes, for items fetched with a projection. */
+  private MethodSpec createProjectedDecode(
+      ClassName beanClass, ClassDescription classDescription) {
+    CodeBlock loop =
+        CodeBlock.builder()
+            .beginControlFlow("for (String attribute : attributes)")
+            .addStatement("$T $L = $L.get(attribute)", AttributeValue.class, VALUE, ITEM)
+            .addStatement("if ($L == null) continue", VALUE)
+            .add(decodeSwitch("attribute", classDescription))
+            .endControlFlow()
+            .build();
+
+    return MethodSpec.methodBuilder("decode")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(
+            ParameterizedTypeName.get(Map.class, String.class, AttributeValue.class), ITEM)
+        .addParameter(ParameterizedTypeName.get(Collection.class, String.class), "attributes")
+        .addCode(decodeBody(beanClass, classDescription, loop))
+        .returns(beanClass)
+        .build();
+  }
+
+  /** Creates the bean or its builder, runs the loop and returns the bean. */
+  private CodeBlock decodeBody(
+      ClassName beanClass, ClassDescription classDescription, CodeBlock loop) {
+    boolean useBuilder = DecodeStrategy.BUILDER.equals(classDescription.getDecodeStrategy());
+    CodeBlock.Builder body = CodeBlock.builder();
+
+    if (useBuilder) {
+      ClassName builderClass = beanClass.nestedClass(classDescription.getName() + "Builder");
+      body.addStatement("$T $L = $T.builder()", builderClass, BUILDER, beanClass);
+    } else {
+      body.addStatement("$T $L = $T.builder().build()", beanClass, BEAN, beanClass);
+    }
+
+    body.add(loop);
+
+    if (useBuilder) {
+      body.addStatement("return $L.build()", BUILDER);
+    } else {
+      body.addStatement("return $L", BEAN);
+    }
+    return body.build();
+  }
+
+  /** {@code switch} on the attribute name, decoding {@code value} into the matching field. */
+  private CodeBlock decodeSwitch(String attributeName, ClassDescription classDescription) {
+    boolean useBuilder = DecodeStrategy.BUILDER.equals(classDescription.getDecodeStrategy());
+    CodeBlock.Builder body = CodeBlock.builder().beginControlFlow("switch ($L)", attributeName);
+
+    for (FieldDescription fd : classDescription.getFieldDescriptions()) {
+      body.add("case $S:\n", fd.getAttribute())
+          .indent()
+          .add(decodeField(fd, useBuilder))
+          .addStatement("break")
+          .unindent();
+    }
+
+    body.add("default:\n").indent().addStatement("break").unindent();
+    return body.endControlFlow().build();
+  }
+
+  /**
+   * Size of the item computed from the getters: attribute names are measured while generating,
+   * strings and whole numbers without building attribute values, and documents and lists by their
+   * own mappers, recursively. Only fields with a custom converter are converted first, and floating
+   * point numbers are formatted. The same code measures the bean stored as a document, where every
+   * attribute costs one more byte.
+   */
+  private List<MethodSpec> createSizeOf(ClassName beanClass, ClassDescription classDescription) {
+    CodeBlock.Builder body =
+        CodeBlock.builder()
+            .addStatement("long size = 0")
+            .addStatement("$T $L", AttributeValue.class, VALUE);
+
+    classDescription.getFieldDescriptions().stream().map(this::sizeOfField).forEach(body::add);
+
+    MethodSpec measure =
+        MethodSpec.methodBuilder("sizeOf")
+            .addModifiers(PRIVATE)
+            .addParameter(beanClass, BEAN)
+            .addParameter(int.class, OVERHEAD)
+            .addCode(body.addStatement("return size").build())
+            .returns(long.class)
+            .build();
+    MethodSpec item =
+        MethodSpec.methodBuilder("sizeOf")
+            .addAnnotation(Override.class)
+            .addModifiers(PUBLIC)
+            .addParameter(beanClass, BEAN)
+            .addStatement("return sizeOf($L, 0)", BEAN)
+            .returns(long.class)
+            .build();
+    MethodSpec document =
+        MethodSpec.methodBuilder("documentSizeOf")
+            .addAnnotation(Override.class)
+            .addModifiers(PUBLIC)
+            .addParameter(beanClass, BEAN)
+            .addStatement(
+                "return $T.CONTAINER_OVERHEAD + sizeOf($L, $T.ELEMENT_OVERHEAD)",
+                ItemSizeCalculator.class,
+                BEAN,
+                ItemSizeCalculator.class)
+            .returns(long.class)
+            .build();
+    return Arrays.asList(measure, item, document);
+  }
+
+  @NotNull
+  CodeBlock sizeOfField(@NotNull FieldDescription fd) {
+    String getter = BEAN + ".get" + TypoUtils.upperCaseFirstLetter(fd.getName()) + "()";
+    int nameSize = fd.getAttribute().getBytes(StandardCharsets.UTF_8).length;
+
+    if (fd.getConverterClass() != null) {
+      return CodeBlock.builder()
+          .addStatement("$L = $T.toValue($L)", VALUE, fd.getConverterClass(), getter)
+          .beginControlFlow("if ($L != null)", VALUE)
+          .addStatement(
+              "size += $L + $L + $T.sizeOf($L)",
+              OVERHEAD,
+              nameSize,
+              ItemSizeCalculator.class,
+              VALUE)
+          .endControlFlow()
+          .build();
+    }
+
+    return CodeBlock.builder()
+        .beginControlFlow("if ($L != null)", getter)
+        .addStatement("size += $L + $L + $L", OVERHEAD, nameSize, valueSize(fd, getter))
+        .endControlFlow()
+        .build();
+  }
+
+  /** Size of the value, measured the way {@link #toAttributeValue} would encode it. */
+  @NotNull
+  CodeBlock valueSize(@NotNull FieldDescription fd, @NotNull String javaValue) {
+
+    if (DDBType.NATIVE.equals(fd.getDdbType())) {
+      return CodeBlock.of("$T.sizeOf($L)", ItemSizeCalculator.class, javaValue);
+    } else if (fd.getTypeArgument().fieldType().equals(FieldDescription.FieldType.LIST)) {
+      return CodeBlock.of("$L.sizeOf($L)", fd.getTypeArgument().buildMapperClassName(), javaValue);
+    } else if (DDBType.STRING.equals(fd.getDdbType())) {
+      return CodeBlock.of("$T.utf8Length($L)", ItemSizeCalculator.class, javaValue);
+    } else if (DDBType.INTEGER.equals(fd.getDdbType()) || DDBType.LONG.equals(fd.getDdbType())) {
+      return CodeBlock.of("$T.numberSize($L.longValue())", ItemSizeCalculator.class, javaValue);
+    } else if (SCALAR_TYPES.contains(fd.getDdbType())) {
+      return CodeBlock.of("$T.numberSize($L.toString())", ItemSizeCalculator.class, javaValue);
+    } else if (null != fd.getTypeArgument().getTypeName()) {
+      return CodeBlock.of("$L.documentSizeOf($L)", mapperInstance(fd), javaValue);
+    }
+    throw new NotSupportedTypeException(fd.toString());
+  }
+
+  @NotNull
+  CodeBlock encodeField(@NotNull FieldDescription fd) {
+    String getter = "get" + TypoUtils.upperCaseFirstLetter(fd.getName()) + "()";
+
+    if (fd.getConverterClass() != null) {
+      return CodeBlock.builder()
+          .addStatement("$L = $T.toValue($L.$L)", VALUE, fd.getConverterClass(), BEAN, getter)
+          .beginControlFlow("if ($L != null)", VALUE)
+          .addStatement("$L.put($S, $L)", ITEM, fd.getAttribute(), VALUE)
+          .endControlFlow()
+          .build();
+    }
+
+    return CodeBlock.builder()
+        .beginControlFlow("if ($L.$L != null)", BEAN, getter)
+        .addStatement(
+            "$L.put($S, $L)", ITEM, fd.getAttribute(), toAttributeValue(fd, BEAN + "." + getter))
+        .endControlFlow()
+        .build();
+  }
+
+  @NotNull
+  CodeBlock toAttributeValue(@NotNull FieldDescription fd, @NotNull String javaValue) {
+
+    if (DDBType.NATIVE.equals(fd.getDdbType())) {
+      return CodeBlock.of("$L", javaValue);
+    } else if (fd.getTypeArgument().fieldType().equals(FieldDescription.FieldType.LIST)) {
+      return CodeBlock.of(
+          "$L.toAttribute($L)", fd.getTypeArgument().buildMapperClassName(), javaValue);
+    } else if (DDBType.STRING.equals(fd.getDdbType())) {
+      return CodeBlock.of("$T.fromS($L)", AttributeValue.class, javaValue);
+    } else if (SCALAR_TYPES.contains(fd.getDdbType())) {
+      return CodeBlock.of("$T.fromN($L.toString())", AttributeValue.class, javaValue);
+    } else if (null != fd.getTypeArgument().getTypeName()) {
+      return CodeBlock.of(
+          "$T.fromM($L.export($L))", AttributeValue.class, mapperInstance(fd), javaValue);
+    }
+    throw new NotSupportedTypeException(fd.toString());
+  }
+
+  @NotNull
+  CodeBlock decodeField(@NotNull FieldDescription fd, boolean useBuilder) {
+    return decodeField(
+        fd,
+        decoded ->
+            useBuilder
+                ? CodeBlock.of("$L.$L($L)", BUILDER, fd.getName(), decoded)
+                : CodeBlock.of(
+                    "$L = $L.with$L($L)",
+                    BEAN,
+                    BEAN,
+                    TypoUtils.upperCaseFirstLetter(fd.getName()),
+                    decoded));
+  }
+
+  /**
+   * Statement(s) decoding the attribute held in {@code value}; {@code assignment} turns the
+   * decoded expression into the statement that stores it.
+   */
+  @NotNull
+  CodeBlock decodeField(
+      @NotNull FieldDescription fd, @NotNull Function<CodeBlock, CodeBlock> assignment) {
+    CodeBlock statement = assignment.apply(fromAttributeValue(fd, VALUE));
+
+    if (fd.getConverterClass() == null && SCALAR_TYPES.contains(fd.getDdbType())) {
+      return CodeBlock.builder()
+          .beginControlFlow("if ($L.$L() != null)", VALUE, fd.getDdbType().getSymbol())
+          .addStatement(statement)
+          .endControlFlow()
+          .build();
+    }
+    return CodeBlock.builder().addStatement(statement).build();
+  }
+
+  /** Documents and lists, the attributes whose decoding allocates more than a single value. */
+  static boolean isComposite(@NotNull FieldDescription fd) {
+    return fd.getConverterClass() == null
+        && !DDBType.NATIVE.equals(fd.getDdbType())
+        && !SCALAR_TYPES.contains(fd.getDdbType());
+  }
+
+  @NotNull
+  CodeBlock fromAttributeValue(@NotNull FieldDescription fd, @NotNull String attributeValue) {
+
+    if (fd.getConverterClass() != null) {
+      return CodeBlock.of("$T.valueOf($L)", fd.getConverterClass(), attributeValue);
+    } else if (DDBType.NATIVE.equals(fd.getDdbType())) {
+      return CodeBlock.of("$L", attributeValue);
+    } else if (fd.getTypeArgument().fieldType().equals(FieldDescription.FieldType.LIST)) {
+      return CodeBlock.of(
+          "$L.fromAttribute($L)", fd.getTypeArgument().buildMapperClassName(), attributeValue);
+    } else if (SCALAR_TYPES.contains(fd.getDdbType())) {
+      return CodeBlock.of(
+          "$T.valueOf($L.$L())",
+          fd.getDdbType().getClazz(),
+          attributeValue,
+          fd.getDdbType().getSymbol());
+    } else if (null != fd.getTypeArgument().getTypeName()) {
+      return CodeBlock.of("$L.transform($L.m())", mapperInstance(fd), attributeValue);
+    }
+    throw new NotSupportedTypeException(fd.toString());
+  }
+
+  private static String mapperInstance(FieldDescription fd) {
+    return TypoUtils.toSnakeCase(fd.getTypeArgument().getTypeName());
+  }
+}
@@ -0,0 +1,133 @@
+package io.github.rczyzewski.guacamole.ddb.processor.generator;
+
+import static io.github.rczyzewski.guacamole.ddb.processor.generator.CodecGenerator.ITEM;
+import static io.github.rczyzewski.guacamole.ddb.processor.generator.CodecGenerator.VALUE;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import io.github.rczyzewski.guacamole.ddb.processor.TypoUtils;
+import io.github.rczyzewski.guacamole.ddb.processor.model.ClassDescription;
+import io.github.rczyzewski.guacamole.ddb.processor.model.FieldDescription;
+import java.util.Map;
+import java.util.Optional;
+import lombok.AllArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Generates a read-only view over a raw item. Scalars are decoded when the view is created, while
+ * documents and lists are kept as {@link AttributeValue} and decoded on the first access of their
+ * getter.
+ */
+@AllArgsConstructor
+public class LazyViewGenerator {
+
+  private static final String RAW_SUFFIX = "Value";
+
+  @NotNull private final LiveDescriptionGenerator descriptionGenerator;
+  @NotNull private final CodecGenerator codecGenerator;
+
+  public static ClassName lazyViewClassName(
+      @NotNull ClassName repositoryClass, @NotNull ClassDescription classDescription) {
+    return repositoryClass.nestedClass(classDescription.getName() + "LazyView");
+  }
+
+  @NotNull
+  public TypeSpec createLazyViewClass(
+      @NotNull ClassDescription classDescription, @NotNull ClassName repositoryClass) {
+
+    ClassName beanClass =
+        ClassName.get(
+            Optional.ofNullable(classDescription.getPackageName()).orElse(""),
+            classDescription.getName());
+
+    TypeSpec.Builder view =
+        TypeSpec.classBuilder(lazyViewClassName(repositoryClass, classDescription))
+            .addModifiers(PUBLIC, STATIC, FINAL)
+            .addJavadoc(
+                "Lazily decoded $L, documents and lists are decoded on the first access.\n",
+                classDescription.getName())
+            .addJavadoc("Instances are not thread safe.\n");
+
+    CodeBlock.Builder constructor =
+        CodeBlock.builder()
+            .beginControlFlow(
+                "for ($T.Entry<String, $T> entry : $L.entrySet())",
+                Map.class,
+                AttributeValue.class,
+                ITEM)
+            .addStatement("$T $L = entry.getValue()", AttributeValue.class, VALUE)
+            .beginControlFlow("switch (entry.getKey())");
+
+    CodeBlock.Builder entity = CodeBlock.builder().add("return $T.builder()\n", beanClass);
+
+    for (FieldDescription fd : classDescription.getFieldDescriptions()) {
+      TypeName fieldType = descriptionGenerator.get(fd.getTypeArgument());
+      String getter = "get" + TypoUtils.upperCaseFirstLetter(fd.getName());
+
+      view.addField(FieldSpec.builder(fieldType, fd.getName(), PRIVATE).build());
+      constructor.add("case $S:\n", fd.getAttribute()).indent();
+
+      if (CodecGenerator.isComposite(fd)) {
+        String raw = fd.getName() + RAW_SUFFIX;
+        view.addField(FieldSpec.builder(AttributeValue.class, raw, PRIVATE).build());
+        constructor.addStatement("this.$L = $L", raw, VALUE);
+        view.addMethod(
+            MethodSpec.methodBuilder(getter)
+                .addModifiers(PUBLIC)
+                .returns(fieldType)
+                .addCode(
+                    CodeBlock.builder()
+                        .beginControlFlow("if ($L != null)", raw)
+                        .addStatement("$T $L = $L", AttributeValue.class, VALUE, raw)
+                        .add(
+                            codecGenerator.decodeField(
+                                fd, decoded -> CodeBlock.of("this.$L = $L", fd.getName(), decoded)))
+                        .addStatement("this.$L = null", raw)
+                        .endControlFlow()
+                        .addStatement("return $L", fd.getName())
+                        .build())
+                .build());
+      } else {
+        constructor.add(
+            codecGenerator.decodeField(
+                fd, decoded -> CodeBlock.of("this.$L = $L", fd.getName(), decoded)));
+        view.addMethod(
+            MethodSpec.methodBuilder(getter)
+                .addModifiers(PUBLIC)
+                .returns(fieldType)
+                .addStatement("return $L", fd.getName())
+                .build());
+      }
+      constructor.addStatement("break").unindent();
+      entity.add("    .$L($L())\n", fd.getName(), getter);
+    }
+
+    constructor.add("default:\n").indent().addStatement("break").unindent();
+
+    return view.addMethod(
+            MethodSpec.constructorBuilder()
+                .addModifiers(PUBLIC)
+                .addParameter(
+                    ParameterizedTypeName.get(Map.class, String.class, AttributeValue.class), ITEM)
+                .addCode(constructor.endControlFlow().endControlFlow().build())
+                .build())
+        .addMethod(
+            MethodSpec.methodBuilder("getEntity")
+                .addJavadoc("Decodes all remaining attributes and returns the whole entity.\n")
+                .addModifiers(PUBLIC)
+                .returns(beanClass)
+                .addCode(entity.add("    .build();\n").build())
+                .build())
+        .build();
+  }
+}
@@ -13,6 +13,7 @@ import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import io.github.rczyzewski.guacamole.ddb.mapper.ConsecutiveIdGenerator;
 import io.github.rczyzewski.guacamole.ddb.mapper.FieldMappingDescription;
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
 import io.github.rczyzewski.guacamole.ddb.mapper.LiveMappingDescription;
 import io.github.rczyzewski.guacamole.ddb.mapper.SchemaUtils;
 import io.github.rczyzewski.guacamole.ddb.processor.ClassUtils;
@@ -21,11 +22,11 @@ import io.github.rczyzewski.guacamole.ddb.processor.TypoUtils;
 import io.github.rczyzewski.guacamole.ddb.processor.model.ClassDescription;
 import io.github.rczyzewski.guacamole.ddb.processor.model.DDBType;
 import io.github.rczyzewski.guacamole.ddb.processor.model.FieldDescription;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
 import org.jetbrains.annotations.NotNull;
@@ -219,68 +220,71 @@ public class LiveDescriptionGenerator {
                               .get(0)
                               .buildMapperClassName()));
 
-      if (standardConverter == null
-          && typeArgument.getTypeArguments().isEmpty()
-          && typeArgumentClassDescription.isPresent()
-          && !typeArgument.fieldType().equals(FieldDescription.FieldType.LIST)) {
+      boolean document =
+          standardConverter == null
+              && typeArgument.getTypeArguments().isEmpty()
+              && typeArgumentClassDescription.isPresent()
+              && !typeArgument.fieldType().equals(FieldDescription.FieldType.LIST);
 
+      CodeBlock encodeElement;
+      CodeBlock decodeElement;
+      CodeBlock elementSize;
+      if (document) {
         String mapperInstanceName =
             TypoUtils.toSnakeCase(typeArgumentClassDescription.get().getName()).toUpperCase();
-
-        return TypeSpec.classBuilder(
-                repositoryClass.nestedClass(classDescription.getGeneratedMapperName()))
-            .addModifiers(STATIC)
-            .addMethod(
-                MethodSpec.methodBuilder("toAttribute")
-                    .addParameter(
-                        ParameterSpec.builder(get(classDescription.getParametrized()), "arg")
-                            .build())
-                    .addCode(
-                        " return AttributeValue.fromL( arg.stream().map(it -> $L.export(it))"
-                            + "    .map(it-> AttributeValue.fromM(it)).collect($T.toList()));",
-                        mapperInstanceName,
-                        Collectors.class)
-                    .addModifiers(STATIC)
-                    .returns(AttributeValue.class)
-                    .build())
-            .addMethod(
-                MethodSpec.methodBuilder("fromAttribute")
-                    .addModifiers(STATIC)
-                    .addParameter(ParameterSpec.builder(AttributeValue.class, "arg").build())
-                    .addCode(
-                        "return  arg.l().stream().map(it->it.m()).map(it->"
-                            + " $L.transform(it)).collect($T.toList()); ",
-                        mapperInstanceName,
-                        Collectors.class)
-                    .returns(get(classDescription.getParametrized()))
-                    .build())
-            .build();
+        encodeElement =
+            CodeBlock.of("$T.fromM($L.export(element))", AttributeValue.class, mapperInstanceName);
+        decodeElement = CodeBlock.of("$L.transform(values.get(i).m())", mapperInstanceName);
+        elementSize = CodeBlock.of("$L.documentSizeOf(element)", mapperInstanceName);
+      } else {
+        encodeElement = CodeBlock.of("$T.toAttribute(element)", internalMapper);
+        decodeElement = CodeBlock.of("$T.fromAttribute(values.get(i))", internalMapper);
+        elementSize = CodeBlock.of("$T.sizeOf(element)", internalMapper);
       }
 
+      TypeName listType = get(classDescription.getParametrized());
+      TypeName elementType = get(typeArgument);
+      TypeName valuesType = ParameterizedTypeName.get(List.class, AttributeValue.class);
+
       return TypeSpec.classBuilder(
               repositoryClass.nestedClass(classDescription.getGeneratedMapperName()))
           .addModifiers(STATIC)
           .addMethod(
               MethodSpec.methodBuilder("toAttribute")
-                  .addParameter(
-                      ParameterSpec.builder(get(classDescription.getParametrized()), "arg").build())
-                  .addCode(
-                      "return AttributeValue.fromL("
-                          + " arg.stream().map($T::toAttribute).collect($T.toList()));\n",
-                      internalMapper,
-                      Collectors.class)
                   .addModifiers(STATIC)
+                  .addParameter(ParameterSpec.builder(listType, "arg").build())
+                  .addStatement(
+                      "$T values = new $T<>(arg.size())", valuesType, ArrayList.class)
+                  .beginControlFlow("for ($T element : arg)", elementType)
+                  .addStatement("values.add($L)", encodeElement)
+                  .endControlFlow()
+                  .addStatement("return $T.fromL(values)", AttributeValue.class)
                   .returns(AttributeValue.class)
                   .build())
           .addMethod(
               MethodSpec.methodBuilder("fromAttribute")
                   .addModifiers(STATIC)
                   .addParameter(ParameterSpec.builder(AttributeValue.class, "arg").build())
-                  .addCode(
-                      "return"
-                          + " arg.l().stream().map($T::fromAttribute).collect(Collectors.toList());",
-                      internalMapper)
-                  .returns(get(classDescription.getParametrized()))
+                  .addStatement("$T values = arg.l()", valuesType)
+                  .addStatement(
+                      "$T list = new $T<>(values.size())", listType, ArrayList.class)
+                  .beginControlFlow("for (int i = 0; i < values.size(); i++)")
+                  .addStatement("list.add($L)", decodeElement)
+                  .endControlFlow()
+                  .addStatement("return list")
+                  .returns(listType)
+                  .build())
+          .addMethod(
+              MethodSpec.methodBuilder("sizeOf")
+                  .addModifiers(STATIC)
+                  .addParameter(ParameterSpec.builder(listType, "arg").build())
+                  .addStatement("long size = $T.CONTAINER_OVERHEAD", ItemSizeCalculator.class)
+                  .beginControlFlow("for ($T element : arg)", elementType)
+                  .addStatement(
+                      "size += $T.ELEMENT_OVERHEAD + $L", ItemSizeCalculator.class, elementSize)
+                  .endControlFlow()
+                  .addStatement("return size")
+                  .returns(long.class)
                   .build())
           .build();
     }
@@ -321,10 +325,11 @@ public class LiveDescriptionGenerator {
             .build();
 
     return CodeBlock.of(
-        "super(()->$T.builder().build(), \n$T.asList($L));",
+        "super(()->$T.builder().build(), \n$T.asList($L),\nnew $LCODEC());",
         mappedClassName,
         Arrays.class,
-        indentBlocks);
+        indentBlocks,
+        description.getGeneratedMapperName());
   }
 
   public CodeBlock createTableDefinition(@NotNull ClassUtils utils) {
@@ -7,6 +7,7 @@ import static javax.lang.model.element.Modifier.PUBLIC;
 import static javax.lang.model.element.Modifier.STATIC;
 
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
@@ -32,6 +33,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 @AllArgsConstructor
 public class PathGenerator {
@@ -40,6 +42,7 @@ public class PathGenerator {
           Arrays.asList(
               DDBType.STRING, DDBType.INTEGER, DDBType.FLOAT, DDBType.DOUBLE, DDBType.LONG));
   private static final String SELECT_METHOD = "select";
+  private static final String ROOT_PARENT = "null";
 
   private final ClassName pathsNamespace;
   private final Logger logger;
@@ -61,7 +64,7 @@ public class PathGenerator {
     ClassName rootBeanPathClassName = pathsNamespace.nestedClass("Root");
 
     pathNamespace.addType(
-        createPath(rootBeanPathClassName, baseBean, classDescription, "null").build());
+        createPath(rootBeanPathClassName, baseBean, classDescription, ROOT_PARENT).build());
 
     classDescription
         .getSourandingClasses()
@@ -74,14 +77,13 @@ public class PathGenerator {
                   ParameterizedTypeName.get(ClassName.get(Path.class), baseBean);
               TypeSpec.Builder pathClassBuilder =
                   createPath(beanPathClass, baseBean, it, "this")
-                      .addField(FieldSpec.builder(path, "parent", PRIVATE).build())
+                      .addField(FieldSpec.builder(path, "parent", PRIVATE, FINAL).build())
                       .addSuperinterface(path)
                       .addMethod(
                           MethodSpec.methodBuilder("serialize")
                               .returns(String.class)
                               .addAnnotation(Override.class)
-                              .addCode("return Optional.ofNullable(parent)\n")
-                              .addCode(".map(it -> parent.serialize()).orElse(null);")
+                              .addStatement("return parent == null ? null : parent.serialize()")
                               .addModifiers(PUBLIC)
                               .build());
               pathNamespace.addType(pathClassBuilder.build());
@@ -195,29 +197,26 @@ public class PathGenerator {
 
     for (FieldDescription fd : classDescription.getFieldDescriptions()) {
 
+      TypeName returnType;
+      CodeBlock path;
+
       if (PRIMITIVE_DDB_TYPE.contains(fd.getDdbType())
           || fd.getDdbType().equals(DDBType.NATIVE)
           || Objects.nonNull(fd.getConverterClass())) {
 
-        ParameterizedTypeName returnType =
+        returnType =
             ParameterizedTypeName.get(
                 ClassName.get(TypedPath.class),
                 repositoryBean,
                 TypeName.get(fd.getDdbType().getClazz()));
-
-        MethodSpec method =
-            MethodSpec.methodBuilder(SELECT_METHOD + TypoUtils.upperCaseFirstLetter(fd.getName()))
-                .addModifiers(PUBLIC)
-                .addCode(
-                    "return $T.<$T, $T>builder()" + ".parent($L).selectedElement(\"$L\").build();",
-                    PrimitiveElement.class,
-                    repositoryBean,
-                    fd.getDdbType().getClazz(),
-                    parent,
-                    fd.getAttribute())
-                .returns(returnType)
-                .build();
-        queryClass.addMethod(method);
+        path =
+            CodeBlock.of(
+                "$T.<$T, $T>builder().parent($L).selectedElement($S).build()",
+                PrimitiveElement.class,
+                repositoryBean,
+                fd.getDdbType().getClazz(),
+                parent,
+                fd.getAttribute());
 
       } else if (fd.getTypeArgument().fieldType().equals(LIST)) {
 
@@ -229,82 +228,96 @@ public class PathGenerator {
 
         if (supported.contains(fd.getTypeArgument().getTypeArguments().get(0).fieldType())) {
 
-          ClassName returnType = className.peerClass(fd.getTypeArgument().buildPathClassName());
-
-          MethodSpec method =
-              MethodSpec.methodBuilder(SELECT_METHOD + TypoUtils.upperCaseFirstLetter(fd.getName()))
-                  .addModifiers(PUBLIC)
-                  .addCode(
-                      " $T<$T, AttributeValue> part =\n", PrimitiveElement.class, repositoryBean)
-                  .addCode(
-                      "$T.<$T, AttributeValue>builder()\n"
-                          + "    .parent($L)\n"
-                          + "    .selectedElement(\"$L\")\n"
-                          + "    .build();\n",
-                      PrimitiveElement.class,
-                      repositoryBean,
-                      parent,
-                      fd.getAttribute())
-                  .addCode("return $T.builder().parent(part).build();", returnType)
-                  .returns(returnType)
-                  .build();
-
-          queryClass.addMethod(method);
+          ClassName pathClass = className.peerClass(fd.getTypeArgument().buildPathClassName());
+          returnType = pathClass;
+          path =
+              CodeBlock.of(
+                  "$T.builder()\n"
+                      + "    .parent($T.<$T, $T>builder()"
+                      + ".parent($L).selectedElement($S).build())\n"
+                      + "    .build()",
+                  pathClass,
+                  PrimitiveElement.class,
+                  repositoryBean,
+                  AttributeValue.class,
+                  parent,
+                  fd.getAttribute());
 
         } else if (fd.getSourandingClasses().containsKey(a)) {
           ClassName beanPathClass = pathsNamespace.nestedClass(a + "Path");
-          ParameterizedTypeName returnType =
+          returnType =
               ParameterizedTypeName.get(
                   ClassName.get(ListPath.class), repositoryBean, beanPathClass);
-          MethodSpec method =
-              MethodSpec.methodBuilder(SELECT_METHOD + TypoUtils.upperCaseFirstLetter(fd.getName()))
-                  .addModifiers(PUBLIC)
-                  .addCode(
-                      "return $T.<$T, $LPath>builder()\n"
-                          + ".provider(it -> new $LPath(it))\n"
-                          + ".selectedField(\"$L\")\n"
-                          + ".parent($L)\n"
-                          + ".build();\n",
-                      ListPath.class,
-                      repositoryBean,
-                      a,
-                      a,
-                      fd.getAttribute(),
-                      parent)
-                  .returns(returnType)
-                  .build();
-          queryClass.addMethod(method);
+          path =
+              CodeBlock.of(
+                  "$T.<$T, $T>builder()\n"
+                      + "    .provider(it -> new $T(it))\n"
+                      + "    .selectedField($S)\n"
+                      + "    .parent($L)\n"
+                      + "    .build()",
+                  ListPath.class,
+                  repositoryBean,
+                  beanPathClass,
+                  beanPathClass,
+                  fd.getAttribute(),
+                  parent);
 
         } else {
           logger.warn(
               "Only Lists of documents or "
                   + "primitives(Long,Integer,Double,String) are supported");
+          continue;
         }
 
       } else if (fd.getDdbType() == DDBType.OTHER) {
 
         ClassName beanPathClass =
             pathsNamespace.nestedClass(fd.getTypeArgument().getTypeName() + "Path");
-
-        MethodSpec method =
-            MethodSpec.methodBuilder(SELECT_METHOD + TypoUtils.upperCaseFirstLetter(fd.getName()))
-                .addModifiers(PUBLIC)
-                .addCode(
-                    "$T<$T, $T> element = ", PrimitiveElement.class, repositoryBean, repositoryBean)
-                .addCode(
-                    "$T.<$T, $T>builder().parent($L).selectedElement(\"$L\").build();\n",
-                    PrimitiveElement.class,
-                    repositoryBean,
-                    repositoryBean,
-                    parent,
-                    fd.getAttribute())
-                .addCode("return $T.builder().parent(element).build();", beanPathClass)
-                .returns(beanPathClass)
-                .build();
-
-        queryClass.addMethod(method);
+        returnType = beanPathClass;
+        path =
+            CodeBlock.of(
+                "$T.builder()\n"
+                    + "    .parent($T.<$T, $T>builder().parent($L).selectedElement($S).build())\n"
+                    + "    .build()",
+                beanPathClass,
+                PrimitiveElement.class,
+                repositoryBean,
+                repositoryBean,
+                parent,
+                fd.getAttribute());
+      } else {
+        continue;
       }
+
+      queryClass.addMethod(
+          createSelect(queryClass, fd, returnType, path, ROOT_PARENT.equals(parent)));
     }
     return queryClass;
   }
+
+  /**
+   * Paths are immutable, so the ones selected from the root are created once and kept in
+   * constants; nested paths depend on the instance they are selected from.
+   */
+  private MethodSpec createSelect(
+      TypeSpec.Builder queryClass,
+      FieldDescription fd,
+      TypeName returnType,
+      CodeBlock path,
+      boolean cached) {
+
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder(SELECT_METHOD + TypoUtils.upperCaseFirstLetter(fd.getName()))
+            .addModifiers(PUBLIC)
+            .returns(returnType);
+
+    if (!cached) {
+      return method.addStatement("return $L", path).build();
+    }
+
+    String constant = TypoUtils.toSnakeCase(fd.getName());
+    queryClass.addField(
+        FieldSpec.builder(returnType, constant, PRIVATE, STATIC, FINAL).initializer(path).build());
+    return method.addStatement("return $L", constant).build();
+  }
 }
@@ -1,5 +1,6 @@
 package io.github.rczyzewski.guacamole.ddb.processor.model;
 
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DecodeStrategy;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +16,7 @@ public class ClassDescription {
   private final String generatedMapperName;
   private final String packageName;
   private final List<FieldDescription> fieldDescriptions;
+  @Builder.Default private final DecodeStrategy decodeStrategy = DecodeStrategy.WITHER;
 
   private final FieldDescription.TypeArgument parametrized;
 
@@ -0,0 +1,60 @@
+package io.github.rczyzewski.guacamole.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class DecodeStrategyTest {
+
+  private final InvoiceRepository repo = new InvoiceRepository("invoices");
+
+  @Test
+  void builderDecodingRestoresTheWholeItem() {
+    Invoice invoice =
+        Invoice.builder()
+            .customer("ACME")
+            .number("2023/01")
+            .total(12.5)
+            .billedTo(Invoice.Customer.builder().name("Wile E. Coyote").city("Desert").build())
+            .lines(
+                Arrays.asList(
+                    Invoice.Line.builder().product("rocket").quantity(1).build(),
+                    Invoice.Line.builder().product("skates").quantity(2).build()))
+            .build();
+
+    Map<String, AttributeValue> item = repo.getMapper().export(invoice);
+
+    assertThat(repo.getMapper().transform(item)).isEqualTo(invoice);
+  }
+
+  @Test
+  void builderDecodingSkipsMissingAttributes() {
+    Invoice invoice = Invoice.builder().customer("ACME").number("2023/02").build();
+
+    Map<String, AttributeValue> keys = repo.getMapper().exportKeys(invoice);
+
+    assertThat(keys).containsOnlyKeys("customer", "number");
+    assertThat(repo.getMapper().transform(keys)).isEqualTo(invoice);
+  }
+
+  @Test
+  void projectedDecodingReadsOnlyTheProjectedAttributes() {
+    Invoice invoice =
+        Invoice.builder()
+            .customer("ACME")
+            .number("2023/03")
+            .total(7.0)
+            .billedTo(Invoice.Customer.builder().name("Road Runner").build())
+            .build();
+    Map<String, AttributeValue> item = repo.getMapper().export(invoice);
+    InvoiceRepository.Paths.Root paths = new InvoiceRepository.Paths.Root();
+
+    Invoice projected =
+        repo.scan().project(paths.selectCustomer(), paths.selectTotal()).decoder().apply(item);
+
+    assertThat(projected).isEqualTo(Invoice.builder().customer("ACME").total(7.0).build());
+  }
+}
@@ -0,0 +1,41 @@
+package io.github.rczyzewski.guacamole.tests;
+
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DecodeStrategy;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBDocument;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBHashKey;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBRangeKey;
+import io.github.rczyzewski.guacamole.ddb.datamodeling.DynamoDBTable;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+@Value
+@Builder
+@DynamoDBTable(decode = DecodeStrategy.BUILDER)
+@With
+public class Invoice {
+  @DynamoDBHashKey String customer;
+  @DynamoDBRangeKey String number;
+  Double total;
+  Customer billedTo;
+  List<Line> lines;
+
+  @With
+  @Value
+  @Builder
+  @DynamoDBDocument(decode = DecodeStrategy.BUILDER)
+  public static class Customer {
+    String name;
+    String city;
+  }
+
+  @With
+  @Value
+  @Builder
+  @DynamoDBDocument
+  public static class Line {
+    String product;
+    Integer quantity;
+  }
+}
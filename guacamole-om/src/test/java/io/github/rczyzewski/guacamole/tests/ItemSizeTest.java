@@ -0,0 +1,43 @@
+package io.github.rczyzewski.guacamole.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.rczyzewski.guacamole.ddb.mapper.ItemSizeCalculator;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class ItemSizeTest {
+
+  private final InvoiceRepository repo = new InvoiceRepository("invoices");
+
+  @Test
+  void generatedCodecMeasuresTheItemItEncodes() {
+    Invoice invoice =
+        Invoice.builder()
+            .customer("ACME")
+            .number("2023/01")
+            .total(12.5)
+            .billedTo(Invoice.Customer.builder().name("Wile E. Coyote").city("Desert").build())
+            .lines(
+                Arrays.asList(
+                    Invoice.Line.builder().product("rocket").quantity(1).build(),
+                    Invoice.Line.builder().product("skates").quantity(2).build()))
+            .build();
+
+    assertThat(repo.getMapper().sizeOf(invoice)).isEqualTo(140);
+    assertThat(repo.getMapper().sizeOf(invoice))
+        .isEqualTo(ItemSizeCalculator.sizeOf(repo.getMapper().export(invoice)));
+    assertThat(repo.getMapper().documentSizeOf(invoice)).isEqualTo(148);
+    assertThat(repo.getMapper().documentSizeOf(invoice))
+        .isEqualTo(
+            ItemSizeCalculator.sizeOf(AttributeValue.fromM(repo.getMapper().export(invoice))));
+  }
+
+  @Test
+  void missingAttributesAreNotCounted() {
+    Invoice invoice = Invoice.builder().customer("ACME").number("2023/02").build();
+
+    assertThat(repo.getMapper().sizeOf(invoice)).isEqualTo(25);
+  }
+}
@@ -0,0 +1,57 @@
+package io.github.rczyzewski.guacamole.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class LazyViewTest {
+
+  private final CountryRepository repo = new CountryRepository("countries");
+
+  private final Country poland =
+      Country.builder()
+          .id("PL")
+          .name("Poland")
+          .population(38_000_000)
+          .capital(Country.Capital.builder().name("Warsaw").population(1_800_000L).build())
+          .regionList(
+              Collections.singletonList(
+                  Country.Region.builder()
+                      .name("Mazovia")
+                      .population(5_400_000L)
+                      .capital(Country.Capital.builder().name("Warsaw").build())
+                      .build()))
+          .build();
+
+  @Test
+  void scalarsAreAvailableWithoutDecodingDocuments() {
+    Map<String, AttributeValue> item = repo.getMapper().export(poland);
+
+    CountryRepository.CountryLazyView view = repo.lazyView(item);
+
+    assertThat(view.getId()).isEqualTo("PL");
+    assertThat(view.getPopulation()).isEqualTo(38_000_000);
+    assertThat(view.getCapital()).isEqualTo(poland.getCapital());
+    assertThat(view.getCapital()).isSameAs(view.getCapital());
+    assertThat(view.getRegionList()).isEqualTo(poland.getRegionList());
+  }
+
+  @Test
+  void entityIsTheSameAsEagerlyDecoded() {
+    Map<String, AttributeValue> item = repo.getMapper().export(poland);
+
+    assertThat(repo.lazyView(item).getEntity()).isEqualTo(repo.getMapper().transform(item));
+  }
+
+  @Test
+  void missingDocumentIsNull() {
+    CountryRepository.CountryLazyView view =
+        repo.lazyView(Collections.singletonMap("id", AttributeValue.fromS("PL")));
+
+    assertThat(view.getCapital()).isNull();
+    assertThat(view.getRegionList()).isNull();
+  }
+}
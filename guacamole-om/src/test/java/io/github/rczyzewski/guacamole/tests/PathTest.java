@@ -2,6 +2,7 @@ package io.github.rczyzewski.guacamole.tests;
 
 import static org.assertj.core.api.Assertions.*;
 
+import io.github.rczyzewski.guacamole.ddb.path.ListElement;
 import io.github.rczyzewski.guacamole.ddb.path.Path;
 import java.util.HashMap;
 import java.util.Map;
@@ -107,6 +108,25 @@ class PathTest {
     assertThat(result).isEqualTo("A[5].B");
   }
 
+  @Test
+  void elementOfAPathWithoutAttributeIsRejected() {
+    ListElement<Country> element =
+        ListElement.<Country>builder().parent(countryPathCreator).t(1).build();
+
+    assertThatThrownBy(element::serialize)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("DDB list element must be a part of the list");
+  }
+
+  @Test
+  void pathsSelectedFromRootAreShared() {
+    EmployeeRepository.Paths.Root other = new EmployeeRepository.Paths.Root();
+
+    assertThat(employeePathCreator.selectName()).isSameAs(other.selectName());
+    assertThat(employeePathCreator.selectDepartment()).isSameAs(other.selectDepartment());
+    assertThat(employeePathCreator.selectName().getPartsName()).isUnmodifiable();
+  }
+
   @Test
   void selectRecursiveElement() {
     assertThat(employeePathCreator.selectEmployees().at(5).selectId().serialize())